@@ -0,0 +1,41 @@
+package com.g1.bookmark_manager.benchmark;
+
+import com.g1.bookmark_manager.BookmarkManagerApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the real application against an in-memory H2 database for benchmarks that need the service layer.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start() {
+        return builder().run();
+    }
+
+    // Later properties override the defaults, e.g. to give each load test run its own database
+    public static SpringApplicationBuilder builder(String... overrides) {
+        return new SpringApplicationBuilder(BookmarkManagerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.flyway.enabled=false",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=500",
+                        "spring.jpa.open-in-view=false",
+                        "app.mail.outbox.enabled=false",
+                        "app.seed.default-data=false",
+                        "logging.level.root=WARN",
+                        "logging.level.org.springframework.security=WARN")
+                .properties(overrides);
+    }
+}
@@ -0,0 +1,109 @@
+package com.g1.bookmark_manager.benchmark;
+
+import com.g1.bookmark_manager.entity.Bookmark;
+import com.g1.bookmark_manager.entity.CodeBlock;
+import com.g1.bookmark_manager.entity.Role;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.repository.BookmarkRepository;
+import com.g1.bookmark_manager.repository.CodeBlockRepository;
+import com.g1.bookmark_manager.repository.RoleRepository;
+import com.g1.bookmark_manager.repository.UserRepository;
+import com.g1.bookmark_manager.service.DataInitializationService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic, reproducible data set: one user owning {@code scale} bookmarks and {@code scale / 10} code blocks.
+ */
+public final class BenchmarkFixtures {
+
+    public static final String USERNAME = "benchmark-user";
+    public static final String[] COLLECTIONS = {"Frontend Resources", "Backend Resources", "CSS Resources", "Documentation"};
+    public static final String[] TAGS = {"java", "spring", "react", "css", "sql", "docker", "testing", "security"};
+    private static final String[] LANGUAGES = {"java", "typescript", "sql", "python", "bash"};
+    private static final int CHUNK_SIZE = 1000;
+
+    private BenchmarkFixtures() {
+    }
+
+    public static User load(ApplicationContext context, int scale) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+        BookmarkRepository bookmarkRepository = context.getBean(BookmarkRepository.class);
+        CodeBlockRepository codeBlockRepository = context.getBean(CodeBlockRepository.class);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        Random random = new Random(42);
+        // Without migrations the roles are not there until the seeding ran
+        context.getBean(DataInitializationService.class).initializeDefaultData();
+
+        User user = transaction.execute(status -> {
+            User created = new User();
+            created.setUsername(USERNAME);
+            created.setEmail(USERNAME + "@example.com");
+            created.setPassword("{noop}benchmark");
+            created.setFullName("Benchmark User");
+            created.setRoles(new ArrayList<>(List.of(roleRepository.findByName(Role.RoleName.USER).orElseThrow())));
+            return userRepository.save(created);
+        });
+
+        for (int start = 0; start < scale; start += CHUNK_SIZE) {
+            int end = Math.min(start + CHUNK_SIZE, scale);
+            int from = start;
+            transaction.executeWithoutResult(status -> {
+                List<Bookmark> bookmarks = new ArrayList<>(end - from);
+                for (int i = from; i < end; i++) {
+                    bookmarks.add(bookmark(user, i, random));
+                }
+                bookmarkRepository.saveAll(bookmarks);
+            });
+        }
+
+        int codeBlockCount = Math.max(1, scale / 10);
+        for (int start = 0; start < codeBlockCount; start += CHUNK_SIZE) {
+            int end = Math.min(start + CHUNK_SIZE, codeBlockCount);
+            int from = start;
+            transaction.executeWithoutResult(status -> {
+                List<CodeBlock> codeBlocks = new ArrayList<>(end - from);
+                for (int i = from; i < end; i++) {
+                    codeBlocks.add(codeBlock(user, i, random));
+                }
+                codeBlockRepository.saveAll(codeBlocks);
+            });
+        }
+        return user;
+    }
+
+    private static Bookmark bookmark(User user, int i, Random random) {
+        Bookmark bookmark = new Bookmark();
+        bookmark.setTitle("Benchmark bookmark " + i + " about " + TAGS[i % TAGS.length]);
+        bookmark.setUrl("https://example.com/articles/" + i);
+        bookmark.setDescription("Synthetic description number " + i + " used to measure list and search paths");
+        bookmark.setCollection(COLLECTIONS[i % COLLECTIONS.length]);
+        bookmark.setTags(new ArrayList<>(List.of(TAGS[random.nextInt(TAGS.length)], TAGS[random.nextInt(TAGS.length)])));
+        bookmark.setIsFavorite(i % 7 == 0);
+        bookmark.setIsPublic(i % 3 == 0);
+        bookmark.setUser(user);
+        return bookmark;
+    }
+
+    private static CodeBlock codeBlock(User user, int i, Random random) {
+        CodeBlock codeBlock = new CodeBlock();
+        codeBlock.setTitle("Snippet " + i);
+        codeBlock.setLanguage(LANGUAGES[i % LANGUAGES.length]);
+        codeBlock.setDescription("Synthetic snippet " + i);
+        StringBuilder code = new StringBuilder();
+        for (int line = 0; line < 40; line++) {
+            code.append("int value").append(line).append(" = compute(").append(random.nextInt(1000)).append(");\n");
+        }
+        codeBlock.setCode(code.toString());
+        codeBlock.setCollection(COLLECTIONS[i % COLLECTIONS.length]);
+        codeBlock.setTags(new ArrayList<>(List.of(TAGS[random.nextInt(TAGS.length)])));
+        codeBlock.setUser(user);
+        return codeBlock;
+    }
+}
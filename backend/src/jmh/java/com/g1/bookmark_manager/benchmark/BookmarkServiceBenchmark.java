@@ -0,0 +1,90 @@
+package com.g1.bookmark_manager.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g1.bookmark_manager.dto.response.BookmarkResponse;
+import com.g1.bookmark_manager.dto.response.CodeBlockResponse;
+import com.g1.bookmark_manager.dto.response.CursorPageResponse;
+import com.g1.bookmark_manager.dto.response.FilterPageResponse;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.filter.FilterCriteria;
+import com.g1.bookmark_manager.service.BookmarkService;
+import com.g1.bookmark_manager.service.CodeBlockService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service layer and serialization hot paths at 1k, 10k and 100k bookmarks per user.
+ * Every scale runs in its own fork with a fresh embedded database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookmarkServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int scale;
+
+    private ConfigurableApplicationContext context;
+    private BookmarkService bookmarkService;
+    private CodeBlockService codeBlockService;
+    private ObjectMapper objectMapper;
+    private TransactionTemplate readOnly;
+    private User user;
+    private List<BookmarkResponse> responses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookmarkService = context.getBean(BookmarkService.class);
+        codeBlockService = context.getBean(CodeBlockService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        user = BenchmarkFixtures.load(context, scale);
+        responses = readOnly.execute(status -> bookmarkService.getAllBookmarks(BenchmarkFixtures.USERNAME));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Full list: entity load plus convertToResponse for every bookmark
+    @Benchmark
+    public List<BookmarkResponse> getAllBookmarks() {
+        return readOnly.execute(status -> bookmarkService.getAllBookmarks(BenchmarkFixtures.USERNAME));
+    }
+
+    @Benchmark
+    public CursorPageResponse<BookmarkResponse> getFirstBookmarkPage() {
+        return readOnly.execute(status -> bookmarkService.getAllBookmarks(BenchmarkFixtures.USERNAME, null, 50));
+    }
+
+    // First filter page with the text, favorite and tag conditions set, the query text comes from the shape cache
+    @Benchmark
+    public FilterPageResponse<BookmarkResponse> filterBookmarks() {
+        FilterCriteria criteria = new FilterCriteria("bookmark", "example", null, List.of("java"), null, true,
+                null, null, null);
+        return readOnly.execute(status -> bookmarkService.filterBookmarks(
+                criteria, "createdAt,desc", BenchmarkFixtures.USERNAME, null, 50));
+    }
+
+    @Benchmark
+    public List<CodeBlockResponse> getAllCodeBlocks() {
+        return readOnly.execute(status -> codeBlockService.getAllCodeBlocks(user));
+    }
+
+    @Benchmark
+    public byte[] serializeBookmarkResponses() throws Exception {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+}
@@ -0,0 +1,80 @@
+package com.g1.bookmark_manager.benchmark;
+
+import com.g1.bookmark_manager.entity.Role;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.util.JwtClaims;
+import com.g1.bookmark_manager.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a bearer token.
+ * {@code legacyRequestVerification} replays what the filter did before the single-parse path:
+ * a fresh HMAC key for every parse and five parses per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "QwErTyUiOpAsDfGhJkLzXcVbNmQwErTy123456";
+
+    private JwtUtil jwtUtil;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 86400000L);
+        Role role = new Role();
+        role.setName(Role.RoleName.USER);
+        user = new User();
+        user.setUsername("benchmark-user");
+        user.setRoles(List.of(role));
+        token = jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Object legacyRequestVerification() {
+        String subject = null;
+        for (int i = 0; i < 5; i++) {
+            Keys.hmacShaKeyFor(SECRET.getBytes());
+            Claims claims = Jwts.parser()
+                    .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            subject = claims.getSubject();
+        }
+        return subject;
+    }
+
+    @Benchmark
+    public JwtClaims parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+    // What JwtAuthenticationFilter does per request when the roles claim is trusted
+    @Benchmark
+    public UsernamePasswordAuthenticationToken authenticateRequest() {
+        JwtClaims claims = jwtUtil.parseToken(token);
+        return new UsernamePasswordAuthenticationToken(claims.username(), null,
+                claims.roles().stream().map(SimpleGrantedAuthority::new).toList());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+}
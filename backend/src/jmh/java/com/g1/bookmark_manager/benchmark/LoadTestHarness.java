@@ -0,0 +1,177 @@
+package com.g1.bookmark_manager.benchmark;
+
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.util.JwtUtil;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load test comparing platform-thread and virtual-thread request handling.
+ * Each mode starts the application on an embedded database with simulated JDBC latency, loads the same fixtures
+ * and is driven by {@code loadtest.clients} concurrent clients for {@code loadtest.duration}.
+ * Throughput and latency percentiles are printed and written to {@code loadtest.result} as CSV.
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec@run-loadtest</pre>
+ */
+public final class LoadTestHarness {
+
+    private static final String[] MODES = {"platform", "virtual"};
+
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("loadtest.clients", 400);
+        int scale = Integer.getInteger("loadtest.scale", 10_000);
+        int poolSize = Integer.getInteger("loadtest.pool-size", 20);
+        int tomcatThreads = Integer.getInteger("loadtest.tomcat-threads", 200);
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+        Duration jdbcLatency = Duration.ofMillis(Long.getLong("loadtest.jdbc-latency-ms", 5));
+        String path = System.getProperty("loadtest.path", "/api/bookmarks?size=50");
+        Path result = Path.of(System.getProperty("loadtest.result", "target/loadtest-result.csv"));
+
+        List<String> rows = new ArrayList<>();
+        rows.add("mode,clients,pool_size,requests,errors,throughput_rps,p50_ms,p90_ms,p99_ms,max_ms");
+        for (String mode : MODES) {
+            ConfigurableApplicationContext context = BenchmarkApplication.builder(
+                            "spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                            "spring.datasource.url=jdbc:h2:mem:loadtest-" + mode + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+                            "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                            "spring.datasource.hikari.minimum-idle=" + poolSize,
+                            "server.tomcat.threads.max=" + tomcatThreads,
+                            "server.tomcat.accept-count=" + clients)
+                    .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(latencyInjector(jdbcLatency)))
+                    .run();
+            try {
+                User user = BenchmarkFixtures.load(context, scale);
+                String token = context.getBean(JwtUtil.class).generateToken(user);
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                URI uri = URI.create("http://localhost:" + port + path);
+
+                drive(uri, token, clients, warmup);
+                Run run = drive(uri, token, clients, duration);
+                String row = run.toCsv(mode, clients, poolSize, duration);
+                System.out.println(row);
+                rows.add(row);
+            } finally {
+                context.close();
+            }
+        }
+        write(result, rows);
+    }
+
+    private static Run drive(URI uri, String token, int clients, Duration duration) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+
+        List<Future<long[]>> results = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                results.add(executor.submit(() -> {
+                    LatencyRecorder recorder = new LatencyRecorder();
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        recorder.record(System.nanoTime() - start);
+                    }
+                    return recorder.toArray();
+                }));
+            }
+        }
+
+        LatencyRecorder all = new LatencyRecorder();
+        for (Future<long[]> future : results) {
+            for (long latency : future.get()) {
+                all.record(latency);
+            }
+        }
+        return new Run(all.toArray(), errors.get());
+    }
+
+    private static BeanPostProcessor latencyInjector(Duration latency) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? new SimulatedLatencyDataSource(dataSource, latency) : bean;
+            }
+        };
+    }
+
+    private static void write(Path result, List<String> rows) throws IOException {
+        if (result.getParent() != null) {
+            Files.createDirectories(result.getParent());
+        }
+        Files.write(result, rows);
+        System.out.println("Load test result written to " + result.toAbsolutePath());
+    }
+
+    private static final class LatencyRecorder {
+        private long[] values = new long[1024];
+        private int size;
+
+        void record(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private record Run(long[] latencies, long errors) {
+
+        String toCsv(String mode, int clients, int poolSize, Duration duration) {
+            Arrays.sort(latencies);
+            double throughput = latencies.length / (duration.toMillis() / 1000.0);
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f",
+                    mode, clients, poolSize, latencies.length, errors, throughput,
+                    percentile(0.50), percentile(0.90), percentile(0.99), percentile(1.0));
+        }
+
+        private double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * latencies.length) - 1;
+            return latencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.g1.bookmark_manager.benchmark;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Adds a fixed delay to every statement execution so the in-memory database blocks like a networked SQL Server.
+ * Without it H2 answers in microseconds and request threads never wait on JDBC.
+ */
+public class SimulatedLatencyDataSource extends DelegatingDataSource {
+
+    private final Duration latency;
+
+    public SimulatedLatencyDataSource(DataSource target, Duration latency) {
+        super(target);
+        this.latency = latency;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    // createStatement / prepareStatement / prepareCall, proxy the declared statement type
+                    if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        return wrap(statement, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    private Object wrap(Statement statement, Class<?> type) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                Thread.sleep(latency);
+            }
+            return invoke(statement, method, args);
+        };
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
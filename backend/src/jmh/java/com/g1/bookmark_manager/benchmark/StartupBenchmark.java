@@ -0,0 +1,116 @@
+package com.g1.bookmark_manager.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Time to first request of the packaged application, measured from process start until {@code startup.path}
+ * answers 200. Compares the plain jar, the AOT-processed context and AOT plus the AppCDS archive, all built by
+ * the fast-startup profile. Every mode is started {@code startup.runs} times against the database configured in
+ * application.properties (override with SPRING_DATASOURCE_URL etc.), the results are written to
+ * {@code startup.result} as CSV.
+ *
+ * <pre>mvn -Pfast-startup,benchmark package exec:exec@run-startup</pre>
+ */
+public final class StartupBenchmark {
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("startup.jar"));
+        Path archive = jar.resolveSibling("application.jsa");
+        int runs = Integer.getInteger("startup.runs", 5);
+        String path = System.getProperty("startup.path", "/livez");
+        Duration timeout = Duration.parse(System.getProperty("startup.timeout", "PT2M"));
+        Path result = Path.of(System.getProperty("startup.result", "target/startup-result.csv"));
+
+        List<Mode> modes = new ArrayList<>(List.of(
+                new Mode("jar", List.of()),
+                new Mode("aot", List.of("-Dspring.aot.enabled=true"))));
+        if (Files.exists(archive)) {
+            modes.add(new Mode("aot-cds", List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true")));
+        } else {
+            System.out.println("No CDS archive at " + archive + ", skipping aot-cds");
+        }
+
+        List<String> rows = new ArrayList<>();
+        rows.add("mode,runs,min_ms,median_ms,max_ms");
+        for (Mode mode : modes) {
+            long[] millis = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                millis[i] = timeToFirstRequest(jar, mode, path, timeout);
+            }
+            Arrays.sort(millis);
+            String row = String.format(Locale.ROOT, "%s,%d,%d,%d,%d",
+                    mode.name(), runs, millis[0], millis[runs / 2], millis[runs - 1]);
+            System.out.println(row);
+            rows.add(row);
+        }
+        if (result.getParent() != null) {
+            Files.createDirectories(result.getParent());
+        }
+        Files.write(result, rows);
+        System.out.println("Startup result written to " + result.toAbsolutePath());
+    }
+
+    private static long timeToFirstRequest(Path jar, Mode mode, String path, Duration timeout) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(mode.jvmArguments());
+        command.addAll(List.of("-jar", jar.toString(), "--server.port=" + port, "--management.server.port=" + freePort()));
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode.name() + " exited with " + process.exitValue());
+                }
+                try {
+                    if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(mode.name() + " did not answer " + path + " within " + timeout);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Mode(String name, List<String> jvmArguments) {
+    }
+}
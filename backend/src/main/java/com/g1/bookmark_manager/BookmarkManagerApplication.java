@@ -2,8 +2,10 @@ package com.g1.bookmark_manager;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BookmarkManagerApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,156 @@
+package com.g1.bookmark_manager.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.g1.bookmark_manager.dto.request.BatchRequest;
+import com.g1.bookmark_manager.dto.response.BatchResponse;
+import com.g1.bookmark_manager.exception.BadRequestException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Executes the sub-requests of /api/batch one after another through the DispatcherServlet, so they hit the
+ * regular controllers, validation and exception handlers. Authentication, the JWT check and the connection
+ * (in transactional mode also the transaction) are those of the batch request.
+ * Only the per-user resource APIs are reachable; auth, admin, nested batches and streaming endpoints are not.
+ */
+@Slf4j
+@Component
+public class BatchExecutor {
+
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "PATCH", "DELETE");
+    private static final List<String> PATH_PREFIXES = List.of(
+            "/api/bookmarks", "/api/codeblocks", "/api/collections", "/api/tags", "/api/sync");
+
+    private final DispatcherServlet dispatcherServlet;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+    private final int maxRequests;
+
+    public BatchExecutor(DispatcherServlet dispatcherServlet,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.batch.max-requests:50}") int maxRequests) {
+        this.dispatcherServlet = dispatcherServlet;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxRequests = maxRequests;
+    }
+
+    public BatchResponse execute(BatchRequest batch, HttpServletRequest request, HttpServletResponse response) {
+        if (batch.getRequests().size() > maxRequests) {
+            throw new BadRequestException("A batch may contain at most " + maxRequests + " requests");
+        }
+        batch.getRequests().forEach(BatchExecutor::validate);
+
+        if (!batch.isTransactional()) {
+            List<BatchResponse.Result> results = new ArrayList<>();
+            for (BatchRequest.Operation operation : batch.getRequests()) {
+                results.add(dispatch(operation, request, response));
+            }
+            return new BatchResponse(results);
+        }
+
+        return transaction.execute(status -> {
+            List<BatchResponse.Result> results = new ArrayList<>();
+            boolean failed = false;
+            for (BatchRequest.Operation operation : batch.getRequests()) {
+                if (failed) {
+                    results.add(new BatchResponse.Result(operation.getId(), HttpStatus.FAILED_DEPENDENCY.value(), Map.of(),
+                            error(HttpStatus.FAILED_DEPENDENCY.value(), "Not executed, an earlier request failed")));
+                    continue;
+                }
+                BatchResponse.Result result = dispatch(operation, request, response);
+                results.add(result);
+                if (result.getStatus() >= 400) {
+                    failed = true;
+                    status.setRollbackOnly();
+                }
+            }
+            return new BatchResponse(results);
+        });
+    }
+
+    private static void validate(BatchRequest.Operation operation) {
+        String method = operation.getMethod().toUpperCase(Locale.ROOT);
+        if (!METHODS.contains(method)) {
+            throw new BadRequestException("Unsupported method in batch: " + operation.getMethod());
+        }
+        String path = operation.getPath();
+        int query = path.indexOf('?');
+        String pathOnly = query >= 0 ? path.substring(0, query) : path;
+        // No way out of the allowed prefixes through dot segments, encoded characters or empty segments
+        boolean allowed = !pathOnly.contains("..") && !pathOnly.contains("%") && !pathOnly.contains("//")
+                && !pathOnly.endsWith("/import")
+                && PATH_PREFIXES.stream().anyMatch(prefix -> pathOnly.equals(prefix) || pathOnly.startsWith(prefix + "/"));
+        if (!allowed) {
+            throw new BadRequestException("Path not allowed in batch: " + path);
+        }
+    }
+
+    private BatchResponse.Result dispatch(BatchRequest.Operation operation, HttpServletRequest request, HttpServletResponse response) {
+        BatchSubResponse captured = new BatchSubResponse(response);
+        try {
+            byte[] body = operation.getBody() != null && !operation.getBody().isNull()
+                    ? objectMapper.writeValueAsBytes(operation.getBody())
+                    : null;
+            BatchSubRequest sub = new BatchSubRequest(request, operation.getMethod().toUpperCase(Locale.ROOT),
+                    operation.getPath(), operation.getHeaders(), body);
+            dispatcherServlet.service(sub, captured);
+        } catch (Exception e) {
+            log.warn("Batch request {} {} failed", operation.getMethod(), operation.getPath(), e);
+            return new BatchResponse.Result(operation.getId(), HttpStatus.INTERNAL_SERVER_ERROR.value(), Map.of(),
+                    error(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Internal server error"));
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        captured.headers().forEach((name, values) -> {
+            if (!values.isEmpty()) {
+                headers.put(name, values.get(0));
+            }
+        });
+        return new BatchResponse.Result(operation.getId(), captured.status(), headers, body(captured));
+    }
+
+    private JsonNode body(BatchSubResponse captured) {
+        byte[] bytes = captured.body();
+        if (bytes.length == 0) {
+            return captured.status() >= 400 ? error(captured.status(), captured.errorMessage()) : null;
+        }
+        String contentType = captured.getContentType();
+        if (contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            try {
+                return objectMapper.readTree(bytes);
+            } catch (IOException e) {
+                log.debug("Batch sub-response is not valid JSON, returning it as text");
+            }
+        }
+        return objectMapper.getNodeFactory().textNode(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private ObjectNode error(int status, String message) {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("status", status);
+        HttpStatus resolved = HttpStatus.resolve(status);
+        error.put("message", message != null ? message : resolved != null ? resolved.getReasonPhrase() : "Error");
+        return error;
+    }
+}
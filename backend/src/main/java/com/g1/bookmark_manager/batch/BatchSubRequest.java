@@ -0,0 +1,254 @@
+package com.g1.bookmark_manager.batch;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One sub-request of /api/batch, dispatched through the DispatcherServlet on the thread of the batch request.
+ * Authentication, session and locale come from the batch request; method, path, query, headers, body and request
+ * attributes are the sub-request's own so handler mapping state does not leak between sub-requests.
+ */
+class BatchSubRequest extends HttpServletRequestWrapper {
+
+    private final String method;
+    private final String path;
+    private final String queryString;
+    private final Map<String, String[]> parameters;
+    private final Map<String, String> headers;
+    private final byte[] body;
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    BatchSubRequest(HttpServletRequest batchRequest, String method, String uri, Map<String, String> headers, byte[] body) {
+        super(batchRequest);
+        int query = uri.indexOf('?');
+        this.method = method;
+        this.path = query >= 0 ? uri.substring(0, query) : uri;
+        this.queryString = query >= 0 ? uri.substring(query + 1) : null;
+        this.parameters = parseParameters(this.queryString);
+        this.body = body != null ? body : new byte[0];
+        this.headers = new LinkedCaseInsensitiveMap<>();
+        this.headers.put(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        if (this.body.length > 0) {
+            this.headers.put(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        }
+        if (headers != null) {
+            this.headers.putAll(headers);
+        }
+    }
+
+    private static Map<String, String[]> parseParameters(String queryString) {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        if (queryString == null) {
+            return parameters;
+        }
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (String pair : queryString.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = URLDecoder.decode(separator >= 0 ? pair.substring(0, separator) : pair, StandardCharsets.UTF_8);
+            String value = separator >= 0 ? URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8) : "";
+            values.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        values.forEach((name, list) -> parameters.put(name, list.toArray(String[]::new)));
+        return parameters;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer();
+        url.append(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort());
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getServletPath() {
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        String value = headers.get(name);
+        return Collections.enumeration(value != null ? List.of(value) : List.of());
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        return -1;
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = headers.get(name);
+        return value != null ? Integer.parseInt(value) : -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return headers.get(HttpHeaders.CONTENT_TYPE);
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return body.length;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return StandardCharsets.UTF_8.name();
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream input = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return input.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException("Async I/O is not supported in batch sub-requests");
+            }
+
+            @Override
+            public int read() {
+                return input.read();
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    // Streaming endpoints are not batchable, a sub-request always completes on the calling thread
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Async processing is not supported in batch requests");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("Async processing is not supported in batch requests");
+    }
+}
@@ -0,0 +1,69 @@
+package com.g1.bookmark_manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Two-level cache for the public bookmark and collection feeds, which are the same for every caller.
+ * The first level is a bounded, time limited Caffeine cache local to this instance. The optional second level is
+ * the cache named by {@code app.feed.cache.shared-name} in the application's {@link CacheManager} (e.g. Redis),
+ * shared by all instances and only consulted on a local miss.
+ * Writes clear the local entries of the affected feed and the whole shared cache after they commit,
+ * other instances see the change once their local entries expire.
+ */
+@Component
+public class PublicFeedCache {
+
+    public enum Feed {
+        BOOKMARKS,
+        COLLECTIONS
+    }
+
+    private final Cache<String, Object> local;
+    private final org.springframework.cache.Cache shared;
+
+    public PublicFeedCache(@Value("${app.feed.cache.max-size:1000}") long maxSize,
+                           @Value("${app.feed.cache.ttl:30s}") Duration ttl,
+                           @Value("${app.feed.cache.shared-name:}") String sharedName,
+                           ObjectProvider<CacheManager> cacheManager) {
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        CacheManager manager = sharedName.isBlank() ? null : cacheManager.getIfAvailable();
+        this.shared = manager != null ? manager.getCache(sharedName) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Feed feed, String key, Supplier<T> loader) {
+        return (T) local.get(feed + ":" + key, fullKey -> loadShared(fullKey, loader));
+    }
+
+    public void invalidate(Feed feed) {
+        String prefix = feed + ":";
+        local.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        if (shared != null) {
+            shared.clear();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeedChanged(PublicFeedChangedEvent event) {
+        invalidate(event.feed());
+    }
+
+    private Object loadShared(String key, Supplier<?> loader) {
+        if (shared == null) {
+            return loader.get();
+        }
+        return shared.get(key, loader::get);
+    }
+}
@@ -0,0 +1,7 @@
+package com.g1.bookmark_manager.cache;
+
+/**
+ * Published by services whenever a write may change what the public feeds return.
+ */
+public record PublicFeedChangedEvent(PublicFeedCache.Feed feed) {
+}
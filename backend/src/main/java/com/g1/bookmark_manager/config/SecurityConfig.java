@@ -3,6 +3,8 @@ package com.g1.bookmark_manager.config;
 import com.g1.bookmark_manager.security.JwtAuthenticationFilter;
 import com.g1.bookmark_manager.service.UserDetailsServiceImpl;
 import com.g1.bookmark_manager.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -55,8 +57,10 @@ public class SecurityConfig {
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter(
             JwtUtil jwtUtil,
-            @Lazy UserDetailsServiceImpl userDetailsService) {
-        return new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+            @Lazy UserDetailsServiceImpl userDetailsService,
+            @Value("${app.security.jwt.trust-role-claim:true}") boolean trustRoleClaim,
+            MeterRegistry meterRegistry) {
+        return new JwtAuthenticationFilter(jwtUtil, userDetailsService, trustRoleClaim, meterRegistry);
     }
 
     @Bean
@@ -72,6 +76,12 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                         .requestMatchers("/h2-console/**").permitAll()
+                        // Liveness and readiness probes on the application port
+                        .requestMatchers("/livez", "/readyz").permitAll()
+                        // Actuator only answers on management.server.port, which is not published: health and the
+                        // Prometheus scrape need no token there, everything else an admin token
+                        .requestMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                         // Admin only endpoints
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
@@ -80,6 +90,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/bookmarks/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/api/collections/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/api/user/**").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("/api/export/**").hasAnyRole("USER", "ADMIN")
+                        // Sub-requests of a batch are not checked again, they are limited to the user endpoints
+                        .requestMatchers("/api/batch/**").hasAnyRole("USER", "ADMIN")
 
                         // All other requests need authentication
                         .anyRequest().authenticated()
@@ -101,7 +114,7 @@ public class SecurityConfig {
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "ETag", "X-Request-Id"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
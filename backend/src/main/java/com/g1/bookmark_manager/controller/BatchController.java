@@ -0,0 +1,37 @@
+package com.g1.bookmark_manager.controller;
+
+import com.g1.bookmark_manager.batch.BatchExecutor;
+import com.g1.bookmark_manager.dto.request.BatchRequest;
+import com.g1.bookmark_manager.dto.response.BatchResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/batch")
+@Tag(name = "Batch", description = "Several API calls in one request")
+public class BatchController {
+
+    private final BatchExecutor batchExecutor;
+
+    @Autowired
+    public BatchController(BatchExecutor batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
+
+    @PostMapping
+    @Operation(summary = "Execute a batch of API requests",
+            description = "Runs the sub-requests in order against the bookmark, code block, collection, tag and sync APIs " +
+                    "and returns one status, header map and body per sub-request. With transactional=true they share one " +
+                    "transaction that is rolled back at the first failing sub-request.")
+    public ResponseEntity<BatchResponse> executeBatch(@Valid @RequestBody BatchRequest request,
+                                                      HttpServletRequest servletRequest,
+                                                      HttpServletResponse servletResponse) {
+        return ResponseEntity.ok(batchExecutor.execute(request, servletRequest, servletResponse));
+    }
+}
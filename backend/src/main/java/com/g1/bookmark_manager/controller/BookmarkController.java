@@ -1,19 +1,38 @@
 package com.g1.bookmark_manager.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.g1.bookmark_manager.dto.request.BookmarkRequest;
+import com.g1.bookmark_manager.dto.request.BulkOperationRequest;
 import com.g1.bookmark_manager.dto.response.BookmarkResponse;
+import com.g1.bookmark_manager.dto.response.BulkOperationResponse;
+import com.g1.bookmark_manager.filter.FilterCriteria;
+import com.g1.bookmark_manager.service.BookmarkImportService;
+import com.g1.bookmark_manager.service.AuthService;
 import com.g1.bookmark_manager.service.BookmarkService;
+import com.g1.bookmark_manager.service.BulkOperationService;
+import com.g1.bookmark_manager.service.UserVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -27,12 +46,48 @@ public class BookmarkController {
     @Autowired
     private BookmarkService bookmarkService;
 
+    @Autowired
+    private BookmarkImportService bookmarkImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserVersionService userVersionService;
+
+    @Autowired
+    private BulkOperationService bulkOperationService;
+
     @GetMapping
-    @Operation(summary = "Get all bookmarks for the current user")
-    public ResponseEntity<List<BookmarkResponse>> getAllBookmarks() {
+    @Operation(summary = "Get all bookmarks for the current user",
+            description = "Returns a keyset-paginated page when cursor or size is given, otherwise the full list")
+    public ResponseEntity<?> getAllBookmarks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            WebRequest webRequest) {
         String username = getCurrentUsername();
+        // Nothing changed since the client's copy: 304 without loading anything
+        if (webRequest.checkNotModified(userVersionService.etag(authService.findByUsername(username).getId()))) {
+            return null;
+        }
+        // Clients may keep the list but must revalidate it with If-None-Match
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+        if (isPaged(cursor, size)) {
+            return ok.body(bookmarkService.getAllBookmarks(username, cursor, size));
+        }
         List<BookmarkResponse> bookmarks = bookmarkService.getAllBookmarks(username);
-        return ResponseEntity.ok(bookmarks);
+        return ok.body(bookmarks);
+    }
+
+    @GetMapping("/by-ids")
+    @Operation(summary = "Get several bookmarks by ID",
+            description = "Bookmarks of the current user in the order of the ids, unknown ids are left out")
+    public ResponseEntity<List<BookmarkResponse>> getBookmarksByIds(@RequestParam List<Long> ids) {
+        String username = getCurrentUsername();
+        return ResponseEntity.ok(bookmarkService.getBookmarksByIds(ids, username));
     }
 
     @GetMapping("/{id}")
@@ -51,6 +106,39 @@ public class BookmarkController {
         return ResponseEntity.status(HttpStatus.CREATED).body(bookmark);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Bulk update or delete bookmarks",
+            description = "Moves, tags, favorites, publishes or deletes the listed bookmarks or all bookmarks matching " +
+                    "the filter with set-based statements in one transaction. Returns the matched and affected counts.")
+    public ResponseEntity<BulkOperationResponse> bulkBookmarks(@Valid @RequestBody BulkOperationRequest request) {
+        String username = getCurrentUsername();
+        return ResponseEntity.ok(bulkOperationService.bulkBookmarks(authService.findByUsername(username), request));
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.TEXT_HTML_VALUE},
+            produces = "application/x-ndjson")
+    @Operation(summary = "Bulk import bookmarks",
+            description = "Accepts one BookmarkRequest JSON object per line (application/x-ndjson) or a Netscape bookmark " +
+                    "export (text/html). Streams back progress after every batch, one line per rejected row and a final summary.")
+    public ResponseEntity<StreamingResponseBody> importBookmarks(HttpServletRequest request) throws IOException {
+        String username = getCurrentUsername();
+        BookmarkImportService.Format format = BookmarkImportService.formatOf(request.getContentType());
+        InputStream body = request.getInputStream();
+
+        StreamingResponseBody stream = out -> bookmarkImportService.importBookmarks(username, body, format, event -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(stream);
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update an existing bookmark")
     public ResponseEntity<BookmarkResponse> updateBookmark(@PathVariable Long id, @Valid @RequestBody BookmarkRequest request) {
@@ -77,16 +165,27 @@ public class BookmarkController {
 
     @GetMapping("/favorites")
     @Operation(summary = "Get favorite bookmarks")
-    public ResponseEntity<List<BookmarkResponse>> getFavoriteBookmarks() {
+    public ResponseEntity<?> getFavoriteBookmarks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         String username = getCurrentUsername();
+        if (isPaged(cursor, size)) {
+            return ResponseEntity.ok(bookmarkService.getFavoriteBookmarks(username, cursor, size));
+        }
         List<BookmarkResponse> bookmarks = bookmarkService.getFavoriteBookmarks(username);
         return ResponseEntity.ok(bookmarks);
     }
 
     @GetMapping("/collection/{collection}")
     @Operation(summary = "Get bookmarks by collection")
-    public ResponseEntity<List<BookmarkResponse>> getBookmarksByCollection(@PathVariable String collection) {
+    public ResponseEntity<?> getBookmarksByCollection(
+            @PathVariable String collection,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         String username = getCurrentUsername();
+        if (isPaged(cursor, size)) {
+            return ResponseEntity.ok(bookmarkService.getBookmarksByCollection(collection, username, cursor, size));
+        }
         List<BookmarkResponse> bookmarks = bookmarkService.getBookmarksByCollection(collection, username);
         return ResponseEntity.ok(bookmarks);
     }
@@ -100,24 +199,42 @@ public class BookmarkController {
     }
 
     @GetMapping("/public/all")
-    @Operation(summary = "Get all public bookmarks")
-    public ResponseEntity<List<BookmarkResponse>> getAllPublicBookmarks() {
+    @Operation(summary = "Get all public bookmarks",
+            description = "Returns a keyset-paginated page when cursor or size is given, otherwise the full list")
+    public ResponseEntity<?> getAllPublicBookmarks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        if (isPaged(cursor, size)) {
+            return ResponseEntity.ok(bookmarkService.getAllPublicBookmarks(cursor, size));
+        }
         List<BookmarkResponse> bookmarks = bookmarkService.getAllPublicBookmarks();
         return ResponseEntity.ok(bookmarks);
     }
 
     @GetMapping("/tag/{tag}")
     @Operation(summary = "Get bookmarks by tag")
-    public ResponseEntity<List<BookmarkResponse>> getBookmarksByTag(@PathVariable String tag) {
+    public ResponseEntity<?> getBookmarksByTag(
+            @PathVariable String tag,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         String username = getCurrentUsername();
+        if (isPaged(cursor, size)) {
+            return ResponseEntity.ok(bookmarkService.getBookmarksByTag(tag, username, cursor, size));
+        }
         List<BookmarkResponse> bookmarks = bookmarkService.getBookmarksByTag(tag, username);
         return ResponseEntity.ok(bookmarks);
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search bookmarks")
-    public ResponseEntity<List<BookmarkResponse>> searchBookmarks(@RequestParam String keyword) {
+    @Operation(summary = "Search bookmarks", description = "Results are ranked by relevance")
+    public ResponseEntity<?> searchBookmarks(
+            @RequestParam String keyword,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         String username = getCurrentUsername();
+        if (isPaged(cursor, size)) {
+            return ResponseEntity.ok(bookmarkService.searchBookmarks(keyword, username, cursor, size));
+        }
         List<BookmarkResponse> bookmarks = bookmarkService.searchBookmarks(keyword, username);
         return ResponseEntity.ok(bookmarks);
     }
@@ -130,24 +247,45 @@ public class BookmarkController {
         return ResponseEntity.ok(collections);
     }
 
+    // Old clients that send neither cursor nor size keep getting the plain list
+    private boolean isPaged(String cursor, Integer size) {
+        return cursor != null || size != null;
+    }
+
     private String getCurrentUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return authentication.getName();
     }
 
     @GetMapping("/filterResult")
-    // (String title, String url, Boolean isFavorite, String tag, String sortBy)
-    @Operation(summary = "Filter bookmarks by various criteria")
-    public ResponseEntity<List<BookmarkResponse>> filterBookmarks(
+    @Operation(summary = "Filter bookmarks by various criteria",
+            description = "All given conditions must match. Sortable by createdAt, updatedAt or title. Returns a keyset-paginated " +
+                    "page with a (capped) total on the first page when cursor or size is given, otherwise the full list")
+    public ResponseEntity<?> filterBookmarks(
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String url,
             @RequestParam(required = false) Boolean isFavorite,
+            @RequestParam(required = false) Boolean isPublic,
             @RequestParam(required = false) String tag,
-            @RequestParam(required = false) String sortBy
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(required = false) String collection,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
     ) {
-
         String username = getCurrentUsername();
-        List<BookmarkResponse> bookmarks = bookmarkService.filterBookmarks(title, url, isFavorite, tag, sortBy, username);
+        List<String> allTags = new ArrayList<>(tags != null ? tags : List.of());
+        if (tag != null) {
+            allTags.add(tag);
+        }
+        FilterCriteria criteria = new FilterCriteria(title, url, null, allTags, collection, isFavorite, isPublic,
+                createdFrom, createdTo);
+        if (isPaged(cursor, size)) {
+            return ResponseEntity.ok(bookmarkService.filterBookmarks(criteria, sortBy, username, cursor, size));
+        }
+        List<BookmarkResponse> bookmarks = bookmarkService.filterBookmarks(criteria, sortBy, username);
         return ResponseEntity.ok(bookmarks);
     }
 }
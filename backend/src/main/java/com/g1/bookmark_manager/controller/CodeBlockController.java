@@ -1,18 +1,30 @@
 package com.g1.bookmark_manager.controller;
 
+import com.g1.bookmark_manager.dto.request.BulkOperationRequest;
 import com.g1.bookmark_manager.dto.request.CodeBlockRequest;
+import com.g1.bookmark_manager.dto.response.BulkOperationResponse;
 import com.g1.bookmark_manager.dto.response.CodeBlockResponse;
+import com.g1.bookmark_manager.dto.response.FilterPageResponse;
 import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.exception.BadRequestException;
+import com.g1.bookmark_manager.filter.FilterCriteria;
+import com.g1.bookmark_manager.service.AuthService;
+import com.g1.bookmark_manager.service.BulkOperationService;
 import com.g1.bookmark_manager.service.CodeBlockService;
+import com.g1.bookmark_manager.service.UserVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -20,52 +32,107 @@ import java.util.List;
 @Tag(name = "CodeBlock Management", description = "APIs for managing code blocks")
 @CrossOrigin(origins = "http://localhost:3000")
 public class CodeBlockController {
+
+    private static final String VIEW_DESCRIPTION = "view=summary returns the entries without the code body, " +
+            "with a preview of the first characters and the size in bytes. GET /api/codeblocks/{id} has the full code.";
     
     @Autowired
     private CodeBlockService codeBlockService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserVersionService userVersionService;
+
+    @Autowired
+    private BulkOperationService bulkOperationService;
     
     @PostMapping
     @Operation(summary = "Create a new code block")
     public ResponseEntity<CodeBlockResponse> createCodeBlock(
             @Valid @RequestBody CodeBlockRequest request,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
         CodeBlockResponse response = codeBlockService.createCodeBlock(request, user);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
     
+    @PostMapping("/bulk")
+    @Operation(summary = "Bulk update or delete code blocks",
+            description = "Same operations as /api/bookmarks/bulk, the filter may also select by language")
+    public ResponseEntity<BulkOperationResponse> bulkCodeBlocks(
+            @Valid @RequestBody BulkOperationRequest request,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return ResponseEntity.ok(bulkOperationService.bulkCodeBlocks(user, request));
+    }
+    
     @GetMapping
-    @Operation(summary = "Get all code blocks for the authenticated user")
-    public ResponseEntity<List<CodeBlockResponse>> getAllCodeBlocks(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+    @Operation(summary = "Get all code blocks for the authenticated user",
+            description = VIEW_DESCRIPTION)
+    public ResponseEntity<?> getAllCodeBlocks(
+            @RequestParam(defaultValue = "full") String view,
+            Authentication authentication,
+            WebRequest webRequest) {
+        User user = authService.findByUsername(authentication.getName());
+        boolean summary = isSummary(view);
+        if (webRequest.checkNotModified(summary
+                ? userVersionService.etag(user.getId(), "summary")
+                : userVersionService.etag(user.getId()))) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+        if (summary) {
+            return ok.body(codeBlockService.getAllCodeBlockSummaries(user));
+        }
         List<CodeBlockResponse> codeBlocks = codeBlockService.getAllCodeBlocks(user);
-        return ResponseEntity.ok(codeBlocks);
+        return ok.body(codeBlocks);
     }
     
     @GetMapping("/collection/{collection}")
-    @Operation(summary = "Get code blocks by collection")
-    public ResponseEntity<List<CodeBlockResponse>> getCodeBlocksByCollection(
+    @Operation(summary = "Get code blocks by collection", description = VIEW_DESCRIPTION)
+    public ResponseEntity<?> getCodeBlocksByCollection(
             @PathVariable String collection,
+            @RequestParam(defaultValue = "full") String view,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
+        if (isSummary(view)) {
+            return ResponseEntity.ok(codeBlockService.getCodeBlockSummariesByCollection(user, collection));
+        }
         List<CodeBlockResponse> codeBlocks = codeBlockService.getCodeBlocksByCollection(user, collection);
         return ResponseEntity.ok(codeBlocks);
     }
     
     @GetMapping("/favorites")
-    @Operation(summary = "Get favorite code blocks")
-    public ResponseEntity<List<CodeBlockResponse>> getFavoriteCodeBlocks(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+    @Operation(summary = "Get favorite code blocks", description = VIEW_DESCRIPTION)
+    public ResponseEntity<?> getFavoriteCodeBlocks(
+            @RequestParam(defaultValue = "full") String view,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        if (isSummary(view)) {
+            return ResponseEntity.ok(codeBlockService.getFavoriteCodeBlockSummaries(user));
+        }
         List<CodeBlockResponse> codeBlocks = codeBlockService.getFavoriteCodeBlocks(user);
         return ResponseEntity.ok(codeBlocks);
     }
     
+    @GetMapping("/by-ids")
+    @Operation(summary = "Get several code blocks by ID",
+            description = "Code blocks of the current user in the order of the ids, unknown ids are left out")
+    public ResponseEntity<List<CodeBlockResponse>> getCodeBlocksByIds(
+            @RequestParam List<Long> ids,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return ResponseEntity.ok(codeBlockService.getCodeBlocksByIds(user, ids));
+    }
+    
     @GetMapping("/{id}")
     @Operation(summary = "Get code block by ID")
     public ResponseEntity<CodeBlockResponse> getCodeBlockById(
             @PathVariable Long id,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
         CodeBlockResponse codeBlock = codeBlockService.getCodeBlockById(id, user);
         return ResponseEntity.ok(codeBlock);
     }
@@ -76,7 +143,7 @@ public class CodeBlockController {
             @PathVariable Long id,
             @Valid @RequestBody CodeBlockRequest request,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
         CodeBlockResponse response = codeBlockService.updateCodeBlock(id, request, user);
         return ResponseEntity.ok(response);
     }
@@ -86,7 +153,7 @@ public class CodeBlockController {
     public ResponseEntity<Void> deleteCodeBlock(
             @PathVariable Long id,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
         codeBlockService.deleteCodeBlock(id, user);
         return ResponseEntity.noContent().build();
     }
@@ -96,18 +163,32 @@ public class CodeBlockController {
     public ResponseEntity<CodeBlockResponse> toggleFavorite(
             @PathVariable Long id,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
         CodeBlockResponse response = codeBlockService.toggleFavorite(id, user);
         return ResponseEntity.ok(response);
     }
     
     @GetMapping("/search")
-    @Operation(summary = "Search code blocks")
-    public ResponseEntity<List<CodeBlockResponse>> searchCodeBlocks(
+    @Operation(summary = "Search code blocks",
+            description = "Results are ranked by relevance. Returns a paginated page when cursor or size is given. " +
+                    VIEW_DESCRIPTION)
+    public ResponseEntity<?> searchCodeBlocks(
             @RequestParam String q,
             @RequestParam(required = false) String collection,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "full") String view,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
+        if (isSummary(view)) {
+            if (cursor != null || size != null) {
+                return ResponseEntity.ok(codeBlockService.searchCodeBlockSummaries(user, q, collection, cursor, size));
+            }
+            return ResponseEntity.ok(codeBlockService.searchCodeBlockSummaries(user, q, collection));
+        }
+        if (cursor != null || size != null) {
+            return ResponseEntity.ok(codeBlockService.searchCodeBlocks(user, q, collection, cursor, size));
+        }
         List<CodeBlockResponse> codeBlocks;
         
         if (collection != null && !collection.isEmpty()) {
@@ -119,12 +200,39 @@ public class CodeBlockController {
         return ResponseEntity.ok(codeBlocks);
     }
     
+    @GetMapping("/filter")
+    @Operation(summary = "Filter code blocks by various criteria",
+            description = "All given conditions must match. Sortable by createdAt, updatedAt or title, keyset-paginated, " +
+                    "the first page carries a (capped) total")
+    public ResponseEntity<FilterPageResponse<CodeBlockResponse>> filterCodeBlocks(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String language,
+            @RequestParam(required = false) Boolean isFavorite,
+            @RequestParam(required = false) Boolean isPublic,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(required = false) String collection,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        FilterCriteria criteria = new FilterCriteria(title, null, language, tags, collection, isFavorite, isPublic,
+                createdFrom, createdTo);
+        return ResponseEntity.ok(codeBlockService.filterCodeBlocks(user, criteria, sortBy, cursor, size));
+    }
+    
     @GetMapping("/language/{language}")
-    @Operation(summary = "Get code blocks by programming language")
-    public ResponseEntity<List<CodeBlockResponse>> getCodeBlocksByLanguage(
+    @Operation(summary = "Get code blocks by programming language", description = VIEW_DESCRIPTION)
+    public ResponseEntity<?> getCodeBlocksByLanguage(
             @PathVariable String language,
+            @RequestParam(defaultValue = "full") String view,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
+        if (isSummary(view)) {
+            return ResponseEntity.ok(codeBlockService.getCodeBlockSummariesByLanguage(user, language));
+        }
         List<CodeBlockResponse> codeBlocks = codeBlockService.getCodeBlocksByLanguage(user, language);
         return ResponseEntity.ok(codeBlocks);
     }
@@ -132,7 +240,7 @@ public class CodeBlockController {
     @GetMapping("/collections")
     @Operation(summary = "Get distinct collections used by user")
     public ResponseEntity<List<String>> getDistinctCollections(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
         List<String> collections = codeBlockService.getDistinctCollections(user);
         return ResponseEntity.ok(collections);
     }
@@ -142,9 +250,18 @@ public class CodeBlockController {
     public ResponseEntity<Long> getCodeBlockCountByCollection(
             @PathVariable String collection,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
         Long count = codeBlockService.getCodeBlockCountByCollection(user, collection);
         return ResponseEntity.ok(count);
     }
 
+    private boolean isSummary(String view) {
+        if ("summary".equalsIgnoreCase(view)) {
+            return true;
+        }
+        if ("full".equalsIgnoreCase(view)) {
+            return false;
+        }
+        throw new BadRequestException("Unsupported view: " + view + ", use full or summary");
+    }
 }
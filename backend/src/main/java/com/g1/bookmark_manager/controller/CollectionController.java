@@ -1,18 +1,25 @@
 package com.g1.bookmark_manager.controller;
 
 import com.g1.bookmark_manager.dto.request.CollectionRequest;
+import com.g1.bookmark_manager.dto.response.CollectionDeletionResponse;
 import com.g1.bookmark_manager.dto.response.CollectionResponse;
+import com.g1.bookmark_manager.dto.response.CursorPageResponse;
 import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.service.AuthService;
 import com.g1.bookmark_manager.service.CollectionService;
+import com.g1.bookmark_manager.service.UserVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -21,10 +28,15 @@ import java.util.List;
 public class CollectionController {
 
     private final CollectionService collectionService;
+    private final AuthService authService;
+    private final UserVersionService userVersionService;
 
     @Autowired
-    public CollectionController(CollectionService collectionService) {
+    public CollectionController(CollectionService collectionService, AuthService authService,
+                                UserVersionService userVersionService) {
         this.collectionService = collectionService;
+        this.authService = authService;
+        this.userVersionService = userVersionService;
     }
 
     @PostMapping
@@ -32,32 +44,86 @@ public class CollectionController {
     public ResponseEntity<CollectionResponse> createCollection(
             @Valid @RequestBody CollectionRequest request,
             Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+        User user = authService.findByUsername(authentication.getName());
         CollectionResponse response = collectionService.createCollection(user.getId(), request);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
     @GetMapping
     @Operation(summary = "Get all collections for the current user")
-    public ResponseEntity<List<CollectionResponse>> getAllCollections(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
+    public ResponseEntity<List<CollectionResponse>> getAllCollections(Authentication authentication, WebRequest webRequest) {
+        User user = authService.findByUsername(authentication.getName());
+        if (webRequest.checkNotModified(userVersionService.etag(user.getId()))) {
+            return null;
+        }
         List<CollectionResponse> collections = collectionService.getAllCollections(user.getId());
-        return ResponseEntity.ok(collections);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(collections);
+    }
+
+    @GetMapping("/summary")
+    @Operation(summary = "Get all collections with bookmark and code block counts")
+    public ResponseEntity<List<CollectionResponse>> getCollectionSummaries(Authentication authentication, WebRequest webRequest) {
+        User user = authService.findByUsername(authentication.getName());
+        if (webRequest.checkNotModified(userVersionService.etag(user.getId(), "summary"))) {
+            return null;
+        }
+        List<CollectionResponse> collections = collectionService.getCollectionSummaries(user.getId());
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(collections);
+    }
+
+    @GetMapping("/public")
+    @Operation(summary = "Get public collections of all users",
+            description = "Keyset-paginated, pass nextCursor back as cursor for the following page")
+    public ResponseEntity<CursorPageResponse<CollectionResponse>> getPublicCollections(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(collectionService.getPublicCollections(cursor, size));
+    }
+
+    @GetMapping("/by-ids")
+    @Operation(summary = "Get several collections by ID",
+            description = "Collections of the current user in the order of the ids, unknown ids are left out")
+    public ResponseEntity<List<CollectionResponse>> getCollectionsByIds(
+            @RequestParam List<Long> ids,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return ResponseEntity.ok(collectionService.getCollectionsByIds(user.getId(), ids));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get a collection by ID")
+    public ResponseEntity<CollectionResponse> getCollectionById(@PathVariable Long id, Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return ResponseEntity.ok(collectionService.getCollectionById(id, user.getId()));
     }
 
     @PutMapping("/{id}")
     @Operation(summary = "Update a collection")
     public ResponseEntity<CollectionResponse> updateCollection(
             @PathVariable Long id,
-            @Valid @RequestBody CollectionRequest request) {
-        CollectionResponse response = collectionService.updateCollection(id, request);
+            @Valid @RequestBody CollectionRequest request,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        CollectionResponse response = collectionService.updateCollection(id, user.getId(), request);
         return ResponseEntity.ok(response);
     }
 
     @DeleteMapping("/{id}")
-    @Operation(summary = "Delete a collection")
-    public ResponseEntity<Void> deleteCollection(@PathVariable Long id) {
-        collectionService.deleteCollection(id);
-        return ResponseEntity.noContent().build();
+    @Operation(summary = "Delete a collection",
+            description = "The collection disappears at once, its bookmarks and code blocks are removed in the background. " +
+                    "Answers 202 with the progress, which can be followed at the Location URL")
+    public ResponseEntity<CollectionDeletionResponse> deleteCollection(@PathVariable Long id, Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        CollectionDeletionResponse deletion = collectionService.deleteCollection(id, user.getId());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/collections/" + id + "/deletion"))
+                .body(deletion);
+    }
+
+    @GetMapping("/{id}/deletion")
+    @Operation(summary = "Progress of a collection delete")
+    public ResponseEntity<CollectionDeletionResponse> getDeletionProgress(@PathVariable Long id, Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return ResponseEntity.ok(collectionService.getDeletionProgress(id, user.getId()));
     }
 }
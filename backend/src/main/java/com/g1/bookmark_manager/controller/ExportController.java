@@ -0,0 +1,80 @@
+package com.g1.bookmark_manager.controller;
+
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.exception.BadRequestException;
+import com.g1.bookmark_manager.service.AuthService;
+import com.g1.bookmark_manager.service.LibraryExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/export")
+@Tag(name = "Export", description = "Streaming export of the user's library")
+@SecurityRequirement(name = "bearerAuth")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final LibraryExportService exportService;
+    private final AuthService authService;
+
+    @Autowired
+    public ExportController(LibraryExportService exportService, AuthService authService) {
+        this.exportService = exportService;
+        this.authService = authService;
+    }
+
+    @GetMapping("/bookmarks")
+    @Operation(summary = "Export bookmarks",
+            description = "format=ndjson (default) writes one bookmark per line, format=html a Netscape bookmark file " +
+                    "with one folder per collection. Both can be imported again through POST /api/bookmarks/import.")
+    public ResponseEntity<StreamingResponseBody> exportBookmarks(
+            @RequestParam(defaultValue = "ndjson") String format,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return switch (format.toLowerCase(Locale.ROOT)) {
+            case "ndjson" -> attachment("bookmarks", "ndjson", NDJSON,
+                    out -> exportService.writeBookmarksNdjson(user, out));
+            case "html" -> attachment("bookmarks", "html", MediaType.TEXT_HTML,
+                    out -> exportService.writeBookmarksHtml(user, out));
+            default -> throw new BadRequestException("Unsupported export format: " + format + ", use ndjson or html");
+        };
+    }
+
+    @GetMapping("/codeblocks")
+    @Operation(summary = "Export code blocks", description = "One code block per line (application/x-ndjson)")
+    public ResponseEntity<StreamingResponseBody> exportCodeBlocks(Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return attachment("codeblocks", "ndjson", NDJSON, out -> exportService.writeCodeBlocksNdjson(user, out));
+    }
+
+    @GetMapping("/archive")
+    @Operation(summary = "Export the whole library as a zip archive",
+            description = "Contains bookmarks.ndjson, bookmarks.html and codeblocks.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportArchive(Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return attachment("library", "zip", MediaType.parseMediaType("application/zip"),
+                out -> exportService.writeArchive(user, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> attachment(String name, String extension, MediaType type,
+                                                             StreamingResponseBody body) {
+        String filename = name + "-" + LocalDate.now() + "." + extension;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .contentType(type)
+                .body(body);
+    }
+}
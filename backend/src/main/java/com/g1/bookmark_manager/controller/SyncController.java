@@ -0,0 +1,39 @@
+package com.g1.bookmark_manager.controller;
+
+import com.g1.bookmark_manager.dto.response.SyncResponse;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.service.AuthService;
+import com.g1.bookmark_manager.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/sync")
+@Tag(name = "Sync", description = "Incremental sync for offline clients")
+public class SyncController {
+
+    private final SyncService syncService;
+    private final AuthService authService;
+
+    @Autowired
+    public SyncController(SyncService syncService, AuthService authService) {
+        this.syncService = syncService;
+        this.authService = authService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Changes since the last sync",
+            description = "Bookmarks, code blocks and collections created or updated and the ids of those deleted since " +
+                    "the token of the previous response. Without a token, or with one older than the tombstone retention, " +
+                    "everything is returned and fullResync is true.")
+    public ResponseEntity<SyncResponse> sync(
+            @RequestParam(required = false) String since,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        return ResponseEntity.ok(syncService.sync(user, since));
+    }
+}
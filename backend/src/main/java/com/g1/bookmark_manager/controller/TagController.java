@@ -0,0 +1,45 @@
+package com.g1.bookmark_manager.controller;
+
+import com.g1.bookmark_manager.dto.response.TagResponse;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.service.AuthService;
+import com.g1.bookmark_manager.service.TagService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/tags")
+@Tag(name = "Tags", description = "Tag suggestions for the current user")
+public class TagController {
+
+    private final TagService tagService;
+    private final AuthService authService;
+
+    @Value("${app.tags.suggest.max-limit:100}")
+    private int maxLimit;
+
+    @Autowired
+    public TagController(TagService tagService, AuthService authService) {
+        this.tagService = tagService;
+        this.authService = authService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Suggest tags",
+            description = "Most used tags of the current user starting with the prefix, all tags when no prefix is given")
+    public ResponseEntity<List<TagResponse>> suggestTags(
+            @RequestParam(required = false, defaultValue = "") String prefix,
+            @RequestParam(required = false, defaultValue = "20") int limit,
+            Authentication authentication) {
+        User user = authService.findByUsername(authentication.getName());
+        int boundedLimit = Math.max(1, Math.min(limit, maxLimit));
+        return ResponseEntity.ok(tagService.suggest(user.getId(), prefix, boundedLimit));
+    }
+}
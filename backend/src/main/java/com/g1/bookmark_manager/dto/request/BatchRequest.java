@@ -0,0 +1,38 @@
+package com.g1.bookmark_manager.dto.request;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BatchRequest {
+
+    // Run all sub-requests in one transaction, rolled back and stopped at the first failing sub-request
+    private boolean transactional;
+
+    @NotEmpty(message = "At least one request is required")
+    @Valid
+    private List<Operation> requests;
+
+    @Data
+    public static class Operation {
+        // Optional client label echoed in the result
+        private String id;
+
+        @NotBlank(message = "Method is required")
+        private String method;
+
+        // Full API path with query string, e.g. /api/bookmarks/by-ids?ids=1,2,3
+        @NotBlank(message = "Path is required")
+        private String path;
+
+        private Map<String, String> headers;
+
+        private JsonNode body;
+    }
+}
@@ -0,0 +1,45 @@
+package com.g1.bookmark_manager.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkOperationRequest {
+
+    public enum Action {
+        MOVE,
+        ADD_TAGS,
+        REMOVE_TAGS,
+        FAVORITE,
+        UNFAVORITE,
+        PUBLISH,
+        UNPUBLISH,
+        DELETE
+    }
+
+    @NotNull(message = "Action is required")
+    private Action action;
+
+    // Targets are either the listed ids or every row matching the filter
+    private List<Long> ids;
+
+    private Filter filter;
+
+    // Target of MOVE, blank removes the rows from their collection
+    private String collection;
+
+    // Tags of ADD_TAGS and REMOVE_TAGS
+    private List<String> tags;
+
+    @Data
+    public static class Filter {
+        private String collection;
+        private String tag;
+        private Boolean isFavorite;
+        private Boolean isPublic;
+        // Code blocks only
+        private String language;
+    }
+}
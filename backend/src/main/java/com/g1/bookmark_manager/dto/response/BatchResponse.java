@@ -0,0 +1,27 @@
+package com.g1.bookmark_manager.dto.response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResponse {
+    // One result per sub-request, in request order
+    private List<Result> responses;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Result {
+        private String id;
+        private int status;
+        private Map<String, String> headers;
+        private JsonNode body;
+    }
+}
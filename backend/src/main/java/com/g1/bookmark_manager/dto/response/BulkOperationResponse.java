@@ -0,0 +1,17 @@
+package com.g1.bookmark_manager.dto.response;
+
+import com.g1.bookmark_manager.dto.request.BulkOperationRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkOperationResponse {
+    private BulkOperationRequest.Action action;
+    // Owned rows selected by the ids or the filter
+    private int matched;
+    // Rows changed, for tag operations the tag rows added or removed
+    private int affected;
+}
@@ -0,0 +1,25 @@
+package com.g1.bookmark_manager.dto.response;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// List entry without the code body, the full code block comes from GET /api/codeblocks/{id}
+@Data
+public class CodeBlockSummaryResponse {
+    private Long id;
+    private String title;
+    private String language;
+    private String description;
+    // Start of the code, at most CodeBlockRepository.PREVIEW_LENGTH characters
+    private String preview;
+    private boolean truncated;
+    private Long sizeBytes;
+    private List<String> tags;
+    private String collection;
+    private Boolean isPublic;
+    private Boolean isFavorite;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,22 @@
+package com.g1.bookmark_manager.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CollectionDeletionResponse {
+
+    public enum Status {
+        PURGING,
+        DONE
+    }
+
+    private Long collectionId;
+    private Status status;
+    // Bookmarks and code blocks of the collection when it was deleted, and how many of them are still there
+    private long total;
+    private long remaining;
+}
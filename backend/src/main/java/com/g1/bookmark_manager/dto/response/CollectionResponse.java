@@ -1,6 +1,7 @@
 package com.g1.bookmark_manager.dto.response;
 
 import com.g1.bookmark_manager.entity.Collection;
+import com.g1.bookmark_manager.repository.CollectionRepository;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,6 +20,7 @@ public class CollectionResponse {
     private Boolean isDefault;
     private Integer sortOrder;
     private int count;
+    private int codeBlockCount;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
@@ -31,7 +33,8 @@ public class CollectionResponse {
         this.isPublic = collection.getIsPublic();
         this.isDefault = collection.getIsDefault();
         this.sortOrder = collection.getSortOrder();
-        this.count = collection.getBookmarkCount();
+        this.count = collection.getBookmarkCount() != null ? collection.getBookmarkCount() : 0;
+        this.codeBlockCount = collection.getCodeBlockCount() != null ? collection.getCodeBlockCount() : 0;
         this.createdAt = collection.getCreatedAt();
         this.updatedAt = collection.getUpdatedAt();
     }
@@ -39,4 +42,20 @@ public class CollectionResponse {
     public static CollectionResponse fromEntity(Collection collection) {
         return new CollectionResponse(collection);
     }
+
+    public static CollectionResponse fromCountView(CollectionRepository.CollectionCountView view) {
+        return new CollectionResponse(
+                view.getId(),
+                view.getName(),
+                view.getIcon(),
+                view.getDescription(),
+                view.getIsPublic(),
+                view.getIsDefault(),
+                view.getSortOrder(),
+                view.getBookmarkCount().intValue(),
+                view.getCodeBlockCount().intValue(),
+                view.getCreatedAt(),
+                view.getUpdatedAt()
+        );
+    }
 }
@@ -0,0 +1,18 @@
+package com.g1.bookmark_manager.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> items;
+    // Opaque cursor to pass back as ?cursor=... for the next page, null on the last page
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+}
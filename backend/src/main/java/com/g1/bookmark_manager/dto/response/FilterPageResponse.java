@@ -0,0 +1,21 @@
+package com.g1.bookmark_manager.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FilterPageResponse<T> {
+    private List<T> items;
+    // Opaque cursor to pass back as ?cursor=... with the same filter for the next page, null on the last page
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+    // Number of matches, only returned with the first page. When totalExact is false there are more than total
+    private Long total;
+    private boolean totalExact;
+}
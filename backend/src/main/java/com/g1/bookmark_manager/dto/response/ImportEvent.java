@@ -0,0 +1,35 @@
+package com.g1.bookmark_manager.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of the NDJSON stream returned by the bulk import endpoint.
+ * type is "error" for a rejected row, "progress" after every committed batch and "summary" at the end.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportEvent {
+    private String type;
+    private Long line;
+    private String message;
+    private Long processed;
+    private Long imported;
+    private Long failed;
+
+    public static ImportEvent error(Long line, String message) {
+        return new ImportEvent("error", line, message, null, null, null);
+    }
+
+    public static ImportEvent progress(long processed, long imported, long failed) {
+        return new ImportEvent("progress", null, null, processed, imported, failed);
+    }
+
+    public static ImportEvent summary(long processed, long imported, long failed) {
+        return new ImportEvent("summary", null, null, processed, imported, failed);
+    }
+}
@@ -0,0 +1,23 @@
+package com.g1.bookmark_manager.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncResponse {
+    // Pass back as ?since=... on the next sync
+    private String token;
+    // True when the client must replace everything it has: first sync or a token older than the tombstone retention
+    private boolean fullResync;
+    private List<BookmarkResponse> bookmarks;
+    private List<CodeBlockResponse> codeBlocks;
+    private List<CollectionResponse> collections;
+    private List<Long> deletedBookmarkIds;
+    private List<Long> deletedCodeBlockIds;
+    private List<Long> deletedCollectionIds;
+}
@@ -0,0 +1,14 @@
+package com.g1.bookmark_manager.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TagResponse {
+    private String name;
+    private int bookmarkCount;
+    private int codeBlockCount;
+}
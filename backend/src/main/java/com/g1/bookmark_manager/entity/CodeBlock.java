@@ -1,15 +1,27 @@
 package com.g1.bookmark_manager.entity;
 
+import com.g1.bookmark_manager.search.SearchIndexListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "code_blocks")
+@EntityListeners(SearchIndexListener.class)
+@Table(name = "code_blocks", indexes = {
+        @Index(name = "idx_code_blocks_user_updated", columnList = "user_id, updated_at"),
+        @Index(name = "idx_code_blocks_user_created", columnList = "user_id, created_at DESC, id DESC"),
+        @Index(name = "idx_code_blocks_user_favorite_created", columnList = "user_id, is_favorite, created_at DESC, id DESC"),
+        @Index(name = "idx_code_blocks_user_collection_created", columnList = "user_id, collection, created_at DESC, id DESC"),
+        @Index(name = "idx_code_blocks_user_language_created", columnList = "user_id, language, created_at DESC, id DESC"),
+        @Index(name = "idx_code_blocks_user_title", columnList = "user_id, title, id"),
+        @Index(name = "idx_code_blocks_collection", columnList = "collection_id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -31,13 +43,18 @@ public class CodeBlock {
     private String description;
     
     @ElementCollection
-    @CollectionTable(name = "code_block_tags", joinColumns = @JoinColumn(name = "code_block_id"))
+    @CollectionTable(name = "code_block_tags", joinColumns = @JoinColumn(name = "code_block_id"), indexes = {
+            @Index(name = "idx_code_block_tags_code_block", columnList = "code_block_id, tag"),
+            @Index(name = "idx_code_block_tags_tag", columnList = "tag, code_block_id")
+    })
     @Column(name = "tag")
     private List<String> tags;
     
     @Column(name = "collection")
     private String collection;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "collection_id")
     private Collection collectionEntity;
@@ -54,6 +71,8 @@ public class CodeBlock {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
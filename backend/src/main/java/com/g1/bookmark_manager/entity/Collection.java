@@ -3,13 +3,23 @@ package com.g1.bookmark_manager.entity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "collections")
+@Table(name = "collections", indexes = {
+        @Index(name = "idx_collections_user_updated", columnList = "user_id, updated_at"),
+        @Index(name = "idx_collections_user_sort", columnList = "user_id, sort_order"),
+        @Index(name = "idx_collections_user_name", columnList = "user_id, name"),
+        @Index(name = "idx_collections_public_created", columnList = "is_public, created_at DESC, id DESC")
+})
+// Deleted collections stay until their bookmarks and code blocks are purged, queries never see them
+@SQLRestriction("deleted_at IS NULL")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -36,19 +46,39 @@ public class Collection {
     @Column(name = "sort_order")
     private Integer sortOrder = 0;
     
+    // Denormalized counters, only changed through CollectionRepository.adjust*Count so entity saves never overwrite them
+    @Column(name = "bookmark_count", updatable = false)
+    private Integer bookmarkCount = 0;
+    
+    @Column(name = "code_block_count", updatable = false)
+    private Integer codeBlockCount = 0;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // Held by the instance purging the children, see CollectionPurgeService
+    @Column(name = "purge_lease_until", insertable = false, updatable = false)
+    private LocalDateTime purgeLeaseUntil;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "collectionEntity", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Bookmark> bookmarks;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "collectionEntity", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<CodeBlock> codeBlocks;
     
@@ -62,14 +92,4 @@ public class Collection {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
-    
-    // Helper method to get bookmark count
-    public int getBookmarkCount() {
-        return bookmarks != null ? bookmarks.size() : 0;
-    }
-    
-    // Helper method to get code block count
-    public int getCodeBlockCount() {
-        return codeBlocks != null ? codeBlocks.size() : 0;
-    }
 }
@@ -0,0 +1,45 @@
+package com.g1.bookmark_manager.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Record of a hard delete so /api/sync can tell clients what disappeared, purged after the sync retention period
+@Entity
+@Table(name = "tombstones", indexes = {
+        @Index(name = "idx_tombstones_user_deleted", columnList = "user_id, deleted_at"),
+        @Index(name = "idx_tombstones_deleted", columnList = "deleted_at"),
+        @Index(name = "idx_tombstones_user_entity", columnList = "user_id, entity_type, entity_id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Tombstone {
+
+    public enum EntityType {
+        BOOKMARK,
+        CODE_BLOCK,
+        COLLECTION
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
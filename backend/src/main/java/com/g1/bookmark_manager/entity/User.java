@@ -3,7 +3,9 @@ package com.g1.bookmark_manager.entity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -46,7 +48,14 @@ public class User implements UserDetails {
     
     @Column(name = "is_active")
     private Boolean isActive = true;
+
+    // Bumped by bulk update on every write to the user's bookmarks, code blocks and collections, never by merge
+    @Column(name = "data_version", updatable = false)
+    private Long dataVersion = 0L;
     
+    // Associations stay out of equals, hashCode and toString so comparing an entity never loads them
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Bookmark> bookmarks;
     
@@ -0,0 +1,33 @@
+package com.g1.bookmark_manager.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// How many of a user's bookmarks and code blocks carry a tag, maintained on every write
+@Entity
+@Table(name = "user_tags", uniqueConstraints = @UniqueConstraint(name = "uk_user_tags_user_tag", columnNames = {"user_id", "tag_id"}))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserTag {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tag_id", nullable = false)
+    private Tag tag;
+
+    // Only changed through UserTagRepository updates
+    @Column(name = "bookmark_count", nullable = false, updatable = false)
+    private Integer bookmarkCount = 0;
+
+    @Column(name = "code_block_count", nullable = false, updatable = false)
+    private Integer codeBlockCount = 0;
+}
@@ -0,0 +1,20 @@
+package com.g1.bookmark_manager.filter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Conditions of a bookmark or code block filter, null or blank fields do not filter. Title and url match
+ * case-insensitively anywhere in the value, all tags must be present, created dates are the range [from, to).
+ * Url only applies to bookmarks and language only to code blocks.
+ */
+public record FilterCriteria(String title,
+                             String url,
+                             String language,
+                             List<String> tags,
+                             String collection,
+                             Boolean favorite,
+                             Boolean isPublic,
+                             LocalDateTime createdFrom,
+                             LocalDateTime createdTo) {
+}
@@ -0,0 +1,219 @@
+package com.g1.bookmark_manager.filter;
+
+import com.g1.bookmark_manager.service.TagService;
+import com.g1.bookmark_manager.util.CursorUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs bookmark and code block filters as keyset paginated JPQL queries scoped to one user.
+ * The query text only depends on which conditions are set (the filter shape), never on their values, which are
+ * always bound as parameters. The text is built once per shape and reused, so Hibernate finds the parsed query in
+ * its plan cache and SQL Server gets the same statement text and reuses its execution plan.
+ */
+@Service
+public class FilterEngine {
+
+    private enum Condition {
+        TITLE("lower(e.title) LIKE :title ESCAPE '!'"),
+        URL("lower(e.url) LIKE :url ESCAPE '!'"),
+        LANGUAGE("e.language = :language"),
+        COLLECTION("e.collection = :collection"),
+        FAVORITE("e.isFavorite = :favorite"),
+        PUBLIC("e.isPublic = :isPublic"),
+        CREATED_FROM("e.createdAt >= :createdFrom"),
+        CREATED_TO("e.createdAt < :createdTo"),
+        // Seeks the (tag, owner id) index once per tag, the entity matches when it carries every tag
+        TAGS("e.id IN (SELECT g.id FROM %s g JOIN g.tags gt WHERE g.user.id = :userId AND gt IN :tags " +
+             "GROUP BY g.id HAVING COUNT(DISTINCT gt) = :tagCount)");
+
+        private final String jpql;
+
+        Condition(String jpql) {
+            this.jpql = jpql;
+        }
+    }
+
+    private record Shape(String entity, Set<Condition> conditions, FilterSort sort, boolean after) {
+    }
+
+    private record CompiledFilter(String select, String count) {
+    }
+
+    private final EntityManager entityManager;
+    private final int countLimit;
+    // Bounded by the number of shapes: two entities, the subsets of the conditions, three orders and two directions
+    private final Map<Shape, CompiledFilter> compiled = new ConcurrentHashMap<>();
+
+    public FilterEngine(EntityManager entityManager,
+                        @Value("${app.filter.count-limit:10000}") int countLimit) {
+        this.entityManager = entityManager;
+        this.countLimit = countLimit;
+    }
+
+    // One page after the cursor. The first page also counts the matches, up to the configured limit
+    public <E> FilterPage<E> find(Class<E> entityType, Long userId, FilterCriteria criteria, FilterSort sort,
+                                  String cursor, int size) {
+        boolean after = cursor != null && !cursor.isEmpty();
+        boolean byTitle = sort.property() == FilterSort.Property.TITLE;
+        Set<Condition> conditions = conditionsOf(criteria);
+        CompiledFilter filter = compiled(new Shape(entityType.getSimpleName(), conditions, sort, after));
+
+        Query select = entityManager.createQuery(filter.select());
+        bind(select, userId, criteria, conditions);
+        if (after && byTitle) {
+            CursorUtil.TitleCursor titleCursor = CursorUtil.decodeTitle(cursor);
+            select.setParameter("afterValue", titleCursor.title());
+            select.setParameter("afterId", titleCursor.id());
+        } else if (after) {
+            CursorUtil.Cursor timeCursor = CursorUtil.decode(cursor);
+            select.setParameter("afterValue", timeCursor.createdAt());
+            select.setParameter("afterId", timeCursor.id());
+        }
+        List<?> rows = select.setMaxResults(size + 1).getResultList();
+        boolean hasNext = rows.size() > size;
+        List<E> items = new ArrayList<>(Math.min(rows.size(), size));
+        for (int i = 0; i < rows.size() && i < size; i++) {
+            items.add(entityType.cast(((Object[]) rows.get(i))[0]));
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] last = (Object[]) rows.get(size - 1);
+            nextCursor = byTitle
+                    ? CursorUtil.encodeTitle((String) last[1], (Long) last[2])
+                    : CursorUtil.encode((LocalDateTime) last[1], (Long) last[2]);
+        }
+
+        if (after) {
+            return new FilterPage<>(items, nextCursor, hasNext, null, false);
+        }
+        // A single page is its own count
+        if (!hasNext) {
+            return new FilterPage<>(items, null, false, (long) items.size(), true);
+        }
+        Query count = entityManager.createQuery(filter.count());
+        bind(count, userId, criteria, conditions);
+        count.setParameter("countLimit", countLimit + 1);
+        long total = ((Number) count.getSingleResult()).longValue();
+        return new FilterPage<>(items, nextCursor, true, Math.min(total, countLimit), total <= countLimit);
+    }
+
+    // Every match in filter order, for the unpaged /filterResult
+    public <E> List<E> findAll(Class<E> entityType, Long userId, FilterCriteria criteria, FilterSort sort) {
+        Set<Condition> conditions = conditionsOf(criteria);
+        CompiledFilter filter = compiled(new Shape(entityType.getSimpleName(), conditions, sort, false));
+        Query select = entityManager.createQuery(filter.select());
+        bind(select, userId, criteria, conditions);
+        List<E> items = new ArrayList<>();
+        for (Object row : select.getResultList()) {
+            items.add(entityType.cast(((Object[]) row)[0]));
+        }
+        return items;
+    }
+
+    private CompiledFilter compiled(Shape shape) {
+        return compiled.computeIfAbsent(shape, this::compile);
+    }
+
+    private CompiledFilter compile(Shape shape) {
+        StringBuilder where = new StringBuilder(" FROM ").append(shape.entity()).append(" e WHERE e.user.id = :userId");
+        for (Condition condition : shape.conditions()) {
+            where.append(" AND ").append(condition.jpql.formatted(shape.entity()));
+        }
+        String property = "e." + shape.sort().property().path();
+        String direction = shape.sort().descending() ? "DESC" : "ASC";
+        String comparison = shape.sort().descending() ? "<" : ">";
+
+        StringBuilder select = new StringBuilder("SELECT e, ").append(property).append(", e.id").append(where);
+        if (shape.after()) {
+            select.append(" AND (").append(property).append(' ').append(comparison).append(" :afterValue OR (")
+                    .append(property).append(" = :afterValue AND e.id ").append(comparison).append(" :afterId))");
+        }
+        String order = " ORDER BY " + property + ' ' + direction + ", e.id " + direction;
+        select.append(order);
+
+        // Stops reading matches one past the limit instead of counting all of them. The derived table is read in the
+        // order of the select, from the same index, and SQL Server only accepts OFFSET/FETCH after an ORDER BY
+        String count = "SELECT COUNT(*) FROM (SELECT e.id AS id" + where + order + " LIMIT :countLimit) m";
+        return new CompiledFilter(select.toString(), count);
+    }
+
+    private Set<Condition> conditionsOf(FilterCriteria criteria) {
+        Set<Condition> conditions = EnumSet.noneOf(Condition.class);
+        if (hasText(criteria.title())) {
+            conditions.add(Condition.TITLE);
+        }
+        if (hasText(criteria.url())) {
+            conditions.add(Condition.URL);
+        }
+        if (hasText(criteria.language())) {
+            conditions.add(Condition.LANGUAGE);
+        }
+        if (hasText(criteria.collection())) {
+            conditions.add(Condition.COLLECTION);
+        }
+        if (criteria.favorite() != null) {
+            conditions.add(Condition.FAVORITE);
+        }
+        if (criteria.isPublic() != null) {
+            conditions.add(Condition.PUBLIC);
+        }
+        if (criteria.createdFrom() != null) {
+            conditions.add(Condition.CREATED_FROM);
+        }
+        if (criteria.createdTo() != null) {
+            conditions.add(Condition.CREATED_TO);
+        }
+        List<String> tags = TagService.normalize(criteria.tags());
+        if (tags != null && !tags.isEmpty()) {
+            conditions.add(Condition.TAGS);
+        }
+        return conditions;
+    }
+
+    private void bind(Query query, Long userId, FilterCriteria criteria, Set<Condition> conditions) {
+        query.setParameter("userId", userId);
+        for (Condition condition : conditions) {
+            switch (condition) {
+                case TITLE -> query.setParameter("title", contains(criteria.title()));
+                case URL -> query.setParameter("url", contains(criteria.url()));
+                case LANGUAGE -> query.setParameter("language", criteria.language().trim());
+                case COLLECTION -> query.setParameter("collection", criteria.collection());
+                case FAVORITE -> query.setParameter("favorite", criteria.favorite());
+                case PUBLIC -> query.setParameter("isPublic", criteria.isPublic());
+                case CREATED_FROM -> query.setParameter("createdFrom", criteria.createdFrom());
+                case CREATED_TO -> query.setParameter("createdTo", criteria.createdTo());
+                case TAGS -> {
+                    List<String> tags = TagService.normalize(criteria.tags());
+                    query.setParameter("tags", tags);
+                    query.setParameter("tagCount", (long) tags.size());
+                }
+            }
+        }
+    }
+
+    // LIKE pattern matching the value anywhere, with the wildcards of the value escaped ('[' is one on SQL Server)
+    private static String contains(String value) {
+        String escaped = value.trim().toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_")
+                .replace("[", "![");
+        return "%" + escaped + "%";
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
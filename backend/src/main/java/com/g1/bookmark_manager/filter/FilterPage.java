@@ -0,0 +1,7 @@
+package com.g1.bookmark_manager.filter;
+
+import java.util.List;
+
+// One page of filtered entities. The total is only counted for the first page and is capped, see FilterEngine
+public record FilterPage<E>(List<E> items, String nextCursor, boolean hasNext, Long total, boolean totalExact) {
+}
@@ -0,0 +1,56 @@
+package com.g1.bookmark_manager.filter;
+
+import com.g1.bookmark_manager.exception.BadRequestException;
+
+/**
+ * Order of a filter result. Only orders that an index over the user's rows returns presorted are accepted, so a
+ * page is read from the index instead of sorting every match. Ties are broken by id, which also keys the cursor.
+ */
+public record FilterSort(Property property, boolean descending) {
+
+    public static final FilterSort DEFAULT = new FilterSort(Property.CREATED_AT, true);
+
+    public enum Property {
+        // idx_bookmarks_user_created, idx_code_blocks_user_created
+        CREATED_AT("createdAt"),
+        // idx_bookmarks_user_updated, idx_code_blocks_user_updated
+        UPDATED_AT("updatedAt"),
+        // idx_bookmarks_user_title, idx_code_blocks_user_title, read backwards for descending titles
+        TITLE("title");
+
+        private final String path;
+
+        Property(String path) {
+            this.path = path;
+        }
+
+        public String path() {
+            return path;
+        }
+    }
+
+    // "property[,asc|desc]" as accepted by /filterResult before, ascending when no direction is given
+    public static FilterSort parse(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return DEFAULT;
+        }
+        String[] parts = sortBy.split(",");
+        if (parts.length > 2) {
+            throw new BadRequestException("Invalid sortBy: " + sortBy);
+        }
+        Property property = null;
+        for (Property candidate : Property.values()) {
+            if (candidate.path.equals(parts[0].trim())) {
+                property = candidate;
+            }
+        }
+        if (property == null) {
+            throw new BadRequestException("Cannot sort by " + parts[0].trim() + ", use createdAt, updatedAt or title");
+        }
+        String direction = parts.length > 1 ? parts[1].trim() : "asc";
+        if (!"asc".equalsIgnoreCase(direction) && !"desc".equalsIgnoreCase(direction)) {
+            throw new BadRequestException("Invalid sort direction: " + direction);
+        }
+        return new FilterSort(property, "desc".equalsIgnoreCase(direction));
+    }
+}
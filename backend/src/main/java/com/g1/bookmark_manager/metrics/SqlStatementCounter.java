@@ -0,0 +1,32 @@
+package com.g1.bookmark_manager.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a request is measured.
+ * Installed as the session factory's statement inspector, so JPQL, criteria and native statements all pass here.
+ * Hibernate instantiates it by class name, the per-request state is therefore kept in a thread local.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count != null ? count[0] : 0;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,41 @@
+package com.g1.bookmark_manager.metrics;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+// Wraps the connection pool so every statement passes the SQL trace, the pool itself stays reachable through unwrap
+@Component
+@ConditionalOnProperty(name = "app.sql-trace.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlTraceDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final long slowThresholdMs;
+    private final boolean logValues;
+    private final List<String> redactedTables;
+
+    public SqlTraceDataSourcePostProcessor(@Value("${app.sql-trace.slow-threshold:200ms}") Duration slowThreshold,
+                                           @Value("${app.sql-trace.log-values:false}") boolean logValues,
+                                           @Value("${app.sql-trace.redacted-tables:users,mail_outbox}") List<String> redactedTables) {
+        this.slowThresholdMs = slowThreshold.toMillis();
+        this.logValues = logValues;
+        this.redactedTables = redactedTables;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(dataSource)
+                    .name(beanName)
+                    .listener(new SqlTraceListener(slowThresholdMs, logValues, redactedTables))
+                    .build();
+        }
+        return bean;
+    }
+}
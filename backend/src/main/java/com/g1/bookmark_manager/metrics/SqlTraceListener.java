@@ -0,0 +1,120 @@
+package com.g1.bookmark_manager.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Writes executed SQL to two loggers, both routed to a bounded asynchronous appender by logback-spring.xml.
+ * {@code sql.slow} gets every statement over the threshold with its bind parameters and the application frame
+ * that issued it; {@code sql.trace} gets all statements of the requests sampled by {@link RequestIdFilter}.
+ * Bind parameters are logged as type and length only, unless values are enabled, and even then statements on the
+ * redacted tables (credentials, e-mail addresses, mail bodies) keep showing types and lengths.
+ * Fast statements of unsampled requests cost one MDC lookup.
+ */
+class SqlTraceListener implements QueryExecutionListener {
+
+    private static final Logger TRACE = LoggerFactory.getLogger("sql.trace");
+    private static final Logger SLOW = LoggerFactory.getLogger("sql.slow");
+    private static final String APP_PACKAGE = "com.g1.bookmark_manager.";
+    private static final String OWN_PACKAGE = "com.g1.bookmark_manager.metrics.";
+    private static final int MAX_VALUE_LENGTH = 100;
+    // JDBC batches can carry hundreds of parameter sets, the first few are enough to reproduce the statement
+    private static final int MAX_PARAMETER_SETS = 5;
+
+    private final long slowThresholdMs;
+    private final boolean logValues;
+    // Matches statements that read or write one of the redacted tables, null when none are configured
+    private final Pattern redacted;
+
+    SqlTraceListener(long slowThresholdMs, boolean logValues, Collection<String> redactedTables) {
+        this.slowThresholdMs = slowThresholdMs;
+        this.logValues = logValues;
+        List<String> tables = redactedTables.stream().map(String::trim).filter(table -> !table.isEmpty()).toList();
+        this.redacted = tables.isEmpty() ? null : Pattern.compile(tables.stream()
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|", "\\b(?:", ")\\b")), Pattern.CASE_INSENSITIVE);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = execInfo.getElapsedTime();
+        boolean slow = elapsed >= slowThresholdMs;
+        boolean sampled = "true".equals(MDC.get(RequestIdFilter.MDC_SQL_TRACE));
+        if (!slow && !sampled) {
+            return;
+        }
+        String requestId = Objects.requireNonNullElse(MDC.get(RequestIdFilter.MDC_REQUEST_ID), "-");
+        for (QueryInfo query : queryInfoList) {
+            if (slow) {
+                SLOW.warn("[{}] {} ms{} {} params={} at {}", requestId, elapsed, execInfo.isBatch() ? " batch" : "",
+                        query.getQuery(), parameters(query), callSite());
+            } else if (TRACE.isInfoEnabled()) {
+                TRACE.info("[{}] {} ms{} {}", requestId, elapsed, execInfo.isBatch() ? " batch" : "", query.getQuery());
+            }
+        }
+    }
+
+    private String parameters(QueryInfo query) {
+        boolean values = logValues && (redacted == null || !redacted.matcher(query.getQuery()).find());
+        List<List<ParameterSetOperation>> sets = query.getParametersList();
+        String shown = sets.stream()
+                .limit(MAX_PARAMETER_SETS)
+                .map(set -> set.stream()
+                        .map(operation -> values ? format(operation.getArgs()) : describe(operation.getArgs()))
+                        .collect(Collectors.joining(", ", "[", "]")))
+                .collect(Collectors.joining(" "));
+        return sets.size() > MAX_PARAMETER_SETS ? shown + " ... " + sets.size() + " sets" : shown;
+    }
+
+    // args[0] is the parameter index or name, args[1] the value (absent for setNull)
+    private static String format(Object[] args) {
+        Object value = args.length > 1 ? args[1] : null;
+        String text = String.valueOf(value);
+        if (text.length() > MAX_VALUE_LENGTH) {
+            text = text.substring(0, MAX_VALUE_LENGTH) + "...";
+        }
+        return args[0] + "=" + text;
+    }
+
+    // Type and length instead of the value, enough to tell a wrong binding from a slow plan
+    private static String describe(Object[] args) {
+        Object value = args.length > 1 ? args[1] : null;
+        String type;
+        if (value == null) {
+            type = "null";
+        } else if (value instanceof CharSequence text) {
+            type = value.getClass().getSimpleName() + "(" + text.length() + ")";
+        } else if (value instanceof byte[] bytes) {
+            type = "byte[" + bytes.length + "]";
+        } else {
+            type = value.getClass().getSimpleName();
+        }
+        return args[0] + "=" + type;
+    }
+
+    // First application frame below the proxies, usually the service method behind the repository call
+    private static String callSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APP_PACKAGE)
+                        && !frame.getClassName().startsWith(OWN_PACKAGE)
+                        && !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .orElse("unknown"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.g1.bookmark_manager.repository;
+
+import com.g1.bookmark_manager.entity.Bookmark;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain JDBC batch writer for bulk bookmark inserts. Bypasses the persistence context,
+ * so entity listeners do not run for rows written here.
+ */
+@Repository
+public class BookmarkBatchRepository {
+
+    private static final String INSERT_BOOKMARK = "INSERT INTO bookmarks " +
+            "(id, title, url, description, collection, collection_id, is_public, is_favorite, favicon, created_at, updated_at, user_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_TAG = "INSERT INTO bookmark_tags (bookmark_id, tag) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookmarkBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Databases created before the switch to bookmarks_seq have an IDENTITY id column until the migration
+    // V2__bookmark_ids_from_sequence converts it. With DB_MIGRATE=false on such a database every bookmark insert
+    // would fail, so the application refuses to start instead
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyIdColumn() {
+        Boolean identity = jdbcTemplate.query("SELECT id FROM bookmarks WHERE 1 = 0",
+                (ResultSetExtractor<Boolean>) rs -> rs.getMetaData().isAutoIncrement(1));
+        if (Boolean.TRUE.equals(identity)) {
+            throw new IllegalStateException("bookmarks.id is still an IDENTITY column, apply the migration "
+                    + "V2__bookmark_ids_from_sequence before starting the application");
+        }
+    }
+
+    // Assigns ids to the bookmarks and writes them and their tags with two JDBC batches
+    public void insertAll(List<Bookmark> bookmarks) {
+        assignIds(bookmarks);
+
+        jdbcTemplate.batchUpdate(INSERT_BOOKMARK, bookmarks, bookmarks.size(), (ps, bookmark) -> {
+            ps.setLong(1, bookmark.getId());
+            ps.setString(2, bookmark.getTitle());
+            ps.setString(3, bookmark.getUrl());
+            ps.setString(4, bookmark.getDescription());
+            ps.setString(5, bookmark.getCollection());
+            if (bookmark.getCollectionEntity() != null) {
+                ps.setLong(6, bookmark.getCollectionEntity().getId());
+            } else {
+                ps.setNull(6, Types.BIGINT);
+            }
+            ps.setBoolean(7, Boolean.TRUE.equals(bookmark.getIsPublic()));
+            ps.setBoolean(8, Boolean.TRUE.equals(bookmark.getIsFavorite()));
+            ps.setString(9, bookmark.getFavicon());
+            ps.setTimestamp(10, Timestamp.valueOf(bookmark.getCreatedAt()));
+            ps.setTimestamp(11, Timestamp.valueOf(bookmark.getUpdatedAt()));
+            ps.setLong(12, bookmark.getUser().getId());
+        });
+
+        List<Object[]> tags = new ArrayList<>();
+        for (Bookmark bookmark : bookmarks) {
+            if (bookmark.getTags() != null) {
+                for (String tag : bookmark.getTags()) {
+                    tags.add(new Object[]{bookmark.getId(), tag});
+                }
+            }
+        }
+        if (!tags.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TAG, tags);
+        }
+    }
+
+    /*
+     * Reserves ids the same way Hibernate's pooled optimizer does: a sequence value v stands for the
+     * block (v - allocationSize, v], so ids handed out here never collide with ids assigned by JPA.
+     */
+    private void assignIds(List<Bookmark> bookmarks) {
+        long next = 0;
+        long blockEnd = -1;
+        for (Bookmark bookmark : bookmarks) {
+            if (next > blockEnd) {
+                long value = nextSequenceValue();
+                while (value < Bookmark.ID_ALLOCATION_SIZE) {
+                    value = nextSequenceValue();
+                }
+                blockEnd = value;
+                next = value - Bookmark.ID_ALLOCATION_SIZE + 1;
+            }
+            bookmark.setId(next++);
+        }
+    }
+
+    private long nextSequenceValue() {
+        return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + Bookmark.ID_SEQUENCE, Long.class);
+    }
+}
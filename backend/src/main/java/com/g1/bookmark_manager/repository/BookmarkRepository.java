@@ -2,34 +2,261 @@ package com.g1.bookmark_manager.repository;
 
 import com.g1.bookmark_manager.entity.Bookmark;
 import com.g1.bookmark_manager.entity.User;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface BookmarkRepository extends JpaRepository<Bookmark, Long>, JpaSpecificationExecutor<Bookmark> {
+public interface BookmarkRepository extends JpaRepository<Bookmark, Long> {
     List<Bookmark> findByUser(User user);
+
+    // Single row of the owner, a foreign id behaves like a missing one
+    @Query("SELECT b FROM Bookmark b WHERE b.id = :id AND b.user.id = :userId")
+    Optional<Bookmark> findOwned(@Param("id") Long id, @Param("userId") Long userId);
+    List<Bookmark> findByUserAndUpdatedAtAfterOrderByUpdatedAt(User user, LocalDateTime since);
     List<Bookmark> findByUserAndIsFavoriteTrue(User user);
     List<Bookmark> findByUserAndCollection(User user, String collection);
     List<Bookmark> findByUserAndIsPublicTrue(User user);
     List<Bookmark> findByIsPublicTrue();
-    
-    @Query("SELECT b FROM Bookmark b WHERE b.user = :user AND " +
-           "(LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(b.description) LIKE LOWER(CONCAT('%', :keyword, '%')))")
-    List<Bookmark> searchBookmarks(@Param("user") User user, @Param("keyword") String keyword);
+
+    // Public feed, owners are join fetched so the username in the response costs no extra query
+    @Query("SELECT b FROM Bookmark b JOIN FETCH b.user WHERE b.isPublic = true ORDER BY b.createdAt DESC, b.id DESC")
+    List<Bookmark> findAllPublicWithUser();
+
+    @Query("SELECT b FROM Bookmark b JOIN FETCH b.user WHERE b.isPublic = true ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<Bookmark> findPublicFeed(Pageable pageable);
+
+    @Query("SELECT b FROM Bookmark b JOIN FETCH b.user WHERE b.isPublic = true AND " +
+           "(b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<Bookmark> findPublicFeedAfterCursor(@Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @EntityGraph(attributePaths = {"tags"})
+    List<Bookmark> findByUserId(Long userId);
     
     @Query("SELECT DISTINCT b.collection FROM Bookmark b WHERE b.user = :user AND b.collection IS NOT NULL")
     List<String> findDistinctCollectionsByUser(@Param("user") User user);
     
-    @Query("SELECT b FROM Bookmark b JOIN b.tags t WHERE b.user = :user AND LOWER(t) LIKE LOWER(CONCAT('%', :tag, '%'))")
-    List<Bookmark> findByUserAndTagsContaining(@Param("user") User user, @Param("tag") String tag);
+    // Tags are stored case-folded, the names are resolved against the user's tag dictionary first
+    @Query("SELECT DISTINCT b FROM Bookmark b JOIN b.tags t WHERE b.user = :user AND t IN :tags")
+    List<Bookmark> findByUserAndTagIn(@Param("user") User user, @Param("tags") Collection<String> tags);
+
+    // Tags of a page of bookmarks in one statement instead of one lazy load per bookmark
+    @Query("SELECT b.id AS ownerId, t AS tag FROM Bookmark b JOIN b.tags t WHERE b.id IN :ids")
+    List<TagRow> findTagsByBookmarkIds(@Param("ids") Collection<Long> ids);
+
+    interface TagRow {
+        Long getOwnerId();
+        String getTag();
+    }
+
+    // Keyset pagination: the first page is ordered by (createdAt, id) DESC, following pages
+    // continue strictly after the (createdAt, id) cursor of the previous page.
+    Slice<Bookmark> findByUserOrderByCreatedAtDescIdDesc(User user, Pageable pageable);
+
+    @Query("SELECT b FROM Bookmark b WHERE b.user = :user AND " +
+           "(b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<Bookmark> findByUserAfterCursor(@Param("user") User user,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+
+    Slice<Bookmark> findByUserAndIsFavoriteTrueOrderByCreatedAtDescIdDesc(User user, Pageable pageable);
+
+    @Query("SELECT b FROM Bookmark b WHERE b.user = :user AND b.isFavorite = true AND " +
+           "(b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<Bookmark> findFavoritesAfterCursor(@Param("user") User user,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    Slice<Bookmark> findByUserAndCollectionOrderByCreatedAtDescIdDesc(User user, String collection, Pageable pageable);
+
+    @Query("SELECT b FROM Bookmark b WHERE b.user = :user AND b.collection = :collection AND " +
+           "(b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<Bookmark> findByCollectionAfterCursor(@Param("user") User user,
+                                                @Param("collection") String collection,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+
+    @Query("SELECT DISTINCT b FROM Bookmark b JOIN b.tags t WHERE b.user = :user AND t IN :tags " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<Bookmark> findByTagFirstPage(@Param("user") User user, @Param("tags") Collection<String> tags, Pageable pageable);
+
+    @Query("SELECT DISTINCT b FROM Bookmark b JOIN b.tags t WHERE b.user = :user AND t IN :tags AND " +
+           "(b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    Slice<Bookmark> findByTagAfterCursor(@Param("user") User user,
+                                         @Param("tags") Collection<String> tags,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    // Set-based bulk operations, every statement carries the ownership predicate.
+    // Explicit ids are passed in chunks, a filter is applied by the statement itself
+
+    // Bulk filter, a null parameter matches every row
+    String FILTER = "b.user.id = :userId " +
+            "AND (:collection IS NULL OR b.collection = :collection) " +
+            "AND (:tag IS NULL OR :tag MEMBER OF b.tags) " +
+            "AND (:isFavorite IS NULL OR b.isFavorite = :isFavorite) " +
+            "AND (:isPublic IS NULL OR b.isPublic = :isPublic)";
+
+    // The same filter over bookmarks x for native statements, the casts give null parameters a type on SQL Server
+    String NATIVE_FILTER = "x.user_id = :userId " +
+            "AND (CAST(:collection AS VARCHAR(255)) IS NULL OR x.collection = :collection) " +
+            "AND (CAST(:tag AS VARCHAR(255)) IS NULL OR EXISTS " +
+            "(SELECT 1 FROM bookmark_tags f WHERE f.bookmark_id = x.id AND f.tag = :tag)) " +
+            "AND (CAST(:isFavorite AS BIT) IS NULL OR x.is_favorite = :isFavorite) " +
+            "AND (CAST(:isPublic AS BIT) IS NULL OR x.is_public = :isPublic)";
+
+    // Bookmarks whose tombstones a bulk delete by filter has just written
+    String TOMBSTONED = "SELECT t.entity_id FROM tombstones t " +
+            "WHERE t.user_id = :userId AND t.deleted_at = :deletedAt AND t.entity_type = 'BOOKMARK'";
+
+    @Query("SELECT b.id FROM Bookmark b WHERE b.user.id = :userId AND b.id IN :ids")
+    List<Long> findOwnedIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT b.collectionEntity.id FROM Bookmark b WHERE b.user.id = :userId AND b.id IN :ids")
+    List<Long> findCollectionIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.collectionEntity = :collection, b.collection = :collectionName, b.updatedAt = :now " +
+           "WHERE b.user.id = :userId AND b.id IN :ids")
+    int moveAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                @Param("collection") com.g1.bookmark_manager.entity.Collection collection,
+                @Param("collectionName") String collectionName, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.collectionEntity = NULL, b.collection = NULL, b.updatedAt = :now " +
+           "WHERE b.user.id = :userId AND b.id IN :ids")
+    int clearCollectionAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.isFavorite = :value, b.updatedAt = :now WHERE b.user.id = :userId AND b.id IN :ids")
+    int setFavoriteAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                       @Param("value") boolean value, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.isPublic = :value, b.updatedAt = :now WHERE b.user.id = :userId AND b.id IN :ids")
+    int setPublicAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                     @Param("value") boolean value, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.updatedAt = :now WHERE b.user.id = :userId AND b.id IN :ids")
+    int touchAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO bookmark_tags (bookmark_id, tag) SELECT x.id, :tag FROM bookmarks x " +
+                   "WHERE x.user_id = :userId AND x.id IN (:ids) " +
+                   "AND NOT EXISTS (SELECT 1 FROM bookmark_tags t WHERE t.bookmark_id = x.id AND t.tag = :tag)",
+           nativeQuery = true)
+    int addTagToAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("tag") String tag);
+
+    @Modifying
+    @Query(value = "DELETE FROM bookmark_tags WHERE tag IN (:tags) AND bookmark_id IN " +
+                   "(SELECT x.id FROM bookmarks x WHERE x.user_id = :userId AND x.id IN (:ids))",
+           nativeQuery = true)
+    int removeTagsFromAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("tags") Collection<String> tags);
+
+    // Element collection rows are not removed by a JPQL delete, they go first
+    @Modifying
+    @Query(value = "DELETE FROM bookmark_tags WHERE bookmark_id IN " +
+                   "(SELECT x.id FROM bookmarks x WHERE x.user_id = :userId AND x.id IN (:ids))",
+           nativeQuery = true)
+    int deleteTagsOfAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Bookmark b WHERE b.user.id = :userId AND b.id IN :ids")
+    int deleteOwned(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(b) FROM Bookmark b WHERE " + FILTER)
+    long countByFilter(@Param("userId") Long userId, @Param("collection") String collection, @Param("tag") String tag,
+                       @Param("isFavorite") Boolean isFavorite, @Param("isPublic") Boolean isPublic);
+
+    @Query("SELECT DISTINCT b.collectionEntity.id FROM Bookmark b WHERE " + FILTER)
+    List<Long> findCollectionIdsByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                                         @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                                         @Param("isPublic") Boolean isPublic);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.collectionEntity = :target, b.collection = :targetName, b.updatedAt = :now WHERE " + FILTER)
+    int moveAllByFilter(@Param("userId") Long userId, @Param("collection") String collection, @Param("tag") String tag,
+                        @Param("isFavorite") Boolean isFavorite, @Param("isPublic") Boolean isPublic,
+                        @Param("target") com.g1.bookmark_manager.entity.Collection target,
+                        @Param("targetName") String targetName, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.collectionEntity = NULL, b.collection = NULL, b.updatedAt = :now WHERE " + FILTER)
+    int clearCollectionAllByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                                   @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                                   @Param("isPublic") Boolean isPublic, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.isFavorite = :value, b.updatedAt = :now WHERE " + FILTER)
+    int setFavoriteAllByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                               @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                               @Param("isPublic") Boolean isPublic, @Param("value") boolean value,
+                               @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.isPublic = :value, b.updatedAt = :now WHERE " + FILTER)
+    int setPublicAllByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                             @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                             @Param("isPublic") Boolean isPublic, @Param("value") boolean value,
+                             @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Bookmark b SET b.updatedAt = :now WHERE " + FILTER)
+    int touchAllByFilter(@Param("userId") Long userId, @Param("collection") String collection, @Param("tag") String tag,
+                         @Param("isFavorite") Boolean isFavorite, @Param("isPublic") Boolean isPublic,
+                         @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO bookmark_tags (bookmark_id, tag) SELECT x.id, :newTag FROM bookmarks x WHERE " + NATIVE_FILTER +
+                   " AND NOT EXISTS (SELECT 1 FROM bookmark_tags t WHERE t.bookmark_id = x.id AND t.tag = :newTag)",
+           nativeQuery = true)
+    int addTagToAllByFilter(@Param("userId") Long userId, @Param("collection") String collection, @Param("tag") String tag,
+                            @Param("isFavorite") Boolean isFavorite, @Param("isPublic") Boolean isPublic,
+                            @Param("newTag") String newTag);
+
+    @Modifying
+    @Query(value = "DELETE FROM bookmark_tags WHERE tag IN (:tags) AND bookmark_id IN " +
+                   "(SELECT x.id FROM bookmarks x WHERE " + NATIVE_FILTER + ")",
+           nativeQuery = true)
+    int removeTagsFromAllByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                                  @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                                  @Param("isPublic") Boolean isPublic, @Param("tags") Collection<String> tags);
+
+    // A delete by filter removes the rows it recorded tombstones for, a tag filter would no longer match once the
+    // tag rows are gone
+    @Modifying
+    @Query(value = "DELETE FROM bookmark_tags WHERE bookmark_id IN (" + TOMBSTONED + ")", nativeQuery = true)
+    int deleteTagsOfTombstoned(@Param("userId") Long userId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM bookmarks WHERE user_id = :userId AND id IN (" + TOMBSTONED + ")", nativeQuery = true)
+    int deleteTombstoned(@Param("userId") Long userId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    // Children of a deleted collection, purged a chunk at a time
+    @Query("SELECT b.id FROM Bookmark b WHERE b.collectionEntity.id = :collectionId ORDER BY b.id")
+    List<Long> findIdsByCollectionId(@Param("collectionId") Long collectionId, Pageable pageable);
 
-    List<Bookmark> findAll(Specification<Bookmark> spec, Sort sort);
+    long countByCollectionEntityId(Long collectionId);
 }
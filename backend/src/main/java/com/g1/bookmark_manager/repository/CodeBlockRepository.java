@@ -2,11 +2,16 @@ package com.g1.bookmark_manager.repository;
 
 import com.g1.bookmark_manager.entity.CodeBlock;
 import com.g1.bookmark_manager.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,30 +19,24 @@ import java.util.Optional;
 public interface CodeBlockRepository extends JpaRepository<CodeBlock, Long> {
     
     List<CodeBlock> findByUserOrderByCreatedAtDesc(User user);
+
+    List<CodeBlock> findByUserAndUpdatedAtAfterOrderByUpdatedAt(User user, LocalDateTime since);
     
     List<CodeBlock> findByUserAndCollectionOrderByCreatedAtDesc(User user, String collection);
     
     List<CodeBlock> findByUserAndIsFavoriteOrderByCreatedAtDesc(User user, Boolean isFavorite);
     
-    Optional<CodeBlock> findByIdAndUser(Long id, User user);
-    
-    @Query("SELECT c FROM CodeBlock c WHERE c.user = :user AND " +
-           "(LOWER(c.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.code) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.language) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
-           "ORDER BY c.createdAt DESC")
-    List<CodeBlock> findByUserAndSearchTerm(@Param("user") User user, @Param("searchTerm") String searchTerm);
-    
-    @Query("SELECT c FROM CodeBlock c WHERE c.user = :user AND c.collection = :collection AND " +
-           "(LOWER(c.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.code) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.language) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
-           "ORDER BY c.createdAt DESC")
-    List<CodeBlock> findByUserAndCollectionAndSearchTerm(@Param("user") User user, 
-                                                        @Param("collection") String collection, 
-                                                        @Param("searchTerm") String searchTerm);
+    // Single row of the owner, a foreign id behaves like a missing one
+    @Query("SELECT c FROM CodeBlock c WHERE c.id = :id AND c.user.id = :userId")
+    Optional<CodeBlock> findOwned(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.isFavorite = CASE WHEN c.isFavorite = true THEN false ELSE true END, " +
+           "c.updatedAt = :now WHERE c.id = :id AND c.user.id = :userId")
+    int toggleFavoriteOwned(@Param("id") Long id, @Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @EntityGraph(attributePaths = {"tags"})
+    List<CodeBlock> findByUserId(Long userId);
     
     @Query("SELECT COUNT(c) FROM CodeBlock c WHERE c.user = :user AND c.collection = :collection")
     Long countByUserAndCollection(@Param("user") User user, @Param("collection") String collection);
@@ -46,4 +45,198 @@ public interface CodeBlockRepository extends JpaRepository<CodeBlock, Long> {
     List<String> findDistinctCollectionsByUser(@Param("user") User user);
     
     List<CodeBlock> findByUserAndLanguageOrderByCreatedAtDesc(User user, String language);
+
+    @Query("SELECT c.id AS ownerId, t AS tag FROM CodeBlock c JOIN c.tags t WHERE c.id IN :ids")
+    List<BookmarkRepository.TagRow> findTagsByCodeBlockIds(@Param("ids") Collection<Long> ids);
+
+    // List views without the code body: the first PREVIEW_LENGTH characters and the size of the body are computed by
+    // the database, so the TEXT column is never transferred whole
+    int PREVIEW_LENGTH = 300;
+    String SUMMARY_SELECT = "SELECT c.id AS id, c.title AS title, c.language AS language, c.description AS description, " +
+            "substring(c.code, 1, " + PREVIEW_LENGTH + ") AS preview, octet_length(c.code) AS sizeBytes, " +
+            "c.collection AS collection, c.isPublic AS isPublic, c.isFavorite AS isFavorite, " +
+            "c.createdAt AS createdAt, c.updatedAt AS updatedAt FROM CodeBlock c ";
+
+    @Query(SUMMARY_SELECT + "WHERE c.user.id = :userId ORDER BY c.createdAt DESC, c.id DESC")
+    List<SummaryRow> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query(SUMMARY_SELECT + "WHERE c.user.id = :userId AND c.collection = :collection ORDER BY c.createdAt DESC, c.id DESC")
+    List<SummaryRow> findSummariesByUserIdAndCollection(@Param("userId") Long userId, @Param("collection") String collection);
+
+    @Query(SUMMARY_SELECT + "WHERE c.user.id = :userId AND c.isFavorite = true ORDER BY c.createdAt DESC, c.id DESC")
+    List<SummaryRow> findFavoriteSummariesByUserId(@Param("userId") Long userId);
+
+    @Query(SUMMARY_SELECT + "WHERE c.user.id = :userId AND c.language = :language ORDER BY c.createdAt DESC, c.id DESC")
+    List<SummaryRow> findSummariesByUserIdAndLanguage(@Param("userId") Long userId, @Param("language") String language);
+
+    // Unordered, callers restore the order of the ids
+    @Query(SUMMARY_SELECT + "WHERE c.user.id = :userId AND c.id IN :ids")
+    List<SummaryRow> findSummariesByIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    interface SummaryRow {
+        Long getId();
+        String getTitle();
+        String getLanguage();
+        String getDescription();
+        String getPreview();
+        Integer getSizeBytes();
+        String getCollection();
+        Boolean getIsPublic();
+        Boolean getIsFavorite();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+    }
+
+    // Bulk operations, the same statements as in BookmarkRepository
+
+    String FILTER = "c.user.id = :userId " +
+            "AND (:collection IS NULL OR c.collection = :collection) " +
+            "AND (:tag IS NULL OR :tag MEMBER OF c.tags) " +
+            "AND (:isFavorite IS NULL OR c.isFavorite = :isFavorite) " +
+            "AND (:isPublic IS NULL OR c.isPublic = :isPublic) " +
+            "AND (:language IS NULL OR c.language = :language)";
+
+    String NATIVE_FILTER = "x.user_id = :userId " +
+            "AND (CAST(:collection AS VARCHAR(255)) IS NULL OR x.collection = :collection) " +
+            "AND (CAST(:tag AS VARCHAR(255)) IS NULL OR EXISTS " +
+            "(SELECT 1 FROM code_block_tags f WHERE f.code_block_id = x.id AND f.tag = :tag)) " +
+            "AND (CAST(:isFavorite AS BIT) IS NULL OR x.is_favorite = :isFavorite) " +
+            "AND (CAST(:isPublic AS BIT) IS NULL OR x.is_public = :isPublic) " +
+            "AND (CAST(:language AS VARCHAR(50)) IS NULL OR x.language = :language)";
+
+    String TOMBSTONED = "SELECT t.entity_id FROM tombstones t " +
+            "WHERE t.user_id = :userId AND t.deleted_at = :deletedAt AND t.entity_type = 'CODE_BLOCK'";
+
+    @Query("SELECT c.id FROM CodeBlock c WHERE c.user.id = :userId AND c.id IN :ids")
+    List<Long> findOwnedIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT c.collectionEntity.id FROM CodeBlock c WHERE c.user.id = :userId AND c.id IN :ids")
+    List<Long> findCollectionIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.collectionEntity = :collection, c.collection = :collectionName, c.updatedAt = :now " +
+           "WHERE c.user.id = :userId AND c.id IN :ids")
+    int moveAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                @Param("collection") com.g1.bookmark_manager.entity.Collection collection,
+                @Param("collectionName") String collectionName, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.collectionEntity = NULL, c.collection = NULL, c.updatedAt = :now " +
+           "WHERE c.user.id = :userId AND c.id IN :ids")
+    int clearCollectionAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.isFavorite = :value, c.updatedAt = :now WHERE c.user.id = :userId AND c.id IN :ids")
+    int setFavoriteAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                       @Param("value") boolean value, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.isPublic = :value, c.updatedAt = :now WHERE c.user.id = :userId AND c.id IN :ids")
+    int setPublicAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                     @Param("value") boolean value, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.updatedAt = :now WHERE c.user.id = :userId AND c.id IN :ids")
+    int touchAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO code_block_tags (code_block_id, tag) SELECT x.id, :tag FROM code_blocks x " +
+                   "WHERE x.user_id = :userId AND x.id IN (:ids) " +
+                   "AND NOT EXISTS (SELECT 1 FROM code_block_tags t WHERE t.code_block_id = x.id AND t.tag = :tag)",
+           nativeQuery = true)
+    int addTagToAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("tag") String tag);
+
+    @Modifying
+    @Query(value = "DELETE FROM code_block_tags WHERE tag IN (:tags) AND code_block_id IN " +
+                   "(SELECT x.id FROM code_blocks x WHERE x.user_id = :userId AND x.id IN (:ids))",
+           nativeQuery = true)
+    int removeTagsFromAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("tags") Collection<String> tags);
+
+    // Element collection rows are not removed by a JPQL delete, they go first
+    @Modifying
+    @Query(value = "DELETE FROM code_block_tags WHERE code_block_id IN " +
+                   "(SELECT x.id FROM code_blocks x WHERE x.user_id = :userId AND x.id IN (:ids))",
+           nativeQuery = true)
+    int deleteTagsOfAll(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM CodeBlock c WHERE c.user.id = :userId AND c.id IN :ids")
+    int deleteOwned(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(c) FROM CodeBlock c WHERE " + FILTER)
+    long countByFilter(@Param("userId") Long userId, @Param("collection") String collection, @Param("tag") String tag,
+                       @Param("isFavorite") Boolean isFavorite, @Param("isPublic") Boolean isPublic,
+                       @Param("language") String language);
+
+    @Query("SELECT DISTINCT c.collectionEntity.id FROM CodeBlock c WHERE " + FILTER)
+    List<Long> findCollectionIdsByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                                         @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                                         @Param("isPublic") Boolean isPublic, @Param("language") String language);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.collectionEntity = :target, c.collection = :targetName, c.updatedAt = :now WHERE " + FILTER)
+    int moveAllByFilter(@Param("userId") Long userId, @Param("collection") String collection, @Param("tag") String tag,
+                        @Param("isFavorite") Boolean isFavorite, @Param("isPublic") Boolean isPublic,
+                        @Param("language") String language,
+                        @Param("target") com.g1.bookmark_manager.entity.Collection target,
+                        @Param("targetName") String targetName, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.collectionEntity = NULL, c.collection = NULL, c.updatedAt = :now WHERE " + FILTER)
+    int clearCollectionAllByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                                   @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                                   @Param("isPublic") Boolean isPublic, @Param("language") String language,
+                                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.isFavorite = :value, c.updatedAt = :now WHERE " + FILTER)
+    int setFavoriteAllByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                               @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                               @Param("isPublic") Boolean isPublic, @Param("language") String language,
+                               @Param("value") boolean value, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.isPublic = :value, c.updatedAt = :now WHERE " + FILTER)
+    int setPublicAllByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                             @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                             @Param("isPublic") Boolean isPublic, @Param("language") String language,
+                             @Param("value") boolean value, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CodeBlock c SET c.updatedAt = :now WHERE " + FILTER)
+    int touchAllByFilter(@Param("userId") Long userId, @Param("collection") String collection, @Param("tag") String tag,
+                         @Param("isFavorite") Boolean isFavorite, @Param("isPublic") Boolean isPublic,
+                         @Param("language") String language, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO code_block_tags (code_block_id, tag) SELECT x.id, :newTag FROM code_blocks x WHERE " +
+                   NATIVE_FILTER +
+                   " AND NOT EXISTS (SELECT 1 FROM code_block_tags t WHERE t.code_block_id = x.id AND t.tag = :newTag)",
+           nativeQuery = true)
+    int addTagToAllByFilter(@Param("userId") Long userId, @Param("collection") String collection, @Param("tag") String tag,
+                            @Param("isFavorite") Boolean isFavorite, @Param("isPublic") Boolean isPublic,
+                            @Param("language") String language, @Param("newTag") String newTag);
+
+    @Modifying
+    @Query(value = "DELETE FROM code_block_tags WHERE tag IN (:tags) AND code_block_id IN " +
+                   "(SELECT x.id FROM code_blocks x WHERE " + NATIVE_FILTER + ")",
+           nativeQuery = true)
+    int removeTagsFromAllByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                                  @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                                  @Param("isPublic") Boolean isPublic, @Param("language") String language,
+                                  @Param("tags") Collection<String> tags);
+
+    @Modifying
+    @Query(value = "DELETE FROM code_block_tags WHERE code_block_id IN (" + TOMBSTONED + ")", nativeQuery = true)
+    int deleteTagsOfTombstoned(@Param("userId") Long userId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM code_blocks WHERE user_id = :userId AND id IN (" + TOMBSTONED + ")", nativeQuery = true)
+    int deleteTombstoned(@Param("userId") Long userId, @Param("deletedAt") LocalDateTime deletedAt);
+
+    // Children of a deleted collection, purged a chunk at a time
+    @Query("SELECT c.id FROM CodeBlock c WHERE c.collectionEntity.id = :collectionId ORDER BY c.id")
+    List<Long> findIdsByCollectionId(@Param("collectionId") Long collectionId, Pageable pageable);
+
+    long countByCollectionEntityId(Long collectionId);
 }
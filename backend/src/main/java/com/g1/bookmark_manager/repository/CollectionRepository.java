@@ -2,11 +2,16 @@ package com.g1.bookmark_manager.repository;
 
 import com.g1.bookmark_manager.entity.Collection;
 import com.g1.bookmark_manager.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +20,14 @@ public interface CollectionRepository extends JpaRepository<Collection, Long> {
     
     // Find all collections for a specific user
     List<Collection> findByUserOrderBySortOrder(User user);
+
+    @Query("SELECT c FROM Collection c WHERE c.id = :id AND c.user.id = :userId")
+    Optional<Collection> findOwned(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT c FROM Collection c WHERE c.user.id = :userId AND c.id IN :ids")
+    List<Collection> findOwned(@Param("userId") Long userId, @Param("ids") java.util.Collection<Long> ids);
+
+    List<Collection> findByUserAndUpdatedAtAfterOrderByUpdatedAt(User user, LocalDateTime since);
     
     // Find collection by name and user
     Optional<Collection> findByNameAndUser(String name, User user);
@@ -23,6 +36,16 @@ public interface CollectionRepository extends JpaRepository<Collection, Long> {
     @Query("SELECT c FROM Collection c WHERE c.isPublic = true ORDER BY c.sortOrder")
     List<Collection> findAllPublicCollections();
     
+    // Public collection feed, keyset paginated on (createdAt, id) DESC
+    Slice<Collection> findByIsPublicTrueOrderByCreatedAtDescIdDesc(Pageable pageable);
+
+    @Query("SELECT c FROM Collection c WHERE c.isPublic = true AND " +
+           "(c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<Collection> findPublicAfterCursor(@Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+    
     // Find collections by user with bookmark count
     @Query("SELECT c FROM Collection c LEFT JOIN FETCH c.bookmarks WHERE c.user = :user ORDER BY c.sortOrder")
     List<Collection> findByUserWithBookmarks(@Param("user") User user);
@@ -42,4 +65,97 @@ public interface CollectionRepository extends JpaRepository<Collection, Long> {
     
     // Count collections for user
     long countByUser(User user);
+
+    // Collections with exact bookmark and code block counts in a single statement
+    @Query("SELECT c.id AS id, c.name AS name, c.icon AS icon, c.description AS description, " +
+           "c.isPublic AS isPublic, c.isDefault AS isDefault, c.sortOrder AS sortOrder, " +
+           "c.createdAt AS createdAt, c.updatedAt AS updatedAt, " +
+           "(SELECT COUNT(b) FROM Bookmark b WHERE b.collectionEntity = c) AS bookmarkCount, " +
+           "(SELECT COUNT(cb) FROM CodeBlock cb WHERE cb.collectionEntity = c) AS codeBlockCount " +
+           "FROM Collection c WHERE c.user = :user ORDER BY c.sortOrder")
+    List<CollectionCountView> findCountsByUser(@Param("user") User user);
+
+    // A counter change also touches updatedAt so /api/sync hands out the new counts
+    default int adjustBookmarkCount(Long id, int delta) {
+        return adjustBookmarkCount(id, delta, LocalDateTime.now());
+    }
+
+    default int adjustCodeBlockCount(Long id, int delta) {
+        return adjustCodeBlockCount(id, delta, LocalDateTime.now());
+    }
+
+    @Modifying
+    @Query("UPDATE Collection c SET c.bookmarkCount = COALESCE(c.bookmarkCount, 0) + :delta, c.updatedAt = :now WHERE c.id = :id")
+    int adjustBookmarkCount(@Param("id") Long id, @Param("delta") int delta, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Collection c SET c.codeBlockCount = COALESCE(c.codeBlockCount, 0) + :delta, c.updatedAt = :now WHERE c.id = :id")
+    int adjustCodeBlockCount(@Param("id") Long id, @Param("delta") int delta, @Param("now") LocalDateTime now);
+
+    // Recomputes the counters of a user's collections, used to backfill rows created before the counters existed
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Collection c SET " +
+           "c.bookmarkCount = (SELECT COUNT(b) FROM Bookmark b WHERE b.collectionEntity = c), " +
+           "c.codeBlockCount = (SELECT COUNT(cb) FROM CodeBlock cb WHERE cb.collectionEntity = c) " +
+           "WHERE c.user = :user")
+    int recountByUser(@Param("user") User user);
+
+    // After bulk moves and deletes, only the collections that gained or lost rows
+    @Modifying
+    @Query("UPDATE Collection c SET " +
+           "c.bookmarkCount = (SELECT COUNT(b) FROM Bookmark b WHERE b.collectionEntity = c), " +
+           "c.codeBlockCount = (SELECT COUNT(cb) FROM CodeBlock cb WHERE cb.collectionEntity = c), " +
+           "c.updatedAt = :now WHERE c.id IN :ids")
+    int recountByIds(@Param("ids") java.util.Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Deleted collections are hidden from JPQL by the entity restriction, the purge reads and removes them natively
+
+    @Query(value = "SELECT id FROM collections WHERE deleted_at IS NOT NULL " +
+                   "AND (purge_lease_until IS NULL OR purge_lease_until < :now)",
+           nativeQuery = true)
+    List<Long> findPurgeableIds(@Param("now") LocalDateTime now);
+
+    @Query(value = "SELECT id AS id, user_id AS userId, bookmark_count AS bookmarkCount, code_block_count AS codeBlockCount " +
+                   "FROM collections WHERE id = :id AND deleted_at IS NOT NULL",
+           nativeQuery = true)
+    Optional<DeletedCollectionView> findDeleted(@Param("id") Long id);
+
+    // Takes the purge lease, returns 0 when another instance holds it
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE collections SET purge_lease_until = :leaseUntil WHERE id = :id AND deleted_at IS NOT NULL " +
+                   "AND (purge_lease_until IS NULL OR purge_lease_until < :now)",
+           nativeQuery = true)
+    int claimPurge(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE collections SET purge_lease_until = :leaseUntil WHERE id = :id AND deleted_at IS NOT NULL",
+           nativeQuery = true)
+    int extendPurgeLease(@Param("id") Long id, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query(value = "DELETE FROM collections WHERE id = :id AND deleted_at IS NOT NULL", nativeQuery = true)
+    int deletePurged(@Param("id") Long id);
+
+    interface DeletedCollectionView {
+        Long getId();
+        Long getUserId();
+        Integer getBookmarkCount();
+        Integer getCodeBlockCount();
+    }
+
+    interface CollectionCountView {
+        Long getId();
+        String getName();
+        String getIcon();
+        String getDescription();
+        Boolean getIsPublic();
+        Boolean getIsDefault();
+        Integer getSortOrder();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+        Long getBookmarkCount();
+        Long getCodeBlockCount();
+    }
 }
@@ -0,0 +1,51 @@
+package com.g1.bookmark_manager.repository;
+
+import com.g1.bookmark_manager.entity.MailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    // Pending rows and SENDING rows whose lease expired (dispatcher died mid send), oldest first
+    @Query("SELECT m.id FROM MailOutbox m " +
+           "WHERE m.status IN (com.g1.bookmark_manager.entity.MailOutbox.Status.PENDING, " +
+           "com.g1.bookmark_manager.entity.MailOutbox.Status.SENDING) " +
+           "AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt, m.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Takes a lease on a due row, returns 0 when another dispatcher claimed it first
+    @Transactional
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = com.g1.bookmark_manager.entity.MailOutbox.Status.SENDING, " +
+           "m.nextAttemptAt = :leaseUntil, m.attempts = m.attempts + 1 " +
+           "WHERE m.id = :id AND m.nextAttemptAt <= :now " +
+           "AND m.status IN (com.g1.bookmark_manager.entity.MailOutbox.Status.PENDING, " +
+           "com.g1.bookmark_manager.entity.MailOutbox.Status.SENDING)")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = com.g1.bookmark_manager.entity.MailOutbox.Status.SENT, " +
+           "m.sentAt = :sentAt, m.lastError = null WHERE m.id = :id")
+    int markSent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt, " +
+           "m.lastError = :error WHERE m.id = :id")
+    int markFailedAttempt(@Param("id") Long id,
+                          @Param("status") MailOutbox.Status status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("error") String error);
+
+    long countByStatus(MailOutbox.Status status);
+}
@@ -0,0 +1,41 @@
+package com.g1.bookmark_manager.repository;
+
+import com.g1.bookmark_manager.entity.Tag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TagRepository extends JpaRepository<Tag, Long> {
+
+    Optional<Tag> findByName(String name);
+
+    List<Tag> findByNameIn(Collection<String> names);
+
+    // Creates the tag in the caller's transaction unless it exists. The key-range lock makes a concurrent insert of
+    // the same name wait for this transaction instead of failing on uk_tags_name; H2 discards the table hint
+    @Modifying
+    @Query(value = "INSERT INTO tags (name, created_at) SELECT :name, :createdAt WHERE NOT EXISTS " +
+                   "(SELECT 1 FROM tags WITH (UPDLOCK, HOLDLOCK) WHERE name = :name)",
+           nativeQuery = true)
+    int insertIfMissing(@Param("name") String name, @Param("createdAt") LocalDateTime createdAt);
+
+    // Tag rows written before tags were case-folded on save
+    @Query(value = "SELECT (SELECT COUNT(*) FROM bookmark_tags) + (SELECT COUNT(*) FROM code_block_tags)", nativeQuery = true)
+    long countTagRows();
+
+    @Modifying
+    @Query(value = "UPDATE bookmark_tags SET tag = LOWER(LTRIM(RTRIM(tag)))", nativeQuery = true)
+    int foldBookmarkTags();
+
+    @Modifying
+    @Query(value = "UPDATE code_block_tags SET tag = LOWER(LTRIM(RTRIM(tag)))", nativeQuery = true)
+    int foldCodeBlockTags();
+}
@@ -0,0 +1,69 @@
+package com.g1.bookmark_manager.repository;
+
+import com.g1.bookmark_manager.entity.Tombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+
+    @Query("SELECT t.entityType AS entityType, t.entityId AS entityId FROM Tombstone t " +
+           "WHERE t.user.id = :userId AND t.deletedAt > :since")
+    List<DeletedView> findDeletedSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+
+    @Query("SELECT COUNT(t) > 0 FROM Tombstone t " +
+           "WHERE t.user.id = :userId AND t.entityType = :entityType AND t.entityId = :entityId")
+    boolean existsForEntity(@Param("userId") Long userId,
+                            @Param("entityType") Tombstone.EntityType entityType,
+                            @Param("entityId") Long entityId);
+
+    @Modifying
+    @Query(value = "INSERT INTO tombstones (user_id, entity_type, entity_id, deleted_at) " +
+                   "SELECT user_id, 'BOOKMARK', id, :deletedAt FROM bookmarks WHERE user_id = :userId AND id IN (:ids)",
+           nativeQuery = true)
+    int insertForBookmarks(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                           @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Modifying
+    @Query(value = "INSERT INTO tombstones (user_id, entity_type, entity_id, deleted_at) " +
+                   "SELECT user_id, 'CODE_BLOCK', id, :deletedAt FROM code_blocks WHERE user_id = :userId AND id IN (:ids)",
+           nativeQuery = true)
+    int insertForCodeBlocks(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                            @Param("deletedAt") LocalDateTime deletedAt);
+
+    // Bulk deletes by filter, the rows are then removed through the tombstones written here
+    @Modifying
+    @Query(value = "INSERT INTO tombstones (user_id, entity_type, entity_id, deleted_at) " +
+                   "SELECT x.user_id, 'BOOKMARK', x.id, :deletedAt FROM bookmarks x WHERE " + BookmarkRepository.NATIVE_FILTER,
+           nativeQuery = true)
+    int insertForBookmarksByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                                   @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                                   @Param("isPublic") Boolean isPublic, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Modifying
+    @Query(value = "INSERT INTO tombstones (user_id, entity_type, entity_id, deleted_at) " +
+                   "SELECT x.user_id, 'CODE_BLOCK', x.id, :deletedAt FROM code_blocks x WHERE " + CodeBlockRepository.NATIVE_FILTER,
+           nativeQuery = true)
+    int insertForCodeBlocksByFilter(@Param("userId") Long userId, @Param("collection") String collection,
+                                    @Param("tag") String tag, @Param("isFavorite") Boolean isFavorite,
+                                    @Param("isPublic") Boolean isPublic, @Param("language") String language,
+                                    @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Tombstone t WHERE t.deletedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+
+    interface DeletedView {
+        Tombstone.EntityType getEntityType();
+        Long getEntityId();
+    }
+}
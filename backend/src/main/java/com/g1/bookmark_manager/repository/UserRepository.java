@@ -2,9 +2,12 @@ package com.g1.bookmark_manager.repository;
 
 import com.g1.bookmark_manager.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +20,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     String findNameByUserName(String username);
     @Query("SELECT u.email FROM User u WHERE u.username = ?1")
     String findEmailByUserName(String username);
+    @Query("SELECT u.id FROM User u")
+    List<Long> findAllIds();
+
+    @Query("SELECT COALESCE(u.dataVersion, 0) FROM User u WHERE u.id = :id")
+    Optional<Long> findDataVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.dataVersion = COALESCE(u.dataVersion, 0) + 1 WHERE u.id = :id")
+    int incrementDataVersion(@Param("id") Long id);
 }
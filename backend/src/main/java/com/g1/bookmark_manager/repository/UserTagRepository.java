@@ -0,0 +1,73 @@
+package com.g1.bookmark_manager.repository;
+
+import com.g1.bookmark_manager.entity.UserTag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserTagRepository extends JpaRepository<UserTag, Long> {
+
+    @Query("SELECT t.name AS name, ut.bookmarkCount AS bookmarkCount, ut.codeBlockCount AS codeBlockCount " +
+           "FROM UserTag ut JOIN ut.tag t " +
+           "WHERE ut.user.id = :userId AND (ut.bookmarkCount > 0 OR ut.codeBlockCount > 0)")
+    List<TagCountView> findCountsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT ut.tag.id FROM UserTag ut WHERE ut.user.id = :userId AND ut.tag.id IN :tagIds")
+    List<Long> findTagIdsByUserId(@Param("userId") Long userId, @Param("tagIds") Collection<Long> tagIds);
+
+    // Zero-count rows for the given tags the user does not have yet, locked like TagRepository.insertIfMissing
+    @Modifying
+    @Query(value = "INSERT INTO user_tags (user_id, tag_id, bookmark_count, code_block_count) " +
+                   "SELECT :userId, t.id, 0, 0 FROM tags t WHERE t.id IN :tagIds AND NOT EXISTS " +
+                   "(SELECT 1 FROM user_tags ut WITH (UPDLOCK, HOLDLOCK) WHERE ut.user_id = :userId AND ut.tag_id = t.id)",
+           nativeQuery = true)
+    int insertMissing(@Param("userId") Long userId, @Param("tagIds") Collection<Long> tagIds);
+
+    @Modifying
+    @Query("UPDATE UserTag ut SET ut.bookmarkCount = ut.bookmarkCount + :delta " +
+           "WHERE ut.user.id = :userId AND ut.tag.id = :tagId")
+    int adjustBookmarkCount(@Param("userId") Long userId, @Param("tagId") Long tagId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE UserTag ut SET ut.codeBlockCount = ut.codeBlockCount + :delta " +
+           "WHERE ut.user.id = :userId AND ut.tag.id = :tagId")
+    int adjustCodeBlockCount(@Param("userId") Long userId, @Param("tagId") Long tagId, @Param("delta") int delta);
+
+    // Tags on the user's bookmarks and code blocks that have no user_tags row yet
+    @Query(value = "SELECT DISTINCT x.tag FROM (" +
+                   "SELECT bt.tag AS tag FROM bookmark_tags bt JOIN bookmarks b ON b.id = bt.bookmark_id " +
+                   "WHERE b.user_id = :userId " +
+                   "UNION SELECT ct.tag AS tag FROM code_block_tags ct JOIN code_blocks c ON c.id = ct.code_block_id " +
+                   "WHERE c.user_id = :userId) x " +
+                   "WHERE x.tag IS NOT NULL AND x.tag <> '' AND NOT EXISTS (SELECT 1 FROM user_tags ut " +
+                   "JOIN tags t ON t.id = ut.tag_id WHERE ut.user_id = :userId AND t.name = x.tag)",
+           nativeQuery = true)
+    List<String> findUntrackedTags(@Param("userId") Long userId);
+
+    // Sets every count of the user from one aggregate per table, tags no longer in use drop to 0.
+    // MERGE instead of UPDATE ... FROM, which is T-SQL only; SQL Server requires the terminating semicolon
+    @Modifying
+    @Query(value = "MERGE INTO user_tags USING (" +
+                   "SELECT ut.id AS id, COALESCE(b.total, 0) AS bookmark_count, COALESCE(c.total, 0) AS code_block_count " +
+                   "FROM user_tags ut JOIN tags t ON t.id = ut.tag_id " +
+                   "LEFT JOIN (SELECT bt.tag AS tag, COUNT(DISTINCT bt.bookmark_id) AS total FROM bookmark_tags bt " +
+                   "JOIN bookmarks x ON x.id = bt.bookmark_id WHERE x.user_id = :userId GROUP BY bt.tag) b ON b.tag = t.name " +
+                   "LEFT JOIN (SELECT ct.tag AS tag, COUNT(DISTINCT ct.code_block_id) AS total FROM code_block_tags ct " +
+                   "JOIN code_blocks x ON x.id = ct.code_block_id WHERE x.user_id = :userId GROUP BY ct.tag) c ON c.tag = t.name " +
+                   "WHERE ut.user_id = :userId) s ON user_tags.id = s.id " +
+                   "WHEN MATCHED THEN UPDATE SET bookmark_count = s.bookmark_count, code_block_count = s.code_block_count;",
+           nativeQuery = true)
+    int recountByUserId(@Param("userId") Long userId);
+
+    interface TagCountView {
+        String getName();
+        Integer getBookmarkCount();
+        Integer getCodeBlockCount();
+    }
+}
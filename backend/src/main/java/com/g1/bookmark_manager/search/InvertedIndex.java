@@ -0,0 +1,139 @@
+package com.g1.bookmark_manager.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the documents of a single user, ranked with BM25.
+ * Terms are kept in a sorted map so that every query term also matches as a prefix,
+ * which keeps the "search as you type" behaviour of the old LIKE queries.
+ */
+public class InvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // term -> (document id -> term frequency)
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, IndexedDocument> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    public void put(Long id, String collection, List<String> terms) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String term : terms) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(id, entry.getValue());
+            }
+            documents.put(id, new IndexedDocument(collection, frequencies.keySet(), terms.size()));
+            totalLength += terms.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Only adds the document if it is not indexed yet, used when bulk loading from the database
+    public void putIfAbsent(Long id, String collection, List<String> terms) {
+        lock.writeLock().lock();
+        try {
+            if (!documents.containsKey(id)) {
+                put(id, collection, terms);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every matching document ordered by descending BM25 score, newest id first on ties.
+     *
+     * @param queryTerms tokenized query, each term also matches longer terms it is a prefix of
+     * @param collection optional collection name the documents must belong to, null for all
+     */
+    public List<SearchHit> search(List<String> queryTerms, String collection) {
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty() || queryTerms.isEmpty()) {
+                return List.of();
+            }
+            int documentCount = documents.size();
+            double averageLength = (double) totalLength / documentCount;
+            Map<Long, Double> scores = new HashMap<>();
+
+            for (String queryTerm : new HashSet<>(queryTerms)) {
+                Map<String, Map<Long, Integer>> matching = postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+                for (Map<Long, Integer> posting : matching.values()) {
+                    double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                    for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                        IndexedDocument document = documents.get(entry.getKey());
+                        if (collection != null && !Objects.equals(collection, document.collection())) {
+                            continue;
+                        }
+                        double tf = entry.getValue();
+                        double norm = tf + K1 * (1 - B + B * document.length() / averageLength);
+                        scores.merge(entry.getKey(), idf * tf * (K1 + 1) / norm, Double::sum);
+                    }
+                }
+            }
+
+            List<SearchHit> hits = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> hits.add(new SearchHit(id, score)));
+            hits.sort(Comparator.comparingDouble(SearchHit::score).reversed()
+                    .thenComparing(SearchHit::id, Comparator.reverseOrder()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(Long id) {
+        IndexedDocument previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= previous.length();
+    }
+
+    private record IndexedDocument(String collection, Set<String> terms, int length) {
+    }
+}
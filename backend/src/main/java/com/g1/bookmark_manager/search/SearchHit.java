@@ -0,0 +1,4 @@
+package com.g1.bookmark_manager.search;
+
+public record SearchHit(Long id, double score) {
+}
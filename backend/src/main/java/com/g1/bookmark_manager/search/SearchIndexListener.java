@@ -0,0 +1,60 @@
+package com.g1.bookmark_manager.search;
+
+import com.g1.bookmark_manager.entity.Bookmark;
+import com.g1.bookmark_manager.entity.CodeBlock;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that mirrors bookmark and code block writes into the search index.
+ * Changes are applied after the surrounding transaction commits so rolled back writes never show up in results.
+ */
+@Component
+public class SearchIndexListener {
+
+    @Autowired
+    @Lazy
+    private SearchIndexService searchIndexService;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        if (entity instanceof Bookmark bookmark) {
+            afterCommit(() -> searchIndexService.indexBookmark(bookmark));
+        } else if (entity instanceof CodeBlock codeBlock) {
+            afterCommit(() -> searchIndexService.indexCodeBlock(codeBlock));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof Bookmark bookmark) {
+            Long userId = bookmark.getUser().getId();
+            Long id = bookmark.getId();
+            afterCommit(() -> searchIndexService.removeBookmark(userId, id));
+        } else if (entity instanceof CodeBlock codeBlock) {
+            Long userId = codeBlock.getUser().getId();
+            Long id = codeBlock.getId();
+            afterCommit(() -> searchIndexService.removeCodeBlock(userId, id));
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
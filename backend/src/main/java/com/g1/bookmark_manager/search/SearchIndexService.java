@@ -0,0 +1,197 @@
+package com.g1.bookmark_manager.search;
+
+import com.g1.bookmark_manager.entity.Bookmark;
+import com.g1.bookmark_manager.entity.CodeBlock;
+import com.g1.bookmark_manager.repository.BookmarkRepository;
+import com.g1.bookmark_manager.repository.CodeBlockRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Keeps one bookmark index and one code block index per user. An index is built from the
+ * database the first time the user searches and is kept up to date by {@link SearchIndexListener}.
+ * Indexes are held for a bounded number of users and dropped when unused. Writes made on other instances do not
+ * reach the listener here, so an index is also rebuilt once it is older than {@code app.search.index.expire-after-write},
+ * which bounds how long such writes stay missing from search results.
+ */
+@Slf4j
+@Service
+public class SearchIndexService {
+
+    // Registered before it is filled so that writes committed while it loads are applied to it, searches wait for ready
+    private record UserIndex(InvertedIndex index, CompletableFuture<Void> ready) {
+    }
+
+    private final BookmarkRepository bookmarkRepository;
+    private final CodeBlockRepository codeBlockRepository;
+    private final Cache<Long, UserIndex> bookmarkIndexes;
+    private final Cache<Long, UserIndex> codeBlockIndexes;
+
+    public SearchIndexService(BookmarkRepository bookmarkRepository,
+                              CodeBlockRepository codeBlockRepository,
+                              @Value("${app.search.index.max-users:1000}") long maxUsers,
+                              @Value("${app.search.index.expire-after-access:30m}") Duration expireAfterAccess,
+                              @Value("${app.search.index.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.codeBlockRepository = codeBlockRepository;
+        this.bookmarkIndexes = newCache(maxUsers, expireAfterAccess, expireAfterWrite);
+        this.codeBlockIndexes = newCache(maxUsers, expireAfterAccess, expireAfterWrite);
+    }
+
+    private static Cache<Long, UserIndex> newCache(long maxUsers, Duration expireAfterAccess, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(expireAfterAccess)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    public List<Long> searchBookmarks(Long userId, String query) {
+        List<String> terms = Tokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        return ids(bookmarkIndex(userId).search(terms, null));
+    }
+
+    public List<Long> searchCodeBlocks(Long userId, String query, String collection) {
+        List<String> terms = Tokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        return ids(codeBlockIndex(userId).search(terms, collection));
+    }
+
+    public void indexBookmark(Bookmark bookmark) {
+        Long userId = bookmark.getUser().getId();
+        UserIndex entry = bookmarkIndexes.getIfPresent(userId);
+        // Users that never searched have no index yet, it will be built from the database on demand
+        if (entry == null) {
+            return;
+        }
+        try {
+            entry.index().put(bookmark.getId(), bookmark.getCollection(), bookmarkTerms(bookmark));
+        } catch (RuntimeException e) {
+            // e.g. tags no longer loadable outside the session, rebuild the index on the next search instead
+            log.debug("Dropping bookmark index of user {}: {}", userId, e.getMessage());
+            bookmarkIndexes.invalidate(userId);
+        }
+    }
+
+    public void removeBookmark(Long userId, Long bookmarkId) {
+        UserIndex entry = bookmarkIndexes.getIfPresent(userId);
+        if (entry != null) {
+            entry.index().remove(bookmarkId);
+        }
+    }
+
+    public void indexCodeBlock(CodeBlock codeBlock) {
+        Long userId = codeBlock.getUser().getId();
+        UserIndex entry = codeBlockIndexes.getIfPresent(userId);
+        if (entry == null) {
+            return;
+        }
+        try {
+            entry.index().put(codeBlock.getId(), codeBlock.getCollection(), codeBlockTerms(codeBlock));
+        } catch (RuntimeException e) {
+            log.debug("Dropping code block index of user {}: {}", userId, e.getMessage());
+            codeBlockIndexes.invalidate(userId);
+        }
+    }
+
+    public void removeCodeBlock(Long userId, Long codeBlockId) {
+        UserIndex entry = codeBlockIndexes.getIfPresent(userId);
+        if (entry != null) {
+            entry.index().remove(codeBlockId);
+        }
+    }
+
+    // Drops the user's indexes, the next search rebuilds them. Used after set-based writes that bypass entity listeners.
+    public void evictUser(Long userId) {
+        bookmarkIndexes.invalidate(userId);
+        codeBlockIndexes.invalidate(userId);
+    }
+
+    private InvertedIndex bookmarkIndex(Long userId) {
+        return index(bookmarkIndexes, userId, "bookmark", index -> {
+            for (Bookmark bookmark : bookmarkRepository.findByUserId(userId)) {
+                index.putIfAbsent(bookmark.getId(), bookmark.getCollection(), bookmarkTerms(bookmark));
+            }
+        });
+    }
+
+    private InvertedIndex codeBlockIndex(Long userId) {
+        return index(codeBlockIndexes, userId, "code block", index -> {
+            for (CodeBlock codeBlock : codeBlockRepository.findByUserId(userId)) {
+                index.putIfAbsent(codeBlock.getId(), codeBlock.getCollection(), codeBlockTerms(codeBlock));
+            }
+        });
+    }
+
+    // The first caller builds the index, concurrent callers wait for it. A failed build is unregistered, so the
+    // next search tries again instead of finding an empty index
+    private InvertedIndex index(Cache<Long, UserIndex> indexes, Long userId, String kind, Consumer<InvertedIndex> loader) {
+        UserIndex created = new UserIndex(new InvertedIndex(), new CompletableFuture<>());
+        UserIndex existing = indexes.asMap().putIfAbsent(userId, created);
+        if (existing != null) {
+            try {
+                existing.ready().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            return existing.index();
+        }
+        long start = System.currentTimeMillis();
+        try {
+            loader.accept(created.index());
+        } catch (RuntimeException e) {
+            indexes.asMap().remove(userId, created);
+            created.ready().completeExceptionally(e);
+            throw e;
+        }
+        created.ready().complete(null);
+        log.info("Built {} search index for user {} with {} documents in {} ms",
+                kind, userId, created.index().size(), System.currentTimeMillis() - start);
+        return created.index();
+    }
+
+    // Title terms are added twice so that title matches outrank body matches
+    private List<String> bookmarkTerms(Bookmark bookmark) {
+        List<String> terms = new ArrayList<>();
+        terms.addAll(Tokenizer.tokenize(bookmark.getTitle()));
+        terms.addAll(Tokenizer.tokenize(bookmark.getTitle()));
+        terms.addAll(Tokenizer.tokenize(bookmark.getDescription()));
+        terms.addAll(Tokenizer.tokenize(bookmark.getUrl()));
+        if (bookmark.getTags() != null) {
+            bookmark.getTags().forEach(tag -> terms.addAll(Tokenizer.tokenize(tag)));
+        }
+        return terms;
+    }
+
+    private List<String> codeBlockTerms(CodeBlock codeBlock) {
+        List<String> terms = new ArrayList<>();
+        terms.addAll(Tokenizer.tokenize(codeBlock.getTitle()));
+        terms.addAll(Tokenizer.tokenize(codeBlock.getTitle()));
+        terms.addAll(Tokenizer.tokenize(codeBlock.getDescription()));
+        terms.addAll(Tokenizer.tokenize(codeBlock.getLanguage()));
+        terms.addAll(Tokenizer.tokenize(codeBlock.getCode()));
+        if (codeBlock.getTags() != null) {
+            codeBlock.getTags().forEach(tag -> terms.addAll(Tokenizer.tokenize(tag)));
+        }
+        return terms;
+    }
+
+    private List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::id).toList();
+    }
+}
@@ -0,0 +1,73 @@
+package com.g1.bookmark_manager.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of one user's tags sorted by name. A prefix maps to a contiguous range that is found
+ * with two binary searches, so suggestions never look at tags outside the range.
+ * A new snapshot is built when the user's tag counts change.
+ */
+public class TagPrefixIndex {
+
+    public record Entry(String name, int bookmarkCount, int codeBlockCount) {
+        public int total() {
+            return bookmarkCount + codeBlockCount;
+        }
+    }
+
+    private static final Comparator<Entry> BY_USAGE = Comparator.comparingInt(Entry::total).reversed()
+            .thenComparing(Entry::name);
+
+    private final Entry[] entries;
+    private final String[] names;
+
+    public TagPrefixIndex(List<Entry> entries) {
+        this.entries = entries.stream()
+                .sorted(Comparator.comparing(Entry::name))
+                .toArray(Entry[]::new);
+        this.names = Arrays.stream(this.entries).map(Entry::name).toArray(String[]::new);
+    }
+
+    // Most used tags starting with the (case-folded) prefix, an empty prefix matches every tag
+    public List<Entry> suggest(String prefix, int limit) {
+        int from = lowerBound(prefix);
+        int to = prefix.isEmpty() ? names.length : lowerBound(prefix + Character.MAX_VALUE);
+        List<Entry> matches = new ArrayList<>(Arrays.asList(entries).subList(from, to));
+        matches.sort(BY_USAGE);
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    // Tag names containing the (case-folded) term, the same matching the old LIKE '%term%' queries did
+    public Set<String> matching(String term) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String name : names) {
+            if (name.contains(term)) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
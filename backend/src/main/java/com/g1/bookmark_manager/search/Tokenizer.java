@@ -0,0 +1,42 @@
+package com.g1.bookmark_manager.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits free text into lower-cased search terms. Anything that is not a letter or a digit
+ * separates terms, so "spring-boot", "spring_boot" and "spring.boot" all yield "spring" and "boot".
+ * Single characters are terms too, a one-letter query ("c", "r") matches like any other prefix.
+ */
+public final class Tokenizer {
+
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                addTerm(terms, text.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, String term) {
+        if (term.length() <= MAX_TERM_LENGTH) {
+            terms.add(term.toLowerCase(Locale.ROOT));
+        }
+    }
+}
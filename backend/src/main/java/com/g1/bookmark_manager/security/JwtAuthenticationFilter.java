@@ -1,11 +1,18 @@
 package com.g1.bookmark_manager.security;
 
+import com.g1.bookmark_manager.util.JwtClaims;
 import com.g1.bookmark_manager.util.JwtUtil;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -13,15 +20,26 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final boolean trustRoleClaim;
+    private final Timer validTimer;
+    private final Timer expiredTimer;
+    private final Timer invalidTimer;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService, boolean trustRoleClaim,
+                                   MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.trustRoleClaim = trustRoleClaim;
+        this.validTimer = verifyTimer(meterRegistry, "valid");
+        this.expiredTimer = verifyTimer(meterRegistry, "expired");
+        this.invalidTimer = verifyTimer(meterRegistry, "invalid");
     }
 
     @Override
@@ -30,31 +48,47 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String requestTokenHeader = request.getHeader("Authorization");
         
-        String username = null;
-        String jwtToken = null;
+        JwtClaims claims = null;
         
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
+            String jwtToken = requestTokenHeader.substring(7);
+            long start = System.nanoTime();
             try {
-                username = jwtUtil.extractUsername(jwtToken);
-            } catch (IllegalArgumentException e) {
-                logger.error("Unable to get JWT Token");
-            } catch (Exception e) {
-                logger.error("JWT Token has expired");
+                claims = jwtUtil.parseToken(jwtToken);
+                validTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (ExpiredJwtException e) {
+                expiredTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                logger.debug("JWT Token has expired");
+            } catch (JwtException | IllegalArgumentException e) {
+                invalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                logger.debug("Unable to get JWT Token");
             }
         }
         
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            
-            if (jwtUtil.validateToken(jwtToken, userDetails)) {
-                UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                usernamePasswordAuthenticationToken
-                    .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UsernamePasswordAuthenticationToken authentication;
+            if (trustRoleClaim && claims.hasRoles()) {
+                // The token is signed by us and carries the authorities, no user lookup needed.
+                // Controllers resolve the User entity by name only when they actually need it.
+                List<GrantedAuthority> authorities = claims.roles().stream()
+                        .map(SimpleGrantedAuthority::new)
+                        .map(GrantedAuthority.class::cast)
+                        .toList();
+                authentication = new UsernamePasswordAuthenticationToken(claims.username(), null, authorities);
+            } else {
+                UserDetails userDetails = this.userDetailsService.loadUserByUsername(claims.username());
+                authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
             }
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
         }
         filterChain.doFilter(request, response);
     }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("security.jwt.verify")
+                .description("Time spent verifying the signature and expiry of a bearer token")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,46 @@
+package com.g1.bookmark_manager.security;
+
+import com.g1.bookmark_manager.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded, time limited cache of authenticated users keyed by username.
+ * Saves the user + roles lookup that every authenticated request would otherwise run twice
+ * (once in the JWT filter, once in the service resolving the current user).
+ * Cached users are shared between requests and must be treated as read-only,
+ * code that changes a user has to load it from the repository and call {@link #invalidate(String)}.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final Cache<String, User> cache;
+
+    public UserPrincipalCache(@Value("${app.security.user-cache.max-size:10000}") long maxSize,
+                              @Value("${app.security.user-cache.ttl:60s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // The loader may throw, in that case nothing is cached and the exception is propagated
+    public User get(String username, Function<String, User> loader) {
+        return cache.get(username, loader);
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -5,6 +5,7 @@ import com.g1.bookmark_manager.entity.Role;
 import com.g1.bookmark_manager.entity.User;
 import com.g1.bookmark_manager.exception.ResourceNotFoundException;
 import com.g1.bookmark_manager.repository.UserRepository;
+import com.g1.bookmark_manager.security.UserPrincipalCache;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,9 +16,11 @@ import java.util.stream.Collectors;
 @Transactional
 public class AdminService {
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
-    public AdminService(UserRepository userRepository) {
+    public AdminService(UserRepository userRepository, UserPrincipalCache userPrincipalCache) {
         this.userRepository = userRepository;
+        this.userPrincipalCache = userPrincipalCache;
     }
 
     public List<UserDTO> getAllUsers() {
@@ -63,5 +66,7 @@ public class AdminService {
             user.setIsActive(false);
             userRepository.save(user);
         }
+        // Cached principals would keep a deactivated user authenticated until the entry expires
+        userPrincipalCache.invalidate(user.getUsername());
     }
 }
@@ -14,6 +14,7 @@ import com.g1.bookmark_manager.exception.ResourceNotFoundException;
 import com.g1.bookmark_manager.repository.CollectionRepository;
 import com.g1.bookmark_manager.repository.RoleRepository;
 import com.g1.bookmark_manager.repository.UserRepository;
+import com.g1.bookmark_manager.security.UserPrincipalCache;
 import com.g1.bookmark_manager.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,13 +23,18 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class AuthService {
     @Autowired
-    private MailService mailService;
+    private MailOutboxService mailOutboxService;
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final CollectionRepository collectionRepository;
@@ -50,6 +56,7 @@ public class AuthService {
         this.authenticationManager = authenticationManager;
     }
 
+    @Transactional
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new DuplicateResourceException("Username already exists");
@@ -68,7 +75,6 @@ public class AuthService {
         user.setEmail(request.getEmail());
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setFullName(request.getFullName());
-        mailService.sendEmail(user.getEmail(),"Dev Resources Account", user.getUsername(), user.getFullName(),user.getPassword() , null);
 
         // Gán role USER mặc định cho user mới
         user.setRoles(List.of(userRole));
@@ -78,6 +84,12 @@ public class AuthService {
         // Create default collections for new user
         createDefaultCollections(user);
 
+        // Welcome mail is delivered in the background once the registration commits
+        Map<String, Object> mailVariables = new HashMap<>();
+        mailVariables.put("username", user.getUsername());
+        mailVariables.put("name", user.getFullName());
+        mailOutboxService.enqueue(user.getEmail(), "Dev Resources Account", MailService.ACCOUNT_TEMPLATE, mailVariables);
+
         String token = jwtUtil.generateToken(user);
         return new AuthResponse(token, user.getUsername(), user.getEmail(), user.getFullName());
     }
@@ -105,7 +117,13 @@ public class AuthService {
         }
     }
 
+    // Served from the principal cache, the returned user must not be modified
     public User findByUsername(String username) {
+        return userPrincipalCache.get(username, name -> userRepository.findByUsername(name)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + name)));
+    }
+
+    private User loadForUpdate(String username) {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
     }
@@ -141,7 +159,7 @@ public class AuthService {
     }
 
     public User updateUser(String username, UpdateUserRequest request) {
-        User user = findByUsername(username);
+        User user = loadForUpdate(username);
 
         // Check if new username already exists (if changed)
         if (!user.getUsername().equals(request.getUsername()) &&
@@ -164,11 +182,14 @@ public class AuthService {
             user.setAvatarUrl(request.getAvatarUrl());
         }
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userPrincipalCache.invalidate(username);
+        userPrincipalCache.invalidate(savedUser.getUsername());
+        return savedUser;
     }
 
     public void changePassword(String username, ChangePasswordRequest request) {
-        User user = findByUsername(username);
+        User user = loadForUpdate(username);
 
         // Verify current password
         if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
@@ -178,5 +199,6 @@ public class AuthService {
         // Update password
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        userPrincipalCache.invalidate(username);
     }
 }
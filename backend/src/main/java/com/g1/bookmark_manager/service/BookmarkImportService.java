@@ -0,0 +1,331 @@
+package com.g1.bookmark_manager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g1.bookmark_manager.cache.PublicFeedCache;
+import com.g1.bookmark_manager.cache.PublicFeedChangedEvent;
+import com.g1.bookmark_manager.dto.request.BookmarkRequest;
+import com.g1.bookmark_manager.dto.response.ImportEvent;
+import com.g1.bookmark_manager.entity.Bookmark;
+import com.g1.bookmark_manager.entity.Collection;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.exception.BadRequestException;
+import com.g1.bookmark_manager.repository.BookmarkBatchRepository;
+import com.g1.bookmark_manager.repository.CollectionRepository;
+import com.g1.bookmark_manager.search.SearchIndexService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a browser export or an NDJSON file into the bookmarks table.
+ * Rows are validated one by one, collected into batches and every batch is written with JDBC
+ * batch inserts in its own transaction, so a failing row never aborts the whole import.
+ */
+@Slf4j
+@Service
+public class BookmarkImportService {
+
+    public enum Format {
+        NDJSON,
+        NETSCAPE_HTML
+    }
+
+    private static final Pattern FOLDER = Pattern.compile("<DT><H3[^>]*>(.*?)</H3>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LINK = Pattern.compile("<DT><A\\s+([^>]*)>(.*?)</A>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DESCRIPTION = Pattern.compile("<DD>(.*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE = Pattern.compile("([A-Za-z_]+)=\"([^\"]*)\"");
+    private static final Pattern LIST_START = Pattern.compile("<DL>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LIST_END = Pattern.compile("</DL>", Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private CollectionRepository collectionRepository;
+
+    @Autowired
+    private BookmarkBatchRepository bookmarkBatchRepository;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private UserVersionService userVersionService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    public void importBookmarks(String username, InputStream input, Format format, Consumer<ImportEvent> events) throws IOException {
+        User user = authService.findByUsername(username);
+        ImportBatch batch = new ImportBatch(user, events);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            if (format == Format.NDJSON) {
+                readNdjson(reader, batch);
+            } else {
+                readNetscapeHtml(reader, batch);
+            }
+            batch.flush();
+        } finally {
+            // Rows written with JDBC bypass the entity listeners, let the index rebuild on the next search
+            if (batch.imported > 0) {
+                searchIndexService.evictUser(user.getId());
+            }
+            if (batch.importedPublic) {
+                eventPublisher.publishEvent(new PublicFeedChangedEvent(PublicFeedCache.Feed.BOOKMARKS));
+            }
+        }
+
+        log.info("Imported {} bookmarks for user {}, {} rows rejected", batch.imported, username, batch.failed);
+        events.accept(ImportEvent.summary(batch.processed, batch.imported, batch.failed));
+    }
+
+    private void readNdjson(BufferedReader reader, ImportBatch batch) throws IOException {
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(lineNumber, objectMapper.readValue(line, BookmarkRequest.class), null);
+            } catch (IOException e) {
+                batch.rejectUnparsed(lineNumber, "Invalid JSON: " + e.getMessage());
+            }
+        }
+    }
+
+    // Netscape bookmark files nest folders in <DL> lists, the innermost folder becomes the collection
+    private void readNetscapeHtml(BufferedReader reader, ImportBatch batch) throws IOException {
+        Deque<String> folders = new ArrayDeque<>();
+        String pendingFolder = null;
+        BookmarkRequest pending = null;
+        LocalDateTime pendingAddedAt = null;
+        long pendingLine = 0;
+
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            Matcher description = DESCRIPTION.matcher(line);
+            if (pending != null && description.find()) {
+                pending.setDescription(truncate(HtmlUtils.htmlUnescape(description.group(1).trim()), 1000));
+                continue;
+            }
+            if (pending != null) {
+                batch.add(pendingLine, pending, pendingAddedAt);
+                pending = null;
+            }
+
+            Matcher folder = FOLDER.matcher(line);
+            Matcher link = LINK.matcher(line);
+            if (folder.find()) {
+                pendingFolder = HtmlUtils.htmlUnescape(folder.group(1).trim());
+            } else if (link.find()) {
+                Map<String, String> attributes = attributes(link.group(1));
+                pending = new BookmarkRequest();
+                pending.setTitle(HtmlUtils.htmlUnescape(link.group(2).trim()));
+                pending.setUrl(attributes.get("href"));
+                pending.setFavicon(attributes.get("icon_uri"));
+                pending.setCollection(folders.peek());
+                pending.setIsPublic(false);
+                if (attributes.containsKey("tags")) {
+                    pending.setTags(Arrays.stream(attributes.get("tags").split(","))
+                            .map(String::trim)
+                            .filter(tag -> !tag.isEmpty())
+                            .collect(Collectors.toList()));
+                }
+                pendingAddedAt = addDate(attributes.get("add_date"));
+                pendingLine = lineNumber;
+            } else if (LIST_START.matcher(line).find()) {
+                if (pendingFolder != null) {
+                    folders.push(pendingFolder);
+                    pendingFolder = null;
+                }
+            } else if (LIST_END.matcher(line).find() && !folders.isEmpty()) {
+                folders.pop();
+            }
+        }
+        if (pending != null) {
+            batch.add(pendingLine, pending, pendingAddedAt);
+        }
+    }
+
+    private Map<String, String> attributes(String raw) {
+        Map<String, String> attributes = new HashMap<>();
+        Matcher matcher = ATTRIBUTE.matcher(raw);
+        while (matcher.find()) {
+            attributes.put(matcher.group(1).toLowerCase(), HtmlUtils.htmlUnescape(matcher.group(2)));
+        }
+        return attributes;
+    }
+
+    private LocalDateTime addDate(String epochSeconds) {
+        if (epochSeconds == null || epochSeconds.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(epochSeconds)), ZoneId.systemDefault());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String truncate(String value, int maxLength) {
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    // Collects validated rows and writes them once batchSize is reached
+    private class ImportBatch {
+        private final User user;
+        private final Consumer<ImportEvent> events;
+        private final List<Bookmark> bookmarks = new ArrayList<>();
+        private final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        // Collections are resolved once per import instead of once per row
+        private final Map<String, Collection> collections = new HashMap<>();
+        private long processed;
+        private long imported;
+        private long failed;
+        private boolean importedPublic;
+
+        ImportBatch(User user, Consumer<ImportEvent> events) {
+            this.user = user;
+            this.events = events;
+            for (Collection collection : collectionRepository.findByUserOrderBySortOrder(user)) {
+                collections.putIfAbsent(collection.getName(), collection);
+            }
+        }
+
+        void add(long line, BookmarkRequest request, LocalDateTime addedAt) {
+            processed++;
+            Set<ConstraintViolation<BookmarkRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(line, violations.iterator().next().getMessage());
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Bookmark bookmark = new Bookmark();
+            bookmark.setTitle(request.getTitle());
+            bookmark.setUrl(request.getUrl());
+            bookmark.setDescription(request.getDescription());
+            bookmark.setCollection(request.getCollection());
+            bookmark.setCollectionEntity(request.getCollection() != null ? collections.get(request.getCollection()) : null);
+            bookmark.setTags(TagService.normalize(request.getTags()));
+            bookmark.setIsFavorite(request.getIsFavorite());
+            bookmark.setIsPublic(request.getIsPublic());
+            bookmark.setFavicon(request.getFavicon());
+            bookmark.setCreatedAt(addedAt != null ? addedAt : now);
+            bookmark.setUpdatedAt(now);
+            bookmark.setUser(user);
+            bookmarks.add(bookmark);
+
+            if (bookmarks.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        // For rows that could not even be parsed into a request
+        void rejectUnparsed(long line, String message) {
+            processed++;
+            reject(line, message);
+        }
+
+        private void reject(long line, String message) {
+            failed++;
+            events.accept(ImportEvent.error(line, message));
+        }
+
+        void flush() {
+            if (bookmarks.isEmpty()) {
+                return;
+            }
+            try {
+                transaction.executeWithoutResult(status -> {
+                    bookmarkBatchRepository.insertAll(bookmarks);
+                    Map<Long, Integer> perCollection = new HashMap<>();
+                    for (Bookmark bookmark : bookmarks) {
+                        if (bookmark.getCollectionEntity() != null) {
+                            perCollection.merge(bookmark.getCollectionEntity().getId(), 1, Integer::sum);
+                        }
+                    }
+                    perCollection.forEach(collectionRepository::adjustBookmarkCount);
+
+                    Map<String, Integer> perTag = new HashMap<>();
+                    for (Bookmark bookmark : bookmarks) {
+                        if (bookmark.getTags() != null) {
+                            bookmark.getTags().forEach(tag -> perTag.merge(tag, 1, Integer::sum));
+                        }
+                    }
+                    tagService.adjust(user.getId(), TagService.Kind.BOOKMARK, perTag);
+                    userVersionService.bump(user.getId());
+                });
+                imported += bookmarks.size();
+                importedPublic |= bookmarks.stream().anyMatch(bookmark -> Boolean.TRUE.equals(bookmark.getIsPublic()));
+            } catch (RuntimeException e) {
+                log.warn("Import batch of {} bookmarks failed: {}", bookmarks.size(), e.getMessage());
+                failed += bookmarks.size();
+                events.accept(ImportEvent.error(null, "Batch of " + bookmarks.size() + " bookmarks failed: " + e.getMessage()));
+            }
+            bookmarks.clear();
+            events.accept(ImportEvent.progress(processed, imported, failed));
+        }
+    }
+
+    public static Format formatOf(String contentType) {
+        if (contentType == null) {
+            throw new BadRequestException("Content-Type must be application/x-ndjson or text/html");
+        }
+        if (contentType.startsWith("application/x-ndjson")) {
+            return Format.NDJSON;
+        }
+        if (contentType.startsWith("text/html")) {
+            return Format.NETSCAPE_HTML;
+        }
+        throw new BadRequestException("Unsupported import format: " + contentType);
+    }
+}
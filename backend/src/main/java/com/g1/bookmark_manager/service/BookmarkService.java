@@ -1,29 +1,49 @@
 package com.g1.bookmark_manager.service;
 
+import com.g1.bookmark_manager.cache.PublicFeedCache;
+import com.g1.bookmark_manager.cache.PublicFeedChangedEvent;
 import com.g1.bookmark_manager.dto.request.BookmarkRequest;
 import com.g1.bookmark_manager.dto.response.BookmarkResponse;
+import com.g1.bookmark_manager.dto.response.CursorPageResponse;
+import com.g1.bookmark_manager.dto.response.FilterPageResponse;
 import com.g1.bookmark_manager.entity.Bookmark;
 import com.g1.bookmark_manager.entity.Collection;
+import com.g1.bookmark_manager.entity.Tombstone;
 import com.g1.bookmark_manager.entity.User;
 import com.g1.bookmark_manager.exception.ResourceNotFoundException;
+import com.g1.bookmark_manager.filter.FilterCriteria;
+import com.g1.bookmark_manager.filter.FilterEngine;
+import com.g1.bookmark_manager.filter.FilterPage;
+import com.g1.bookmark_manager.filter.FilterSort;
 import com.g1.bookmark_manager.repository.BookmarkRepository;
 import com.g1.bookmark_manager.repository.CollectionRepository;
+import com.g1.bookmark_manager.search.SearchIndexService;
+import com.g1.bookmark_manager.util.CursorUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class BookmarkService {
 
+    private static final int ID_CHUNK_SIZE = 1000;
+
     @Autowired
     private BookmarkRepository bookmarkRepository;
 
@@ -33,26 +53,47 @@ public class BookmarkService {
     @Autowired
     private CollectionRepository collectionRepository;
 
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private PublicFeedCache publicFeedCache;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private UserVersionService userVersionService;
+
+    @Autowired
+    private TombstoneService tombstoneService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private FilterEngine filterEngine;
+
+    @Value("${app.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-size:200}")
+    private int maxPageSize;
+
     public List<BookmarkResponse> getAllBookmarks(String username) {
         User user = authService.findByUsername(username);
-        return bookmarkRepository.findByUser(user)
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toResponses(bookmarkRepository.findByUser(user));
     }
 
     public BookmarkResponse getBookmarkById(Long id, String username) {
         User user = authService.findByUsername(username);
-        Bookmark bookmark = bookmarkRepository.findById(id)
+        Bookmark bookmark = bookmarkRepository.findOwned(id, user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Bookmark not found with id: " + id));
 
-        if (!bookmark.getUser().equals(user)) {
-            throw new ResourceNotFoundException("Bookmark not found or access denied");
-        }
-
         return convertToResponse(bookmark);
     }
 
+    @Transactional
     public BookmarkResponse createBookmark(BookmarkRequest request, String username) {
         User user = authService.findByUsername(username);
 
@@ -61,7 +102,7 @@ public class BookmarkService {
         bookmark.setUrl(request.getUrl());
         bookmark.setDescription(request.getDescription());
         bookmark.setCollection(request.getCollection());
-        bookmark.setTags(request.getTags());
+        bookmark.setTags(TagService.normalize(request.getTags()));
         bookmark.setIsFavorite(request.getIsFavorite());
         bookmark.setIsPublic(request.getIsPublic());
         bookmark.setFavicon(request.getFavicon());
@@ -87,23 +128,27 @@ public class BookmarkService {
         }
 
         bookmark = bookmarkRepository.save(bookmark);
+        updateCollectionCounts(null, bookmark.getCollectionEntity());
+        tagService.recordTagChange(user.getId(), TagService.Kind.BOOKMARK, null, bookmark.getTags());
+        userVersionService.bump(user.getId());
+        publishFeedChange(false, bookmark);
         return convertToResponse(bookmark);
     }
 
+    @Transactional
     public BookmarkResponse updateBookmark(Long id, BookmarkRequest request, String username) {
         User user = authService.findByUsername(username);
-        Bookmark bookmark = bookmarkRepository.findById(id)
+        Bookmark bookmark = bookmarkRepository.findOwned(id, user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Bookmark not found with id: " + id));
-
-        if (!bookmark.getUser().equals(user)) {
-            throw new ResourceNotFoundException("Bookmark not found or access denied");
-        }
+        Long previousCollectionId = collectionIdOf(bookmark);
+        List<String> previousTags = tagsOf(bookmark);
+        boolean wasPublic = Boolean.TRUE.equals(bookmark.getIsPublic());
 
         bookmark.setTitle(request.getTitle());
         bookmark.setUrl(request.getUrl());
         bookmark.setDescription(request.getDescription());
         bookmark.setCollection(request.getCollection());
-        bookmark.setTags(request.getTags());
+        bookmark.setTags(TagService.normalize(request.getTags()));
         bookmark.setIsFavorite(request.getIsFavorite());
         bookmark.setIsPublic(request.getIsPublic());
         bookmark.setFavicon(request.getFavicon());
@@ -130,29 +175,35 @@ public class BookmarkService {
         }
 
         bookmark = bookmarkRepository.save(bookmark);
+        updateCollectionCounts(previousCollectionId, bookmark.getCollectionEntity());
+        tagService.recordTagChange(user.getId(), TagService.Kind.BOOKMARK, previousTags, bookmark.getTags());
+        userVersionService.bump(user.getId());
+        publishFeedChange(wasPublic, bookmark);
         return convertToResponse(bookmark);
     }
 
+    @Transactional
     public void deleteBookmark(Long id, String username) {
         User user = authService.findByUsername(username);
-        Bookmark bookmark = bookmarkRepository.findById(id)
+        Bookmark bookmark = bookmarkRepository.findOwned(id, user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Bookmark not found with id: " + id));
 
-        if (!bookmark.getUser().equals(user)) {
-            throw new ResourceNotFoundException("Bookmark not found or access denied");
-        }
-
+        updateCollectionCounts(collectionIdOf(bookmark), null);
+        tagService.recordTagChange(user.getId(), TagService.Kind.BOOKMARK, tagsOf(bookmark), null);
+        tombstoneService.record(user.getId(), Tombstone.EntityType.BOOKMARK, bookmark.getId());
+        userVersionService.bump(user.getId());
+        publishFeedChange(Boolean.TRUE.equals(bookmark.getIsPublic()), null);
         bookmarkRepository.delete(bookmark);
     }
 
+    @Transactional
     public BookmarkResponse patchBookmark(Long id, Map<String, Object> updates, String username) {
         User user = authService.findByUsername(username);
-        Bookmark bookmark = bookmarkRepository.findById(id)
+        Bookmark bookmark = bookmarkRepository.findOwned(id, user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Bookmark not found with id: " + id));
-
-        if (!bookmark.getUser().equals(user)) {
-            throw new ResourceNotFoundException("Bookmark not found or access denied");
-        }
+        Long previousCollectionId = collectionIdOf(bookmark);
+        List<String> previousTags = tagsOf(bookmark);
+        boolean wasPublic = Boolean.TRUE.equals(bookmark.getIsPublic());
 
         // Apply partial updates
         for (Map.Entry<String, Object> entry : updates.entrySet()) {
@@ -196,7 +247,7 @@ public class BookmarkService {
                     }
                     break;
                 case "tags":
-                    bookmark.setTags((List<String>) value);
+                    bookmark.setTags(TagService.normalize((List<String>) value));
                     break;
                 case "favicon":
                     bookmark.setFavicon((String) value);
@@ -205,69 +256,224 @@ public class BookmarkService {
         }
 
         bookmark = bookmarkRepository.save(bookmark);
+        updateCollectionCounts(previousCollectionId, bookmark.getCollectionEntity());
+        tagService.recordTagChange(user.getId(), TagService.Kind.BOOKMARK, previousTags, bookmark.getTags());
+        userVersionService.bump(user.getId());
+        publishFeedChange(wasPublic, bookmark);
         return convertToResponse(bookmark);
     }
 
+    // Bookmarks created or changed after the given time, all of them when it is null
+    public List<BookmarkResponse> getBookmarksChangedSince(User user, LocalDateTime since) {
+        return toResponses(since == null
+                ? bookmarkRepository.findByUser(user)
+                : bookmarkRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt(user, since));
+    }
+
+    // Multi-get in the requested order, ids that are unknown or belong to someone else are skipped
+    public List<BookmarkResponse> getBookmarksByIds(List<Long> ids, String username) {
+        User user = authService.findByUsername(username);
+        return toResponses(findAllInRankOrder(ids).stream()
+                .filter(bookmark -> bookmark.getUser().getId().equals(user.getId()))
+                .collect(Collectors.toList()));
+    }
+
     public List<BookmarkResponse> getFavoriteBookmarks(String username) {
         User user = authService.findByUsername(username);
-        return bookmarkRepository.findByUserAndIsFavoriteTrue(user)
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toResponses(bookmarkRepository.findByUserAndIsFavoriteTrue(user));
     }
 
     public List<BookmarkResponse> getBookmarksByCollection(String collection, String username) {
         User user = authService.findByUsername(username);
-        return bookmarkRepository.findByUserAndCollection(user, collection)
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toResponses(bookmarkRepository.findByUserAndCollection(user, collection));
     }
 
     public List<BookmarkResponse> getPublicBookmarks(String username) {
         User user = authService.findByUsername(username);
-        return bookmarkRepository.findByUserAndIsPublicTrue(user)
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toResponses(bookmarkRepository.findByUserAndIsPublicTrue(user));
     }
 
     public List<BookmarkResponse> getAllPublicBookmarks() {
-        return bookmarkRepository.findByIsPublicTrue()
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return publicFeedCache.get(PublicFeedCache.Feed.BOOKMARKS, "all", () ->
+                toResponses(bookmarkRepository.findAllPublicWithUser()));
+    }
+
+    public CursorPageResponse<BookmarkResponse> getAllPublicBookmarks(String cursor, Integer size) {
+        Pageable pageable = pageRequest(size);
+        String key = (cursor == null ? "" : cursor) + ":" + pageable.getPageSize();
+        return publicFeedCache.get(PublicFeedCache.Feed.BOOKMARKS, key, () -> {
+            if (cursor == null || cursor.isEmpty()) {
+                return toCursorPage(bookmarkRepository.findPublicFeed(pageable));
+            }
+            CursorUtil.Cursor after = CursorUtil.decode(cursor);
+            return toCursorPage(bookmarkRepository.findPublicFeedAfterCursor(after.createdAt(), after.id(), pageable));
+        });
     }
 
     public List<BookmarkResponse> getBookmarksByTag(String tag, String username) {
         User user = authService.findByUsername(username);
-        return bookmarkRepository.findByUserAndTagsContaining(user, tag)
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        Set<String> tags = tagService.matchingTags(user.getId(), tag);
+        if (tags.isEmpty()) {
+            return List.of();
+        }
+        return toResponses(bookmarkRepository.findByUserAndTagIn(user, tags));
     }
 
     public List<BookmarkResponse> searchBookmarks(String keyword, String username) {
         User user = authService.findByUsername(username);
-        return bookmarkRepository.searchBookmarks(user, keyword)
-                .stream()
-                .map(this::convertToResponse)
+        List<Long> rankedIds = searchIndexService.searchBookmarks(user.getId(), keyword);
+        return toResponses(findAllInRankOrder(rankedIds));
+    }
+
+    public CursorPageResponse<BookmarkResponse> getAllBookmarks(String username, String cursor, Integer size) {
+        User user = authService.findByUsername(username);
+        Pageable pageable = pageRequest(size);
+        if (cursor == null || cursor.isEmpty()) {
+            return toCursorPage(bookmarkRepository.findByUserOrderByCreatedAtDescIdDesc(user, pageable));
+        }
+        CursorUtil.Cursor after = CursorUtil.decode(cursor);
+        return toCursorPage(bookmarkRepository.findByUserAfterCursor(user, after.createdAt(), after.id(), pageable));
+    }
+
+    public CursorPageResponse<BookmarkResponse> getFavoriteBookmarks(String username, String cursor, Integer size) {
+        User user = authService.findByUsername(username);
+        Pageable pageable = pageRequest(size);
+        if (cursor == null || cursor.isEmpty()) {
+            return toCursorPage(bookmarkRepository.findByUserAndIsFavoriteTrueOrderByCreatedAtDescIdDesc(user, pageable));
+        }
+        CursorUtil.Cursor after = CursorUtil.decode(cursor);
+        return toCursorPage(bookmarkRepository.findFavoritesAfterCursor(user, after.createdAt(), after.id(), pageable));
+    }
+
+    public CursorPageResponse<BookmarkResponse> getBookmarksByCollection(String collection, String username, String cursor, Integer size) {
+        User user = authService.findByUsername(username);
+        Pageable pageable = pageRequest(size);
+        if (cursor == null || cursor.isEmpty()) {
+            return toCursorPage(bookmarkRepository.findByUserAndCollectionOrderByCreatedAtDescIdDesc(user, collection, pageable));
+        }
+        CursorUtil.Cursor after = CursorUtil.decode(cursor);
+        return toCursorPage(bookmarkRepository.findByCollectionAfterCursor(user, collection, after.createdAt(), after.id(), pageable));
+    }
+
+    public CursorPageResponse<BookmarkResponse> getBookmarksByTag(String tag, String username, String cursor, Integer size) {
+        User user = authService.findByUsername(username);
+        Pageable pageable = pageRequest(size);
+        Set<String> tags = tagService.matchingTags(user.getId(), tag);
+        if (tags.isEmpty()) {
+            return new CursorPageResponse<>(List.of(), null, false, 0);
+        }
+        if (cursor == null || cursor.isEmpty()) {
+            return toCursorPage(bookmarkRepository.findByTagFirstPage(user, tags, pageable));
+        }
+        CursorUtil.Cursor after = CursorUtil.decode(cursor);
+        return toCursorPage(bookmarkRepository.findByTagAfterCursor(user, tags, after.createdAt(), after.id(), pageable));
+    }
+
+    // Search results are ranked by relevance, so the cursor carries the offset into the ranked hit list
+    public CursorPageResponse<BookmarkResponse> searchBookmarks(String keyword, String username, String cursor, Integer size) {
+        User user = authService.findByUsername(username);
+        int pageSize = pageRequest(size).getPageSize();
+        int offset = cursor == null || cursor.isEmpty() ? 0 : CursorUtil.decodeOffset(cursor);
+
+        List<Long> rankedIds = searchIndexService.searchBookmarks(user.getId(), keyword);
+        int from = Math.min(offset, rankedIds.size());
+        int to = Math.min(from + pageSize, rankedIds.size());
+        boolean hasNext = to < rankedIds.size();
+
+        List<BookmarkResponse> items = toResponses(findAllInRankOrder(rankedIds.subList(from, to)));
+        return new CursorPageResponse<>(items, hasNext ? CursorUtil.encodeOffset(to) : null, hasNext, items.size());
+    }
+
+    // Keyset pages always start at offset 0, the cursor predicate does the skipping
+    private Pageable pageRequest(Integer size) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        return PageRequest.of(0, pageSize);
+    }
+
+    // Loads the bookmarks of a ranked id list and keeps the ranking, in chunks to stay below the SQL Server parameter limit
+    private List<Bookmark> findAllInRankOrder(List<Long> ids) {
+        Map<Long, Bookmark> byId = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            bookmarkRepository.findAllById(ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())))
+                    .forEach(bookmark -> byId.put(bookmark.getId(), bookmark));
+        }
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    private CursorPageResponse<BookmarkResponse> toCursorPage(Slice<Bookmark> slice) {
+        List<Bookmark> content = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !content.isEmpty()) {
+            Bookmark last = content.get(content.size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreatedAt(), last.getId());
+        }
+        List<BookmarkResponse> items = toResponses(content);
+        return new CursorPageResponse<>(items, nextCursor, slice.hasNext(), items.size());
+    }
+
     public List<String> getCollections(String username) {
         User user = authService.findByUsername(username);
         return bookmarkRepository.findDistinctCollectionsByUser(user);
     }
 
+    // A write touches the public feed when the bookmark was public before or is public afterwards
+    private void publishFeedChange(boolean wasPublic, Bookmark saved) {
+        if (wasPublic || (saved != null && Boolean.TRUE.equals(saved.getIsPublic()))) {
+            eventPublisher.publishEvent(new PublicFeedChangedEvent(PublicFeedCache.Feed.BOOKMARKS));
+        }
+    }
+
+    private List<String> tagsOf(Bookmark bookmark) {
+        return bookmark.getTags() != null ? new ArrayList<>(bookmark.getTags()) : List.of();
+    }
+
+    private Long collectionIdOf(Bookmark bookmark) {
+        return bookmark.getCollectionEntity() != null ? bookmark.getCollectionEntity().getId() : null;
+    }
+
+    // Keeps the denormalized bookmark counters of the collections in step, inside the caller's transaction
+    private void updateCollectionCounts(Long previousCollectionId, Collection current) {
+        Long currentCollectionId = current != null ? current.getId() : null;
+        if (Objects.equals(previousCollectionId, currentCollectionId)) {
+            return;
+        }
+        if (previousCollectionId != null) {
+            collectionRepository.adjustBookmarkCount(previousCollectionId, -1);
+        }
+        if (currentCollectionId != null) {
+            collectionRepository.adjustBookmarkCount(currentCollectionId, 1);
+        }
+    }
+
+    // List read path: tags of the whole list come from one IN query per chunk of ids instead of a lazy load per row.
+    // Owners are shared proxies, so the username costs at most one query per distinct owner (none when join fetched).
+    private List<BookmarkResponse> toResponses(List<Bookmark> bookmarks) {
+        Map<Long, List<String>> tags = new HashMap<>();
+        List<Long> ids = bookmarks.stream().map(Bookmark::getId).collect(Collectors.toList());
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            bookmarkRepository.findTagsByBookmarkIds(ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())))
+                    .forEach(row -> tags.computeIfAbsent(row.getOwnerId(), id -> new ArrayList<>()).add(row.getTag()));
+        }
+        return bookmarks.stream()
+                .map(bookmark -> convertToResponse(bookmark, tags.getOrDefault(bookmark.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
+    }
+
     private BookmarkResponse convertToResponse(Bookmark bookmark) {
+        return convertToResponse(bookmark, bookmark.getTags() != null ? new ArrayList<>(bookmark.getTags()) : null);
+    }
+
+    private BookmarkResponse convertToResponse(Bookmark bookmark, List<String> tags) {
         return new BookmarkResponse(
                 bookmark.getId(),
                 bookmark.getTitle(),
                 bookmark.getUrl(),
                 bookmark.getDescription(),
                 bookmark.getCollection(),
-                bookmark.getTags(),
+                tags,
                 bookmark.getIsFavorite(),
                 bookmark.getIsPublic(),
                 bookmark.getFavicon(),
@@ -278,48 +484,18 @@ public class BookmarkService {
     }
 
 
-    public List<BookmarkResponse> filterBookmarks(String title, String url, Boolean isFavorite, String tag, String sortBy, String username) {
+    // Unpaged /filterResult, kept for clients that expect the whole list
+    public List<BookmarkResponse> filterBookmarks(FilterCriteria criteria, String sortBy, String username) {
         User user = authService.findByUsername(username);
-        
-        Specification<Bookmark> spec = (root, query, cb) -> cb.equal(root.get("user"), user);
-        // Đoạn code trên tạo một Specification cơ bản với điều kiện user.
-        if (title != null && !title.isEmpty()) {
-            spec = spec.and(((root, query, cb)
-                    -> cb.like(cb.lower(root.get("title")), "%" + title.toLowerCase() + "%")));
-        }
-        if (url != null && !url.isEmpty()) {
-            spec = spec.and(((root, query, cb)
-                    -> cb.like(cb.lower(root.get("url")), "%" + url.toLowerCase() + "%")));
-        }
-        if (isFavorite != null) {
-            spec = spec.and(((root, query, cb)
-                    -> cb.equal(root.get("isFavorite"), isFavorite)));
-        }
-        if (tag != null && !tag.isEmpty()) {
-            spec = spec.and(((root, query, cb)
-                    -> cb.isMember(tag, root.get("tags"))));
-        }
-        
-        // Default sortBy if not provided
-        if (sortBy == null || sortBy.isEmpty()) {
-            sortBy = "createdAt,desc";
-        }
-        
-        String[] sortDetails = sortBy.split(",");
-        String sortByProperty = sortDetails[0];
-        Sort.Direction sortDirection = Sort.Direction.ASC;
-        boolean isDescending = sortDetails.length > 1 && "desc".equalsIgnoreCase(sortDetails[1]);
-        if (isDescending) {
-            sortDirection = Sort.Direction.DESC;
-        }
-        Sort sort = Sort.by(sortDirection, sortByProperty);
-        List<Bookmark> bookmarks = bookmarkRepository.findAll(spec, sort);
-        return bookmarks
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
-
+        return toResponses(filterEngine.findAll(Bookmark.class, user.getId(), criteria, FilterSort.parse(sortBy)));
     }
 
-
+    public FilterPageResponse<BookmarkResponse> filterBookmarks(FilterCriteria criteria, String sortBy, String username,
+                                                                String cursor, Integer size) {
+        User user = authService.findByUsername(username);
+        FilterPage<Bookmark> page = filterEngine.find(Bookmark.class, user.getId(), criteria, FilterSort.parse(sortBy),
+                cursor, pageRequest(size).getPageSize());
+        List<BookmarkResponse> items = toResponses(page.items());
+        return new FilterPageResponse<>(items, page.nextCursor(), page.hasNext(), items.size(), page.total(), page.totalExact());
+    }
 }
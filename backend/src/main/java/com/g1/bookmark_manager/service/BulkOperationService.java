@@ -0,0 +1,409 @@
+package com.g1.bookmark_manager.service;
+
+import com.g1.bookmark_manager.cache.PublicFeedCache;
+import com.g1.bookmark_manager.cache.PublicFeedChangedEvent;
+import com.g1.bookmark_manager.dto.request.BulkOperationRequest;
+import com.g1.bookmark_manager.dto.response.BulkOperationResponse;
+import com.g1.bookmark_manager.entity.Collection;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.exception.BadRequestException;
+import com.g1.bookmark_manager.repository.BookmarkRepository;
+import com.g1.bookmark_manager.repository.CodeBlockRepository;
+import com.g1.bookmark_manager.repository.CollectionRepository;
+import com.g1.bookmark_manager.search.SearchIndexService;
+import com.g1.bookmark_manager.service.TagService.Kind;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bulk move, tag, favorite, publish and delete of bookmarks or code blocks selected by ids or a filter.
+ * Each operation is a handful of set-based statements in one transaction, every statement restricted to the
+ * caller's rows. Explicit ids are passed in chunks, a filter becomes the WHERE clause of every statement so the
+ * matching ids are never loaded. The bookkeeping that single writes do per row (collection and tag counts,
+ * tombstones, the version stamp, search indexes and the public feed) is redone once for the whole set.
+ */
+@Service
+public class BulkOperationService {
+
+    // Stay below the SQL Server limit of 2100 parameters per statement
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    private final BookmarkRepository bookmarkRepository;
+    private final CodeBlockRepository codeBlockRepository;
+    private final CollectionRepository collectionRepository;
+    private final TagService tagService;
+    private final TombstoneService tombstoneService;
+    private final UserVersionService userVersionService;
+    private final SearchIndexService searchIndexService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BulkOperationService(BookmarkRepository bookmarkRepository,
+                                CodeBlockRepository codeBlockRepository,
+                                CollectionRepository collectionRepository,
+                                TagService tagService,
+                                TombstoneService tombstoneService,
+                                UserVersionService userVersionService,
+                                SearchIndexService searchIndexService,
+                                ApplicationEventPublisher eventPublisher) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.codeBlockRepository = codeBlockRepository;
+        this.collectionRepository = collectionRepository;
+        this.tagService = tagService;
+        this.tombstoneService = tombstoneService;
+        this.userVersionService = userVersionService;
+        this.searchIndexService = searchIndexService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public BulkOperationResponse bulkBookmarks(User user, BulkOperationRequest request) {
+        return execute(Kind.BOOKMARK, user, request);
+    }
+
+    @Transactional
+    public BulkOperationResponse bulkCodeBlocks(User user, BulkOperationRequest request) {
+        return execute(Kind.CODE_BLOCK, user, request);
+    }
+
+    private BulkOperationResponse execute(Kind kind, User user, BulkOperationRequest request) {
+        validate(request);
+        Long userId = user.getId();
+        Targets targets = request.getIds() != null && !request.getIds().isEmpty()
+                ? new OwnedIds(kind, userId, request.getIds())
+                : new Filtered(kind, userId, request.getFilter());
+        int matched = targets.count();
+        if (matched == 0) {
+            return new BulkOperationResponse(request.getAction(), 0, 0);
+        }
+
+        // DATETIME2(6) keeps microseconds, a delete by filter finds its tombstones by this exact value
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        BulkOperationRequest.Action action = request.getAction();
+        boolean changesCollections = action == BulkOperationRequest.Action.MOVE
+                || action == BulkOperationRequest.Action.DELETE;
+        Set<Long> collectionIds = new HashSet<>();
+        if (changesCollections) {
+            collectionIds.addAll(targets.collectionIds());
+        }
+
+        int affected = switch (action) {
+            case MOVE -> move(targets, user, request.getCollection(), now, collectionIds);
+            case ADD_TAGS -> {
+                targets.touch(now);
+                int added = 0;
+                for (String tag : TagService.normalize(request.getTags())) {
+                    added += targets.addTag(tag);
+                }
+                yield added;
+            }
+            // Touched first, a filter on one of the removed tags no longer matches afterwards
+            case REMOVE_TAGS -> {
+                targets.touch(now);
+                yield targets.removeTags(TagService.normalize(request.getTags()));
+            }
+            case FAVORITE, UNFAVORITE -> targets.setFavorite(action == BulkOperationRequest.Action.FAVORITE, now);
+            case PUBLISH, UNPUBLISH -> targets.setPublic(action == BulkOperationRequest.Action.PUBLISH, now);
+            case DELETE -> targets.delete(now);
+        };
+
+        if (changesCollections && !collectionIds.isEmpty()) {
+            sum(new ArrayList<>(collectionIds), chunk -> collectionRepository.recountByIds(chunk, now));
+        }
+        if (action == BulkOperationRequest.Action.ADD_TAGS || action == BulkOperationRequest.Action.REMOVE_TAGS
+                || action == BulkOperationRequest.Action.DELETE) {
+            tagService.recount(userId);
+        }
+        userVersionService.bump(userId);
+        invalidateCaches(kind, userId);
+        return new BulkOperationResponse(action, matched, affected);
+    }
+
+    private void validate(BulkOperationRequest request) {
+        boolean hasIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (hasIds == (request.getFilter() != null)) {
+            throw new BadRequestException("Either ids or filter is required");
+        }
+        boolean tagAction = request.getAction() == BulkOperationRequest.Action.ADD_TAGS
+                || request.getAction() == BulkOperationRequest.Action.REMOVE_TAGS;
+        if (tagAction && (request.getTags() == null || TagService.normalize(request.getTags()).isEmpty())) {
+            throw new BadRequestException("Tags are required for " + request.getAction());
+        }
+    }
+
+    private int move(Targets targets, User user, String collectionName, LocalDateTime now, Set<Long> collectionIds) {
+        String name = blankToNull(collectionName);
+        if (name == null) {
+            return targets.clearCollection(now);
+        }
+        // Same as a single update: the name is kept even when the user has no collection of that name
+        Collection collection = collectionRepository.findByNameAndUser(name, user).orElse(null);
+        if (collection != null) {
+            collectionIds.add(collection.getId());
+        }
+        return targets.move(collection, name, now);
+    }
+
+    // The rows an operation applies to, every statement restricted to the caller's rows
+    private interface Targets {
+        int count();
+
+        List<Long> collectionIds();
+
+        int move(Collection collection, String name, LocalDateTime now);
+
+        int clearCollection(LocalDateTime now);
+
+        int addTag(String tag);
+
+        int removeTags(List<String> tags);
+
+        int setFavorite(boolean value, LocalDateTime now);
+
+        int setPublic(boolean value, LocalDateTime now);
+
+        int touch(LocalDateTime now);
+
+        int delete(LocalDateTime now);
+    }
+
+    // Explicit ids, passed to the statements in chunks. Ids of other users are silently dropped, as if they did not exist
+    private class OwnedIds implements Targets {
+
+        private final Kind kind;
+        private final Long userId;
+        private final List<Long> ids;
+
+        OwnedIds(Kind kind, Long userId, List<Long> requested) {
+            this.kind = kind;
+            this.userId = userId;
+            this.ids = collect(new ArrayList<>(new HashSet<>(requested)), chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.findOwnedIds(userId, chunk)
+                    : codeBlockRepository.findOwnedIds(userId, chunk));
+        }
+
+        @Override
+        public int count() {
+            return ids.size();
+        }
+
+        @Override
+        public List<Long> collectionIds() {
+            return collect(ids, chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.findCollectionIds(userId, chunk)
+                    : codeBlockRepository.findCollectionIds(userId, chunk));
+        }
+
+        @Override
+        public int move(Collection collection, String name, LocalDateTime now) {
+            return sum(ids, chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.moveAll(userId, chunk, collection, name, now)
+                    : codeBlockRepository.moveAll(userId, chunk, collection, name, now));
+        }
+
+        @Override
+        public int clearCollection(LocalDateTime now) {
+            return sum(ids, chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.clearCollectionAll(userId, chunk, now)
+                    : codeBlockRepository.clearCollectionAll(userId, chunk, now));
+        }
+
+        @Override
+        public int addTag(String tag) {
+            return sum(ids, chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.addTagToAll(userId, chunk, tag)
+                    : codeBlockRepository.addTagToAll(userId, chunk, tag));
+        }
+
+        @Override
+        public int removeTags(List<String> tags) {
+            return sum(ids, chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.removeTagsFromAll(userId, chunk, tags)
+                    : codeBlockRepository.removeTagsFromAll(userId, chunk, tags));
+        }
+
+        @Override
+        public int setFavorite(boolean value, LocalDateTime now) {
+            return sum(ids, chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.setFavoriteAll(userId, chunk, value, now)
+                    : codeBlockRepository.setFavoriteAll(userId, chunk, value, now));
+        }
+
+        @Override
+        public int setPublic(boolean value, LocalDateTime now) {
+            return sum(ids, chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.setPublicAll(userId, chunk, value, now)
+                    : codeBlockRepository.setPublicAll(userId, chunk, value, now));
+        }
+
+        @Override
+        public int touch(LocalDateTime now) {
+            return sum(ids, chunk -> kind == Kind.BOOKMARK
+                    ? bookmarkRepository.touchAll(userId, chunk, now)
+                    : codeBlockRepository.touchAll(userId, chunk, now));
+        }
+
+        @Override
+        public int delete(LocalDateTime now) {
+            return sum(ids, chunk -> {
+                if (kind == Kind.BOOKMARK) {
+                    tombstoneService.recordBookmarks(userId, chunk);
+                    bookmarkRepository.deleteTagsOfAll(userId, chunk);
+                    return bookmarkRepository.deleteOwned(userId, chunk);
+                }
+                tombstoneService.recordCodeBlocks(userId, chunk);
+                codeBlockRepository.deleteTagsOfAll(userId, chunk);
+                return codeBlockRepository.deleteOwned(userId, chunk);
+            });
+        }
+    }
+
+    // A filter, applied by every statement itself so the matching rows never travel to the application
+    private class Filtered implements Targets {
+
+        private final Kind kind;
+        private final Long userId;
+        private final String collection;
+        private final String tag;
+        private final Boolean isFavorite;
+        private final Boolean isPublic;
+        private final String language;
+
+        Filtered(Kind kind, Long userId, BulkOperationRequest.Filter filter) {
+            this.kind = kind;
+            this.userId = userId;
+            this.collection = blankToNull(filter.getCollection());
+            this.tag = blankToNull(TagService.fold(filter.getTag()));
+            this.isFavorite = filter.getIsFavorite();
+            this.isPublic = filter.getIsPublic();
+            this.language = blankToNull(filter.getLanguage());
+        }
+
+        @Override
+        public int count() {
+            long count = kind == Kind.BOOKMARK
+                    ? bookmarkRepository.countByFilter(userId, collection, tag, isFavorite, isPublic)
+                    : codeBlockRepository.countByFilter(userId, collection, tag, isFavorite, isPublic, language);
+            return Math.toIntExact(count);
+        }
+
+        @Override
+        public List<Long> collectionIds() {
+            return kind == Kind.BOOKMARK
+                    ? bookmarkRepository.findCollectionIdsByFilter(userId, collection, tag, isFavorite, isPublic)
+                    : codeBlockRepository.findCollectionIdsByFilter(userId, collection, tag, isFavorite, isPublic, language);
+        }
+
+        @Override
+        public int move(Collection target, String name, LocalDateTime now) {
+            return kind == Kind.BOOKMARK
+                    ? bookmarkRepository.moveAllByFilter(userId, collection, tag, isFavorite, isPublic, target, name, now)
+                    : codeBlockRepository.moveAllByFilter(userId, collection, tag, isFavorite, isPublic, language,
+                            target, name, now);
+        }
+
+        @Override
+        public int clearCollection(LocalDateTime now) {
+            return kind == Kind.BOOKMARK
+                    ? bookmarkRepository.clearCollectionAllByFilter(userId, collection, tag, isFavorite, isPublic, now)
+                    : codeBlockRepository.clearCollectionAllByFilter(userId, collection, tag, isFavorite, isPublic,
+                            language, now);
+        }
+
+        @Override
+        public int addTag(String newTag) {
+            return kind == Kind.BOOKMARK
+                    ? bookmarkRepository.addTagToAllByFilter(userId, collection, tag, isFavorite, isPublic, newTag)
+                    : codeBlockRepository.addTagToAllByFilter(userId, collection, tag, isFavorite, isPublic, language,
+                            newTag);
+        }
+
+        @Override
+        public int removeTags(List<String> tags) {
+            return kind == Kind.BOOKMARK
+                    ? bookmarkRepository.removeTagsFromAllByFilter(userId, collection, tag, isFavorite, isPublic, tags)
+                    : codeBlockRepository.removeTagsFromAllByFilter(userId, collection, tag, isFavorite, isPublic,
+                            language, tags);
+        }
+
+        @Override
+        public int setFavorite(boolean value, LocalDateTime now) {
+            return kind == Kind.BOOKMARK
+                    ? bookmarkRepository.setFavoriteAllByFilter(userId, collection, tag, isFavorite, isPublic, value, now)
+                    : codeBlockRepository.setFavoriteAllByFilter(userId, collection, tag, isFavorite, isPublic,
+                            language, value, now);
+        }
+
+        @Override
+        public int setPublic(boolean value, LocalDateTime now) {
+            return kind == Kind.BOOKMARK
+                    ? bookmarkRepository.setPublicAllByFilter(userId, collection, tag, isFavorite, isPublic, value, now)
+                    : codeBlockRepository.setPublicAllByFilter(userId, collection, tag, isFavorite, isPublic,
+                            language, value, now);
+        }
+
+        @Override
+        public int touch(LocalDateTime now) {
+            return kind == Kind.BOOKMARK
+                    ? bookmarkRepository.touchAllByFilter(userId, collection, tag, isFavorite, isPublic, now)
+                    : codeBlockRepository.touchAllByFilter(userId, collection, tag, isFavorite, isPublic, language, now);
+        }
+
+        // The tag rows must go before the rows, and with them the match of a tag filter: the tombstones written
+        // first are what the two deletes select by
+        @Override
+        public int delete(LocalDateTime now) {
+            if (kind == Kind.BOOKMARK) {
+                tombstoneService.recordBookmarks(userId, collection, tag, isFavorite, isPublic, now);
+                bookmarkRepository.deleteTagsOfTombstoned(userId, now);
+                return bookmarkRepository.deleteTombstoned(userId, now);
+            }
+            tombstoneService.recordCodeBlocks(userId, collection, tag, isFavorite, isPublic, language, now);
+            codeBlockRepository.deleteTagsOfTombstoned(userId, now);
+            return codeBlockRepository.deleteTombstoned(userId, now);
+        }
+    }
+
+    // The statements bypass the entity listeners: drop the user's search indexes once the change is visible
+    private void invalidateCaches(Kind kind, Long userId) {
+        if (kind == Kind.BOOKMARK) {
+            eventPublisher.publishEvent(new PublicFeedChangedEvent(PublicFeedCache.Feed.BOOKMARKS));
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                searchIndexService.evictUser(userId);
+            }
+        });
+    }
+
+    private static int sum(List<Long> ids, Function<List<Long>, Integer> statement) {
+        int total = 0;
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            total += statement.apply(ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())));
+        }
+        return total;
+    }
+
+    private static List<Long> collect(List<Long> ids, Function<List<Long>, List<Long>> query) {
+        List<Long> result = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            result.addAll(query.apply(ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size()))));
+        }
+        return result;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -2,27 +2,66 @@ package com.g1.bookmark_manager.service;
 
 import com.g1.bookmark_manager.dto.request.CodeBlockRequest;
 import com.g1.bookmark_manager.dto.response.CodeBlockResponse;
+import com.g1.bookmark_manager.dto.response.CodeBlockSummaryResponse;
+import com.g1.bookmark_manager.dto.response.CursorPageResponse;
+import com.g1.bookmark_manager.dto.response.FilterPageResponse;
 import com.g1.bookmark_manager.entity.CodeBlock;
 import com.g1.bookmark_manager.entity.Collection;
+import com.g1.bookmark_manager.entity.Tombstone;
 import com.g1.bookmark_manager.entity.User;
 import com.g1.bookmark_manager.exception.ResourceNotFoundException;
+import com.g1.bookmark_manager.filter.FilterCriteria;
+import com.g1.bookmark_manager.filter.FilterEngine;
+import com.g1.bookmark_manager.filter.FilterPage;
+import com.g1.bookmark_manager.filter.FilterSort;
 import com.g1.bookmark_manager.repository.CodeBlockRepository;
 import com.g1.bookmark_manager.repository.CollectionRepository;
+import com.g1.bookmark_manager.search.SearchIndexService;
+import com.g1.bookmark_manager.util.CursorUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
 public class CodeBlockService {
+
+    private static final int ID_CHUNK_SIZE = 1000;
     
     @Autowired
     private CodeBlockRepository codeBlockRepository;
     
     @Autowired
     private CollectionRepository collectionRepository;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private UserVersionService userVersionService;
+
+    @Autowired
+    private TombstoneService tombstoneService;
+
+    @Autowired
+    private FilterEngine filterEngine;
+
+    @Value("${app.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-size:200}")
+    private int maxPageSize;
     
     @Transactional
     public CodeBlockResponse createCodeBlock(CodeBlockRequest request, User user) {
@@ -31,7 +70,7 @@ public class CodeBlockService {
         codeBlock.setCode(request.getCode());
         codeBlock.setLanguage(request.getLanguage());
         codeBlock.setDescription(request.getDescription());
-        codeBlock.setTags(request.getTags());
+        codeBlock.setTags(TagService.normalize(request.getTags()));
         codeBlock.setCollection(request.getCollection());
         codeBlock.setIsPublic(request.getIsPublic());
         codeBlock.setIsFavorite(request.getIsFavorite());
@@ -45,46 +84,58 @@ public class CodeBlockService {
         }
         
         CodeBlock savedCodeBlock = codeBlockRepository.save(codeBlock);
+        updateCollectionCounts(null, savedCodeBlock.getCollectionEntity());
+        tagService.recordTagChange(user.getId(), TagService.Kind.CODE_BLOCK, null, savedCodeBlock.getTags());
+        userVersionService.bump(user.getId());
         return convertToResponse(savedCodeBlock);
     }
     
     public List<CodeBlockResponse> getAllCodeBlocks(User user) {
         List<CodeBlock> codeBlocks = codeBlockRepository.findByUserOrderByCreatedAtDesc(user);
-        return codeBlocks.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toResponses(codeBlocks);
+    }
+    
+    // Multi-get in the requested order, ids that are unknown or belong to someone else are skipped
+    public List<CodeBlockResponse> getCodeBlocksByIds(User user, List<Long> ids) {
+        return toResponses(findAllInRankOrder(ids).stream()
+                .filter(codeBlock -> codeBlock.getUser().getId().equals(user.getId()))
+                .collect(Collectors.toList()));
+    }
+    
+    public List<CodeBlockResponse> getCodeBlocksChangedSince(User user, LocalDateTime since) {
+        return toResponses(since == null
+                ? codeBlockRepository.findByUserOrderByCreatedAtDesc(user)
+                : codeBlockRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt(user, since));
     }
     
     public List<CodeBlockResponse> getCodeBlocksByCollection(User user, String collection) {
         List<CodeBlock> codeBlocks = codeBlockRepository.findByUserAndCollectionOrderByCreatedAtDesc(user, collection);
-        return codeBlocks.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toResponses(codeBlocks);
     }
     
     public List<CodeBlockResponse> getFavoriteCodeBlocks(User user) {
         List<CodeBlock> codeBlocks = codeBlockRepository.findByUserAndIsFavoriteOrderByCreatedAtDesc(user, true);
-        return codeBlocks.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toResponses(codeBlocks);
     }
     
     public CodeBlockResponse getCodeBlockById(Long id, User user) {
-        CodeBlock codeBlock = codeBlockRepository.findByIdAndUser(id, user)
+        CodeBlock codeBlock = codeBlockRepository.findOwned(id, user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("CodeBlock not found with id: " + id));
         return convertToResponse(codeBlock);
     }
     
     @Transactional
     public CodeBlockResponse updateCodeBlock(Long id, CodeBlockRequest request, User user) {
-        CodeBlock codeBlock = codeBlockRepository.findByIdAndUser(id, user)
+        CodeBlock codeBlock = codeBlockRepository.findOwned(id, user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("CodeBlock not found with id: " + id));
+        Long previousCollectionId = collectionIdOf(codeBlock);
+        List<String> previousTags = tagsOf(codeBlock);
         
         codeBlock.setTitle(request.getTitle());
         codeBlock.setCode(request.getCode());
         codeBlock.setLanguage(request.getLanguage());
         codeBlock.setDescription(request.getDescription());
-        codeBlock.setTags(request.getTags());
+        codeBlock.setTags(TagService.normalize(request.getTags()));
         codeBlock.setCollection(request.getCollection());
         codeBlock.setIsPublic(request.getIsPublic());
         codeBlock.setIsFavorite(request.getIsFavorite());
@@ -99,45 +150,110 @@ public class CodeBlockService {
         }
         
         CodeBlock updatedCodeBlock = codeBlockRepository.save(codeBlock);
+        updateCollectionCounts(previousCollectionId, updatedCodeBlock.getCollectionEntity());
+        tagService.recordTagChange(user.getId(), TagService.Kind.CODE_BLOCK, previousTags, updatedCodeBlock.getTags());
+        userVersionService.bump(user.getId());
         return convertToResponse(updatedCodeBlock);
     }
     
     @Transactional
     public void deleteCodeBlock(Long id, User user) {
-        CodeBlock codeBlock = codeBlockRepository.findByIdAndUser(id, user)
+        CodeBlock codeBlock = codeBlockRepository.findOwned(id, user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("CodeBlock not found with id: " + id));
+        updateCollectionCounts(collectionIdOf(codeBlock), null);
+        tagService.recordTagChange(user.getId(), TagService.Kind.CODE_BLOCK, tagsOf(codeBlock), null);
+        tombstoneService.record(user.getId(), Tombstone.EntityType.CODE_BLOCK, codeBlock.getId());
+        userVersionService.bump(user.getId());
         codeBlockRepository.delete(codeBlock);
     }
     
+    // Flipped in the database so concurrent toggles cannot overwrite each other with a stale value
     @Transactional
     public CodeBlockResponse toggleFavorite(Long id, User user) {
-        CodeBlock codeBlock = codeBlockRepository.findByIdAndUser(id, user)
+        if (codeBlockRepository.toggleFavoriteOwned(id, user.getId(), LocalDateTime.now()) == 0) {
+            throw new ResourceNotFoundException("CodeBlock not found with id: " + id);
+        }
+        userVersionService.bump(user.getId());
+        CodeBlock codeBlock = codeBlockRepository.findOwned(id, user.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("CodeBlock not found with id: " + id));
-        
-        codeBlock.setIsFavorite(!codeBlock.getIsFavorite());
-        CodeBlock updatedCodeBlock = codeBlockRepository.save(codeBlock);
-        return convertToResponse(updatedCodeBlock);
+        return convertToResponse(codeBlock);
     }
     
     public List<CodeBlockResponse> searchCodeBlocks(User user, String searchTerm) {
-        List<CodeBlock> codeBlocks = codeBlockRepository.findByUserAndSearchTerm(user, searchTerm);
-        return codeBlocks.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<Long> rankedIds = searchIndexService.searchCodeBlocks(user.getId(), searchTerm, null);
+        return toResponses(findAllInRankOrder(rankedIds));
     }
     
     public List<CodeBlockResponse> searchCodeBlocksByCollection(User user, String collection, String searchTerm) {
-        List<CodeBlock> codeBlocks = codeBlockRepository.findByUserAndCollectionAndSearchTerm(user, collection, searchTerm);
-        return codeBlocks.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<Long> rankedIds = searchIndexService.searchCodeBlocks(user.getId(), searchTerm, collection);
+        return toResponses(findAllInRankOrder(rankedIds));
+    }
+
+    // Ranked page of search results, the cursor carries the offset into the ranked hit list
+    public CursorPageResponse<CodeBlockResponse> searchCodeBlocks(User user, String searchTerm, String collection, String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        int offset = cursor == null || cursor.isEmpty() ? 0 : CursorUtil.decodeOffset(cursor);
+
+        String collectionFilter = collection != null && !collection.isEmpty() ? collection : null;
+        List<Long> rankedIds = searchIndexService.searchCodeBlocks(user.getId(), searchTerm, collectionFilter);
+        int from = Math.min(offset, rankedIds.size());
+        int to = Math.min(from + pageSize, rankedIds.size());
+        boolean hasNext = to < rankedIds.size();
+
+        List<CodeBlockResponse> items = toResponses(findAllInRankOrder(rankedIds.subList(from, to)));
+        return new CursorPageResponse<>(items, hasNext ? CursorUtil.encodeOffset(to) : null, hasNext, items.size());
+    }
+    
+    // Summary views of the list endpoints, same order and filters as the full views above
+    public List<CodeBlockSummaryResponse> getAllCodeBlockSummaries(User user) {
+        return toSummaries(codeBlockRepository.findSummariesByUserId(user.getId()));
+    }
+
+    public List<CodeBlockSummaryResponse> getCodeBlockSummariesByCollection(User user, String collection) {
+        return toSummaries(codeBlockRepository.findSummariesByUserIdAndCollection(user.getId(), collection));
+    }
+
+    public List<CodeBlockSummaryResponse> getFavoriteCodeBlockSummaries(User user) {
+        return toSummaries(codeBlockRepository.findFavoriteSummariesByUserId(user.getId()));
+    }
+
+    public List<CodeBlockSummaryResponse> getCodeBlockSummariesByLanguage(User user, String language) {
+        return toSummaries(codeBlockRepository.findSummariesByUserIdAndLanguage(user.getId(), language));
+    }
+
+    public List<CodeBlockSummaryResponse> searchCodeBlockSummaries(User user, String searchTerm, String collection) {
+        String collectionFilter = collection != null && !collection.isEmpty() ? collection : null;
+        List<Long> rankedIds = searchIndexService.searchCodeBlocks(user.getId(), searchTerm, collectionFilter);
+        return toSummaries(findSummariesInRankOrder(user, rankedIds));
+    }
+
+    public CursorPageResponse<CodeBlockSummaryResponse> searchCodeBlockSummaries(User user, String searchTerm, String collection,
+                                                                                 String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        int offset = cursor == null || cursor.isEmpty() ? 0 : CursorUtil.decodeOffset(cursor);
+
+        String collectionFilter = collection != null && !collection.isEmpty() ? collection : null;
+        List<Long> rankedIds = searchIndexService.searchCodeBlocks(user.getId(), searchTerm, collectionFilter);
+        int from = Math.min(offset, rankedIds.size());
+        int to = Math.min(from + pageSize, rankedIds.size());
+        boolean hasNext = to < rankedIds.size();
+
+        List<CodeBlockSummaryResponse> items = toSummaries(findSummariesInRankOrder(user, rankedIds.subList(from, to)));
+        return new CursorPageResponse<>(items, hasNext ? CursorUtil.encodeOffset(to) : null, hasNext, items.size());
+    }
+
+    public FilterPageResponse<CodeBlockResponse> filterCodeBlocks(User user, FilterCriteria criteria, String sortBy,
+                                                                  String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        FilterPage<CodeBlock> page = filterEngine.find(CodeBlock.class, user.getId(), criteria, FilterSort.parse(sortBy),
+                cursor, pageSize);
+        List<CodeBlockResponse> items = toResponses(page.items());
+        return new FilterPageResponse<>(items, page.nextCursor(), page.hasNext(), items.size(), page.total(), page.totalExact());
     }
     
     public List<CodeBlockResponse> getCodeBlocksByLanguage(User user, String language) {
         List<CodeBlock> codeBlocks = codeBlockRepository.findByUserAndLanguageOrderByCreatedAtDesc(user, language);
-        return codeBlocks.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return toResponses(codeBlocks);
     }
     
     public Long getCodeBlockCountByCollection(User user, String collection) {
@@ -148,14 +264,110 @@ public class CodeBlockService {
         return codeBlockRepository.findDistinctCollectionsByUser(user);
     }
     
+    // Loads the code blocks of a ranked id list and keeps the ranking, in chunks to stay below the SQL Server parameter limit
+    private List<CodeBlock> findAllInRankOrder(List<Long> ids) {
+        Map<Long, CodeBlock> byId = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            codeBlockRepository.findAllById(ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())))
+                    .forEach(codeBlock -> byId.put(codeBlock.getId(), codeBlock));
+        }
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    private List<CodeBlockRepository.SummaryRow> findSummariesInRankOrder(User user, List<Long> ids) {
+        Map<Long, CodeBlockRepository.SummaryRow> byId = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            codeBlockRepository.findSummariesByIds(user.getId(), ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())))
+                    .forEach(row -> byId.put(row.getId(), row));
+        }
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    private List<String> tagsOf(CodeBlock codeBlock) {
+        return codeBlock.getTags() != null ? new ArrayList<>(codeBlock.getTags()) : List.of();
+    }
+
+    private Long collectionIdOf(CodeBlock codeBlock) {
+        return codeBlock.getCollectionEntity() != null ? codeBlock.getCollectionEntity().getId() : null;
+    }
+
+    // Keeps the denormalized code block counters of the collections in step, inside the caller's transaction
+    private void updateCollectionCounts(Long previousCollectionId, Collection current) {
+        Long currentCollectionId = current != null ? current.getId() : null;
+        if (Objects.equals(previousCollectionId, currentCollectionId)) {
+            return;
+        }
+        if (previousCollectionId != null) {
+            collectionRepository.adjustCodeBlockCount(previousCollectionId, -1);
+        }
+        if (currentCollectionId != null) {
+            collectionRepository.adjustCodeBlockCount(currentCollectionId, 1);
+        }
+    }
+    
+    // List read path: tags of the whole list come from one IN query per chunk of ids instead of a lazy load per row
+    private List<CodeBlockResponse> toResponses(List<CodeBlock> codeBlocks) {
+        Map<Long, List<String>> tags = new HashMap<>();
+        List<Long> ids = codeBlocks.stream().map(CodeBlock::getId).collect(Collectors.toList());
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            codeBlockRepository.findTagsByCodeBlockIds(ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())))
+                    .forEach(row -> tags.computeIfAbsent(row.getOwnerId(), id -> new ArrayList<>()).add(row.getTag()));
+        }
+        return codeBlocks.stream()
+                .map(codeBlock -> convertToResponse(codeBlock, tags.getOrDefault(codeBlock.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
+    }
+
+    private List<CodeBlockSummaryResponse> toSummaries(List<CodeBlockRepository.SummaryRow> rows) {
+        Map<Long, List<String>> tags = new HashMap<>();
+        List<Long> ids = rows.stream().map(CodeBlockRepository.SummaryRow::getId).collect(Collectors.toList());
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            codeBlockRepository.findTagsByCodeBlockIds(ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())))
+                    .forEach(row -> tags.computeIfAbsent(row.getOwnerId(), id -> new ArrayList<>()).add(row.getTag()));
+        }
+        return rows.stream()
+                .map(row -> toSummary(row, tags.getOrDefault(row.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
+    }
+
+    private CodeBlockSummaryResponse toSummary(CodeBlockRepository.SummaryRow row, List<String> tags) {
+        CodeBlockSummaryResponse summary = new CodeBlockSummaryResponse();
+        summary.setId(row.getId());
+        summary.setTitle(row.getTitle());
+        summary.setLanguage(row.getLanguage());
+        summary.setDescription(row.getDescription());
+        summary.setPreview(row.getPreview());
+        long sizeBytes = row.getSizeBytes() != null ? row.getSizeBytes() : 0;
+        summary.setSizeBytes(sizeBytes);
+        summary.setTruncated(row.getPreview() != null && row.getPreview().length() >= CodeBlockRepository.PREVIEW_LENGTH
+                && sizeBytes > CodeBlockRepository.PREVIEW_LENGTH);
+        summary.setTags(tags);
+        summary.setCollection(row.getCollection());
+        summary.setIsPublic(row.getIsPublic());
+        summary.setIsFavorite(row.getIsFavorite());
+        summary.setCreatedAt(row.getCreatedAt());
+        summary.setUpdatedAt(row.getUpdatedAt());
+        return summary;
+    }
+
     private CodeBlockResponse convertToResponse(CodeBlock codeBlock) {
+        return convertToResponse(codeBlock, codeBlock.getTags() != null ? new ArrayList<>(codeBlock.getTags()) : null);
+    }
+    
+    private CodeBlockResponse convertToResponse(CodeBlock codeBlock, List<String> tags) {
         CodeBlockResponse response = new CodeBlockResponse();
         response.setId(codeBlock.getId());
         response.setTitle(codeBlock.getTitle());
         response.setCode(codeBlock.getCode());
         response.setLanguage(codeBlock.getLanguage());
         response.setDescription(codeBlock.getDescription());
-        response.setTags(codeBlock.getTags());
+        response.setTags(tags);
         response.setCollection(codeBlock.getCollection());
         response.setIsPublic(codeBlock.getIsPublic());
         response.setIsFavorite(codeBlock.getIsFavorite());
@@ -0,0 +1,170 @@
+package com.g1.bookmark_manager.service;
+
+import com.g1.bookmark_manager.cache.PublicFeedCache;
+import com.g1.bookmark_manager.cache.PublicFeedChangedEvent;
+import com.g1.bookmark_manager.dto.response.CollectionDeletionResponse;
+import com.g1.bookmark_manager.entity.Tombstone;
+import com.g1.bookmark_manager.exception.ResourceNotFoundException;
+import com.g1.bookmark_manager.repository.BookmarkRepository;
+import com.g1.bookmark_manager.repository.CodeBlockRepository;
+import com.g1.bookmark_manager.repository.CollectionRepository;
+import com.g1.bookmark_manager.search.SearchIndexService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Removes the bookmarks and code blocks of deleted collections. Deleting a collection only marks it; the children
+ * are then deleted here in chunks of set-based statements, each chunk in its own short transaction, and the
+ * collection row goes last. A purge starts right after the delete commits, the periodic poll resumes purges
+ * interrupted by a restart. A lease on the collection row keeps two instances off the same collection.
+ */
+@Slf4j
+@Service
+public class CollectionPurgeService {
+
+    private final CollectionRepository collectionRepository;
+    private final BookmarkRepository bookmarkRepository;
+    private final CodeBlockRepository codeBlockRepository;
+    private final TombstoneService tombstoneService;
+    private final TagService tagService;
+    private final UserVersionService userVersionService;
+    private final SearchIndexService searchIndexService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final Duration lease;
+
+    public CollectionPurgeService(CollectionRepository collectionRepository,
+                                  BookmarkRepository bookmarkRepository,
+                                  CodeBlockRepository codeBlockRepository,
+                                  TombstoneService tombstoneService,
+                                  TagService tagService,
+                                  UserVersionService userVersionService,
+                                  SearchIndexService searchIndexService,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.collections.purge.chunk-size:500}") int chunkSize,
+                                  @Value("${app.collections.purge.lease:5m}") Duration lease) {
+        this.collectionRepository = collectionRepository;
+        this.bookmarkRepository = bookmarkRepository;
+        this.codeBlockRepository = codeBlockRepository;
+        this.tombstoneService = tombstoneService;
+        this.tagService = tagService;
+        this.userVersionService = userVersionService;
+        this.searchIndexService = searchIndexService;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("collection-purge-"));
+        this.chunkSize = chunkSize;
+        this.lease = lease;
+    }
+
+    // Called once the transaction that marked the collection deleted has committed
+    public void schedule(Long collectionId) {
+        executor.execute(() -> purge(collectionId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.collections.purge.poll-interval-ms:60000}")
+    public void resume() {
+        for (Long collectionId : collectionRepository.findPurgeableIds(LocalDateTime.now())) {
+            executor.execute(() -> purge(collectionId));
+        }
+    }
+
+    public CollectionDeletionResponse progress(Long collectionId, Long userId) {
+        CollectionRepository.DeletedCollectionView deleted = collectionRepository.findDeleted(collectionId)
+                .filter(collection -> collection.getUserId().equals(userId))
+                .orElse(null);
+        if (deleted != null) {
+            long remaining = bookmarkRepository.countByCollectionEntityId(collectionId)
+                    + codeBlockRepository.countByCollectionEntityId(collectionId);
+            long total = countOf(deleted.getBookmarkCount()) + countOf(deleted.getCodeBlockCount());
+            return new CollectionDeletionResponse(collectionId, CollectionDeletionResponse.Status.PURGING,
+                    Math.max(total, remaining), remaining);
+        }
+        if (tombstoneService.wasDeleted(userId, Tombstone.EntityType.COLLECTION, collectionId)) {
+            return new CollectionDeletionResponse(collectionId, CollectionDeletionResponse.Status.DONE, 0, 0);
+        }
+        throw new ResourceNotFoundException("No deletion found for collection with id: " + collectionId);
+    }
+
+    void purge(Long collectionId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (collectionRepository.claimPurge(collectionId, now, now.plus(lease)) == 0) {
+            return;
+        }
+        try {
+            Long userId = collectionRepository.findDeleted(collectionId)
+                    .map(CollectionRepository.DeletedCollectionView::getUserId)
+                    .orElse(null);
+            if (userId == null) {
+                return;
+            }
+            long purged = 0;
+            int deleted;
+            do {
+                deleted = transaction.execute(status -> purgeChunk(userId, collectionId));
+                purged += deleted;
+                collectionRepository.extendPurgeLease(collectionId, LocalDateTime.now().plus(lease));
+            } while (deleted > 0);
+
+            transaction.executeWithoutResult(status -> {
+                collectionRepository.deletePurged(collectionId);
+                tagService.recount(userId);
+                userVersionService.bump(userId);
+                eventPublisher.publishEvent(new PublicFeedChangedEvent(PublicFeedCache.Feed.BOOKMARKS));
+            });
+            searchIndexService.evictUser(userId);
+            log.info("Purged collection {} with {} bookmarks and code blocks", collectionId, purged);
+        } catch (RuntimeException e) {
+            // The lease runs out and the next poll picks the collection up again
+            log.warn("Purge of collection {} failed, retrying later", collectionId, e);
+        }
+    }
+
+    // Bookmarks first, then code blocks; every chunk is visible to /api/sync through its tombstones
+    private int purgeChunk(Long userId, Long collectionId) {
+        Pageable chunk = PageRequest.of(0, chunkSize);
+        List<Long> ids = bookmarkRepository.findIdsByCollectionId(collectionId, chunk);
+        if (!ids.isEmpty()) {
+            tombstoneService.recordBookmarks(userId, ids);
+            bookmarkRepository.deleteTagsOfAll(userId, ids);
+            bookmarkRepository.deleteOwned(userId, ids);
+        } else {
+            ids = codeBlockRepository.findIdsByCollectionId(collectionId, chunk);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            tombstoneService.recordCodeBlocks(userId, ids);
+            codeBlockRepository.deleteTagsOfAll(userId, ids);
+            codeBlockRepository.deleteOwned(userId, ids);
+        }
+        userVersionService.bump(userId);
+        return ids.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static long countOf(Integer count) {
+        return count != null ? Math.max(count, 0) : 0;
+    }
+}
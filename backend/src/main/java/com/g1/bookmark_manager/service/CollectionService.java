@@ -1,32 +1,76 @@
 package com.g1.bookmark_manager.service;
 
+import com.g1.bookmark_manager.cache.PublicFeedCache;
+import com.g1.bookmark_manager.cache.PublicFeedChangedEvent;
 import com.g1.bookmark_manager.dto.request.CollectionRequest;
+import com.g1.bookmark_manager.dto.response.CollectionDeletionResponse;
 import com.g1.bookmark_manager.dto.response.CollectionResponse;
+import com.g1.bookmark_manager.dto.response.CursorPageResponse;
 import com.g1.bookmark_manager.entity.Collection;
+import com.g1.bookmark_manager.entity.Tombstone;
 import com.g1.bookmark_manager.entity.User;
 import com.g1.bookmark_manager.repository.CollectionRepository;
 import com.g1.bookmark_manager.repository.UserRepository;
 import com.g1.bookmark_manager.exception.ResourceNotFoundException;
+import com.g1.bookmark_manager.util.CursorUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class CollectionService {
 
+    // Stay below the SQL Server limit of 2100 parameters per statement
+    private static final int ID_CHUNK_SIZE = 1000;
+
     private final CollectionRepository collectionRepository;
     private final UserRepository userRepository;
+    private final PublicFeedCache publicFeedCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserVersionService userVersionService;
+    private final TombstoneService tombstoneService;
+    private final CollectionPurgeService collectionPurgeService;
+
+    @Value("${app.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-size:200}")
+    private int maxPageSize;
 
     @Autowired
-    public CollectionService(CollectionRepository collectionRepository, UserRepository userRepository) {
+    public CollectionService(CollectionRepository collectionRepository,
+                             UserRepository userRepository,
+                             PublicFeedCache publicFeedCache,
+                             ApplicationEventPublisher eventPublisher,
+                             UserVersionService userVersionService,
+                             TombstoneService tombstoneService,
+                             CollectionPurgeService collectionPurgeService) {
         this.collectionRepository = collectionRepository;
         this.userRepository = userRepository;
+        this.publicFeedCache = publicFeedCache;
+        this.eventPublisher = eventPublisher;
+        this.userVersionService = userVersionService;
+        this.tombstoneService = tombstoneService;
+        this.collectionPurgeService = collectionPurgeService;
     }
 
     // Create a new collection
+    @Transactional
     public CollectionResponse createCollection(Long userId, CollectionRequest request) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
@@ -40,25 +84,81 @@ public class CollectionService {
         collection.setUser(user);
 
         collectionRepository.save(collection);
+        userVersionService.bump(userId);
+        publishFeedChange(false, collection);
 
         return CollectionResponse.fromEntity(collection);
     }
 
     // Get all collections for a user
+    @Transactional
     public List<CollectionResponse> getAllCollections(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
-        return collectionRepository.findByUserOrderBySortOrder(user)
+        List<Collection> collections = collectionRepository.findByUserOrderBySortOrder(user);
+        // Rows created before the counter columns existed have no counts yet, backfill them once
+        if (collections.stream().anyMatch(c -> c.getBookmarkCount() == null || c.getCodeBlockCount() == null)) {
+            collectionRepository.recountByUser(user);
+            collections = collectionRepository.findByUserOrderBySortOrder(user);
+        }
+        return collections
+                .stream()
+                .map(CollectionResponse::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    // Collections created or changed after the given time, all of them when it is null
+    @Transactional(readOnly = true)
+    public List<CollectionResponse> getCollectionsChangedSince(User user, LocalDateTime since) {
+        List<Collection> collections = since == null
+                ? collectionRepository.findByUserOrderBySortOrder(user)
+                : collectionRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt(user, since);
+        return collections
                 .stream()
                 .map(CollectionResponse::fromEntity)
                 .collect(Collectors.toList());
     }
 
+    public CollectionResponse getCollectionById(Long collectionId, Long userId) {
+        return collectionRepository.findOwned(collectionId, userId)
+                .map(CollectionResponse::fromEntity)
+                .orElseThrow(() -> new ResourceNotFoundException("Collection not found with id: " + collectionId));
+    }
+
+    // Multi-get in the requested order, ids that are unknown or belong to someone else are skipped
+    @Transactional(readOnly = true)
+    public List<CollectionResponse> getCollectionsByIds(Long userId, List<Long> ids) {
+        Map<Long, Collection> byId = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += ID_CHUNK_SIZE) {
+            collectionRepository.findOwned(userId, ids.subList(i, Math.min(i + ID_CHUNK_SIZE, ids.size())))
+                    .forEach(collection -> byId.put(collection.getId(), collection));
+        }
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(CollectionResponse::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    // Get all collections for a user with exact bookmark and code block counts from one aggregate query
+    @Transactional(readOnly = true)
+    public List<CollectionResponse> getCollectionSummaries(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        return collectionRepository.findCountsByUser(user)
+                .stream()
+                .map(CollectionResponse::fromCountView)
+                .collect(Collectors.toList());
+    }
+
     // Update an existing collection
-    public CollectionResponse updateCollection(Long collectionId, CollectionRequest request) {
-        Collection collection = collectionRepository.findById(collectionId)
+    @Transactional
+    public CollectionResponse updateCollection(Long collectionId, Long userId, CollectionRequest request) {
+        Collection collection = collectionRepository.findOwned(collectionId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Collection not found with id: " + collectionId));
+        boolean wasPublic = Boolean.TRUE.equals(collection.getIsPublic());
 
         collection.setName(request.getName());
         collection.setIcon(request.getIcon());
@@ -66,15 +166,68 @@ public class CollectionService {
         collection.setIsPublic(request.getIsPublic());
         collection.setSortOrder(request.getSortOrder());
         collectionRepository.save(collection);
+        userVersionService.bump(userId);
+        publishFeedChange(wasPublic, collection);
 
         return CollectionResponse.fromEntity(collection);
     }
 
-    // Delete a collection
-    public void deleteCollection(Long collectionId) {
-        Collection collection = collectionRepository.findById(collectionId)
+    // Delete a collection: hidden right away, its bookmarks and code blocks are purged in the background
+    @Transactional
+    public CollectionDeletionResponse deleteCollection(Long collectionId, Long userId) {
+        Collection collection = collectionRepository.findOwned(collectionId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Collection not found with id: " + collectionId));
 
-        collectionRepository.delete(collection);
+        collection.setDeletedAt(LocalDateTime.now());
+        collectionRepository.save(collection);
+        tombstoneService.record(userId, Tombstone.EntityType.COLLECTION, collectionId);
+        userVersionService.bump(userId);
+        publishFeedChange(Boolean.TRUE.equals(collection.getIsPublic()), null);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                collectionPurgeService.schedule(collectionId);
+            }
+        });
+
+        long total = (collection.getBookmarkCount() != null ? collection.getBookmarkCount() : 0)
+                + (collection.getCodeBlockCount() != null ? collection.getCodeBlockCount() : 0);
+        return new CollectionDeletionResponse(collectionId, CollectionDeletionResponse.Status.PURGING, total, total);
+    }
+
+    public CollectionDeletionResponse getDeletionProgress(Long collectionId, Long userId) {
+        return collectionPurgeService.progress(collectionId, userId);
+    }
+
+    // Public collections of all users, keyset paginated and served from the shared feed cache
+    public CursorPageResponse<CollectionResponse> getPublicCollections(String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        Pageable pageable = PageRequest.of(0, pageSize);
+        String key = (cursor == null ? "" : cursor) + ":" + pageSize;
+        return publicFeedCache.get(PublicFeedCache.Feed.COLLECTIONS, key, () -> {
+            Slice<Collection> slice;
+            if (cursor == null || cursor.isEmpty()) {
+                slice = collectionRepository.findByIsPublicTrueOrderByCreatedAtDescIdDesc(pageable);
+            } else {
+                CursorUtil.Cursor after = CursorUtil.decode(cursor);
+                slice = collectionRepository.findPublicAfterCursor(after.createdAt(), after.id(), pageable);
+            }
+            List<Collection> content = slice.getContent();
+            String nextCursor = null;
+            if (slice.hasNext() && !content.isEmpty()) {
+                Collection last = content.get(content.size() - 1);
+                nextCursor = CursorUtil.encode(last.getCreatedAt(), last.getId());
+            }
+            List<CollectionResponse> items = content.stream()
+                    .map(CollectionResponse::fromEntity)
+                    .collect(Collectors.toList());
+            return new CursorPageResponse<>(items, nextCursor, slice.hasNext(), items.size());
+        });
+    }
+
+    private void publishFeedChange(boolean wasPublic, Collection saved) {
+        if (wasPublic || (saved != null && Boolean.TRUE.equals(saved.getIsPublic()))) {
+            eventPublisher.publishEvent(new PublicFeedChangedEvent(PublicFeedCache.Feed.COLLECTIONS));
+        }
     }
 }
@@ -4,10 +4,12 @@ import com.g1.bookmark_manager.entity.Role;
 import com.g1.bookmark_manager.entity.User;
 import com.g1.bookmark_manager.repository.RoleRepository;
 import com.g1.bookmark_manager.repository.UserRepository;
-import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -17,18 +19,29 @@ public class DataInitializationService {
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final boolean seedOnStartup;
 
     public DataInitializationService(RoleRepository roleRepository, 
                                    UserRepository userRepository,
-                                   PasswordEncoder passwordEncoder) {
+                                   PasswordEncoder passwordEncoder,
+                                   @Value("${app.seed.default-data:true}") boolean seedOnStartup) {
         this.roleRepository = roleRepository;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.seedOnStartup = seedOnStartup;
     }
 
-    @PostConstruct
-    @Transactional
-    public void initializeDefaultData() {
+    // Roles come with the V4 migration, the admin account is created in the background once the application
+    // serves requests, so a restart never waits for these queries or the password hash
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedInBackground() {
+        if (seedOnStartup) {
+            new CustomizableThreadFactory("default-data-").newThread(this::initializeDefaultData).start();
+        }
+    }
+
+    // Idempotent, synchronized so an explicit call (tests, benchmarks) and the background run do not race
+    public synchronized void initializeDefaultData() {
         initializeRoles();
         initializeAdminUser();
     }
@@ -0,0 +1,233 @@
+package com.g1.bookmark_manager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g1.bookmark_manager.dto.response.BookmarkResponse;
+import com.g1.bookmark_manager.dto.response.CodeBlockResponse;
+import com.g1.bookmark_manager.entity.User;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a user's bookmarks and code blocks to a stream without holding the library in memory.
+ * Every export reads one forward-only result set of scalar rows in a read-only transaction, fetchSize rows at a
+ * time, and writes each item as soon as its last row was read. Tags are joined into the same statement, one row per
+ * tag, so no second statement runs on the connection while the result set is open (that would make the SQL Server
+ * driver buffer the remaining rows). Scalar rows never enter the persistence context, there is nothing to clear.
+ * The formats match what {@link BookmarkImportService} reads.
+ */
+@Slf4j
+@Service
+public class LibraryExportService {
+
+    // Rows of one bookmark are adjacent, the tag is the last column and null for untagged bookmarks
+    private static final String BOOKMARK_ROWS = "SELECT b.id, b.title, b.url, b.description, b.collection, b.isFavorite, " +
+            "b.isPublic, b.favicon, b.createdAt, b.updatedAt, t FROM Bookmark b LEFT JOIN b.tags t " +
+            "WHERE b.user.id = :userId ";
+    private static final String BOOKMARKS_BY_DATE = BOOKMARK_ROWS + "ORDER BY b.createdAt DESC, b.id DESC";
+    // Folder by folder for the HTML export, in the order of idx_bookmarks_user_collection_created
+    private static final String BOOKMARKS_BY_COLLECTION = BOOKMARK_ROWS + "ORDER BY b.collection, b.createdAt DESC, b.id DESC";
+    private static final String CODE_BLOCK_ROWS = "SELECT c.id, c.title, c.code, c.language, c.description, c.collection, " +
+            "c.isPublic, c.isFavorite, c.createdAt, c.updatedAt, t FROM CodeBlock c LEFT JOIN c.tags t " +
+            "WHERE c.user.id = :userId ORDER BY c.createdAt DESC, c.id DESC";
+
+    @FunctionalInterface
+    private interface ItemWriter {
+        void write(Object[] row, List<String> tags) throws IOException;
+    }
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnly;
+    private final int fetchSize;
+
+    public LibraryExportService(EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.export.fetch-size:500}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    // One BookmarkResponse JSON object per line, importable through POST /api/bookmarks/import
+    public long writeBookmarksNdjson(User user, OutputStream out) throws IOException {
+        return scroll(BOOKMARKS_BY_DATE, user.getId(), (row, tags) -> {
+            out.write(objectMapper.writeValueAsBytes(toBookmark(row, tags, user)));
+            out.write('\n');
+        });
+    }
+
+    public long writeCodeBlocksNdjson(User user, OutputStream out) throws IOException {
+        return scroll(CODE_BLOCK_ROWS, user.getId(), (row, tags) -> {
+            out.write(objectMapper.writeValueAsBytes(toCodeBlock(row, tags, user)));
+            out.write('\n');
+        });
+    }
+
+    // Netscape bookmark file, every collection becomes a folder. The writer is flushed, never closed
+    public long writeBookmarksHtml(User user, OutputStream out) throws IOException {
+        Writer html = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        html.write("<!DOCTYPE NETSCAPE-Bookmark-file-1>\n");
+        html.write("<META HTTP-EQUIV=\"Content-Type\" CONTENT=\"text/html; charset=UTF-8\">\n");
+        html.write("<TITLE>Bookmarks</TITLE>\n<H1>Bookmarks</H1>\n<DL><p>\n");
+        String[] folder = {null};
+        long count = scroll(BOOKMARKS_BY_COLLECTION, user.getId(), (row, tags) -> {
+            String collection = (String) row[4];
+            if (!Objects.equals(collection, folder[0])) {
+                if (folder[0] != null) {
+                    html.write("    </DL><p>\n");
+                }
+                if (collection != null) {
+                    html.write("    <DT><H3>" + escape(collection) + "</H3>\n    <DL><p>\n");
+                }
+                folder[0] = collection;
+            }
+            String indent = collection != null ? "        " : "    ";
+            html.write(indent + "<DT><A HREF=\"" + escape((String) row[2]) + "\"");
+            html.write(" ADD_DATE=\"" + epochSeconds((LocalDateTime) row[8]) + "\"");
+            html.write(" LAST_MODIFIED=\"" + epochSeconds((LocalDateTime) row[9]) + "\"");
+            if (row[7] != null) {
+                html.write(" ICON_URI=\"" + escape((String) row[7]) + "\"");
+            }
+            if (!tags.isEmpty()) {
+                html.write(" TAGS=\"" + escape(String.join(",", tags)) + "\"");
+            }
+            html.write(">" + escape((String) row[1]) + "</A>\n");
+            if (row[3] != null && !((String) row[3]).isEmpty()) {
+                html.write(indent + "<DD>" + escape((String) row[3]) + "\n");
+            }
+        });
+        if (folder[0] != null) {
+            html.write("    </DL><p>\n");
+        }
+        html.write("</DL><p>\n");
+        html.flush();
+        return count;
+    }
+
+    // bookmarks.ndjson, bookmarks.html and codeblocks.ndjson, every entry is streamed into the archive
+    public void writeArchive(User user, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        zip.putNextEntry(new ZipEntry("bookmarks.ndjson"));
+        long bookmarks = writeBookmarksNdjson(user, zip);
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry("bookmarks.html"));
+        writeBookmarksHtml(user, zip);
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry("codeblocks.ndjson"));
+        long codeBlocks = writeCodeBlocksNdjson(user, zip);
+        zip.closeEntry();
+        zip.finish();
+        log.info("Exported {} bookmarks and {} code blocks of user {}", bookmarks, codeBlocks, user.getUsername());
+    }
+
+    // Groups the adjacent rows of one item and hands it to the writer with its tags, returns the number of items
+    private long scroll(String jpql, Long userId, ItemWriter writer) throws IOException {
+        try {
+            Long count = readOnly.execute(status -> {
+                long items = 0;
+                Object[] current = null;
+                List<String> tags = new ArrayList<>();
+                try (ScrollableResults<Object[]> rows = entityManager.unwrap(Session.class)
+                        .createSelectionQuery(jpql, Object[].class)
+                        .setParameter("userId", userId)
+                        .setReadOnly(true)
+                        .setFetchSize(fetchSize)
+                        .scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (rows.next()) {
+                        Object[] row = rows.get();
+                        if (current != null && !current[0].equals(row[0])) {
+                            writer.write(current, tags);
+                            items++;
+                            tags = new ArrayList<>();
+                        }
+                        current = row;
+                        if (row[row.length - 1] != null) {
+                            tags.add((String) row[row.length - 1]);
+                        }
+                    }
+                    if (current != null) {
+                        writer.write(current, tags);
+                        items++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return items;
+            });
+            return count != null ? count : 0;
+        } catch (UncheckedIOException e) {
+            // The client went away, stop reading
+            throw e.getCause();
+        }
+    }
+
+    private BookmarkResponse toBookmark(Object[] row, List<String> tags, User user) {
+        return new BookmarkResponse(
+                (Long) row[0],
+                (String) row[1],
+                (String) row[2],
+                (String) row[3],
+                (String) row[4],
+                tags,
+                (Boolean) row[5],
+                (Boolean) row[6],
+                (String) row[7],
+                (LocalDateTime) row[8],
+                (LocalDateTime) row[9],
+                user.getUsername());
+    }
+
+    private CodeBlockResponse toCodeBlock(Object[] row, List<String> tags, User user) {
+        CodeBlockResponse response = new CodeBlockResponse();
+        response.setId((Long) row[0]);
+        response.setTitle((String) row[1]);
+        response.setCode((String) row[2]);
+        response.setLanguage((String) row[3]);
+        response.setDescription((String) row[4]);
+        response.setCollection((String) row[5]);
+        response.setIsPublic((Boolean) row[6]);
+        response.setIsFavorite((Boolean) row[7]);
+        response.setCreatedAt((LocalDateTime) row[8]);
+        response.setUpdatedAt((LocalDateTime) row[9]);
+        response.setTags(tags);
+        response.setUserEmail(user.getEmail());
+        return response;
+    }
+
+    // The importer reads one line per element, line breaks are kept as character references
+    private static String escape(String value) {
+        return HtmlUtils.htmlEscape(value, StandardCharsets.UTF_8.name())
+                .replace("\r", "&#13;")
+                .replace("\n", "&#10;");
+    }
+
+    private static long epochSeconds(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toEpochSecond() : 0;
+    }
+}
@@ -0,0 +1,151 @@
+package com.g1.bookmark_manager.service;
+
+import com.g1.bookmark_manager.entity.MailOutbox;
+import com.g1.bookmark_manager.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers queued mails in batches. Each poll claims up to batch-size due rows and sends them on a fixed pool,
+ * so at most concurrency SMTP connections are open at a time. Failed sends are retried with exponential backoff
+ * until max-attempts is reached, then the row is left as FAILED.
+ * A poll waits until its batch is sent. The scheduler pool has a thread per scheduled job
+ * (spring.task.scheduling.pool.size), so a slow SMTP server delays the next poll but not the other jobs.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.mail.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class MailOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailOutboxService mailOutboxService;
+    private final MailService mailService;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Timer sentTimer;
+    private final Timer retryTimer;
+    private final Timer failedTimer;
+
+    public MailOutboxDispatcher(MailOutboxRepository mailOutboxRepository,
+                                MailOutboxService mailOutboxService,
+                                MailService mailService,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.mail.outbox.batch-size:20}") int batchSize,
+                                @Value("${app.mail.outbox.concurrency:4}") int concurrency,
+                                @Value("${app.mail.outbox.max-attempts:8}") int maxAttempts,
+                                @Value("${app.mail.outbox.initial-backoff:30s}") Duration initialBackoff,
+                                @Value("${app.mail.outbox.max-backoff:1h}") Duration maxBackoff,
+                                @Value("${app.mail.outbox.lease:5m}") Duration lease) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailOutboxService = mailOutboxService;
+        this.mailService = mailService;
+        this.executor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("mail-dispatch-"));
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+
+        Gauge.builder("mail.outbox.pending", queueDepth, AtomicLong::get)
+                .description("Mails waiting in the outbox")
+                .register(meterRegistry);
+        this.sentTimer = sendTimer(meterRegistry, "sent");
+        this.retryTimer = sendTimer(meterRegistry, "retry");
+        this.failedTimer = sendTimer(meterRegistry, "failed");
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:5000}")
+    public void dispatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = mailOutboxRepository.findDueIds(now, PageRequest.of(0, batchSize));
+
+        List<CompletableFuture<Void>> sends = new ArrayList<>(dueIds.size());
+        for (Long id : dueIds) {
+            if (mailOutboxRepository.claim(id, now, now.plus(lease)) == 1) {
+                sends.add(CompletableFuture.runAsync(() -> deliver(id), executor));
+            }
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+
+        queueDepth.set(mailOutboxRepository.countByStatus(MailOutbox.Status.PENDING));
+    }
+
+    private void deliver(Long id) {
+        MailOutbox mail = mailOutboxRepository.findById(id).orElse(null);
+        if (mail == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            mailService.send(mail.getRecipient(), mail.getSubject(), mail.getTemplate(),
+                    mailOutboxService.readVariables(mail));
+            mailOutboxRepository.markSent(id, LocalDateTime.now());
+            sentTimer.record(Duration.ofNanos(System.nanoTime() - start));
+        } catch (Exception e) {
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            String error = truncate(e.getMessage());
+            if (mail.getAttempts() >= maxAttempts) {
+                log.error("Mail {} to {} failed after {} attempts: {}", id, mail.getRecipient(), mail.getAttempts(), error);
+                mailOutboxRepository.markFailedAttempt(id, MailOutbox.Status.FAILED, LocalDateTime.now(), error);
+                failedTimer.record(elapsed);
+            } else {
+                Duration backoff = backoff(mail.getAttempts());
+                log.warn("Mail {} to {} failed (attempt {}), retrying in {}: {}", id, mail.getRecipient(), mail.getAttempts(), backoff, error);
+                mailOutboxRepository.markFailedAttempt(id, MailOutbox.Status.PENDING, LocalDateTime.now().plus(backoff), error);
+                retryTimer.record(elapsed);
+            }
+        }
+    }
+
+    // attempts already includes the failed one, the first retry waits initial-backoff
+    Duration backoff(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 20);
+        Duration delay = initialBackoff.multipliedBy(1L << exponent);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("mail.send")
+                .description("Time spent rendering and sending a single mail")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,55 @@
+package com.g1.bookmark_manager.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g1.bookmark_manager.entity.MailOutbox;
+import com.g1.bookmark_manager.repository.MailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Queues mails in the outbox table, they are delivered later by {@link MailOutboxDispatcher}.
+ * Enqueueing joins the caller's transaction, so a mail is only sent when the change that triggered it commits.
+ */
+@Service
+@RequiredArgsConstructor
+public class MailOutboxService {
+
+    private static final TypeReference<Map<String, Object>> VARIABLES_TYPE = new TypeReference<>() {};
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional
+    public MailOutbox enqueue(String toWho, String subject, String template, Map<String, Object> variables) {
+        MailOutbox mail = new MailOutbox();
+        mail.setRecipient(toWho);
+        mail.setSubject(subject);
+        mail.setTemplate(template);
+        mail.setVariables(writeVariables(variables));
+        return mailOutboxRepository.save(mail);
+    }
+
+    Map<String, Object> readVariables(MailOutbox mail) {
+        if (mail.getVariables() == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(mail.getVariables(), VARIABLES_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid variables in mail outbox row " + mail.getId(), e);
+        }
+    }
+
+    private String writeVariables(Map<String, Object> variables) {
+        try {
+            return objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Mail variables are not serializable", e);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.g1.bookmark_manager.service;
 
+import jakarta.mail.MessagingException;
 import jakarta.mail.internet.InternetAddress;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +18,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -24,8 +28,11 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class MailService {
 
+    public static final String ACCOUNT_TEMPLATE = "mail";
+
     private final JavaMailSender mailSender;
     private final SpringTemplateEngine templateEngine;
+    private final MeterRegistry meterRegistry;
     @Value("${spring.mail.from}")
     private String emailFrom;
     @Value("${app.login.url:http://localhost:5173/landing}")
@@ -34,37 +41,11 @@ public class MailService {
     public String sendEmail(String toWho, String subject, String username,String name,String password ,MultipartFile[] files) {
         try {
             log.info("Đang gửi email đến: {}...", toWho);
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom(emailFrom, "President Bookmark Manager");
-            if (toWho.contains(",")) {
-                helper.setTo(InternetAddress.parse(toWho));
-            } else {
-                helper.setTo(toWho);
-            }
-
-            // Tạo context cho Thymeleaf
-            Context context = new Context();
             Map<String, Object> variables = new HashMap<>();
             variables.put("username", username);
             variables.put("name", name);
             variables.put("password", password);
-            variables.put("loginUrl", loginUrl);
-            context.setVariables(variables);
-
-            // Xử lý template HTML với Thymeleaf
-            String htmlContent = templateEngine.process("mail", context);
-            helper.setText(htmlContent, true); // true để chỉ định nội dung là HTML
-
-            // Thêm các file đính kèm (nếu có)
-            if (files != null) {
-                for (MultipartFile file : files) {
-                    helper.addAttachment(file.getOriginalFilename(), file);
-                }
-            }
-
-            helper.setSubject(subject);
-            mailSender.send(message);
+            transmit(createMessage(toWho, subject, ACCOUNT_TEMPLATE, variables, files));
             log.info("Email đã được gửi đến: {}", toWho);
             return "sent";
         } catch (Exception e) {
@@ -72,4 +53,57 @@ public class MailService {
             return "failed";
         }
     }
+
+    // Renders and sends a single mail, failures are thrown so the outbox dispatcher can retry them
+    public void send(String toWho, String subject, String template, Map<String, Object> variables)
+            throws MessagingException, UnsupportedEncodingException {
+        transmit(createMessage(toWho, subject, template, variables, null));
+    }
+
+    // SMTP time only, the outbox dispatcher's mail.send timer also covers rendering
+    private void transmit(MimeMessage message) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
+        try {
+            mailSender.send(message);
+            outcome = "sent";
+        } finally {
+            sample.stop(Timer.builder("mail.smtp.send")
+                    .description("Time spent handing a mail to the SMTP server")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private MimeMessage createMessage(String toWho, String subject, String template,
+                                      Map<String, Object> variables, MultipartFile[] files)
+            throws MessagingException, UnsupportedEncodingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(emailFrom, "President Bookmark Manager");
+        if (toWho.contains(",")) {
+            helper.setTo(InternetAddress.parse(toWho));
+        } else {
+            helper.setTo(toWho);
+        }
+
+        // Tạo context cho Thymeleaf
+        Context context = new Context();
+        context.setVariables(variables);
+        context.setVariable("loginUrl", loginUrl);
+
+        // Xử lý template HTML với Thymeleaf
+        String htmlContent = templateEngine.process(template, context);
+        helper.setText(htmlContent, true); // true để chỉ định nội dung là HTML
+
+        // Thêm các file đính kèm (nếu có)
+        if (files != null) {
+            for (MultipartFile file : files) {
+                helper.addAttachment(file.getOriginalFilename(), file);
+            }
+        }
+
+        helper.setSubject(subject);
+        return message;
+    }
 }
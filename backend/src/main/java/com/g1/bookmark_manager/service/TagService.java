@@ -0,0 +1,246 @@
+package com.g1.bookmark_manager.service;
+
+import com.g1.bookmark_manager.dto.response.TagResponse;
+import com.g1.bookmark_manager.entity.Tag;
+import com.g1.bookmark_manager.repository.TagRepository;
+import com.g1.bookmark_manager.repository.UserRepository;
+import com.g1.bookmark_manager.repository.UserTagRepository;
+import com.g1.bookmark_manager.search.TagPrefixIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tag dictionary and per-user tag counts.
+ * Bookmark and code block tags are stored case-folded, every distinct name has one row in {@code tags}
+ * and {@code user_tags} counts how many of a user's bookmarks and code blocks carry it.
+ * Counts are adjusted inside the caller's transaction; suggestions and tag filters are answered from an
+ * in-memory {@link TagPrefixIndex} per user that is rebuilt after a change commits.
+ */
+@Slf4j
+@Service
+public class TagService {
+
+    // Stay below the SQL Server limit of 2100 parameters per statement
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    public enum Kind {
+        BOOKMARK,
+        CODE_BLOCK
+    }
+
+    private final TagRepository tagRepository;
+    private final UserTagRepository userTagRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transaction;
+    private final Cache<Long, TagPrefixIndex> indexes;
+
+    public TagService(TagRepository tagRepository,
+                      UserTagRepository userTagRepository,
+                      UserRepository userRepository,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${app.tags.index.max-users:10000}") long maxUsers,
+                      @Value("${app.tags.index.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.tagRepository = tagRepository;
+        this.userTagRepository = userTagRepository;
+        this.userRepository = userRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    public static String fold(String tag) {
+        return tag == null ? "" : tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Case-folded, trimmed, without blanks and duplicates, keeping the original order
+    public static List<String> normalize(List<String> tags) {
+        if (tags == null) {
+            return null;
+        }
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String tag : tags) {
+            String folded = fold(tag);
+            if (!folded.isEmpty()) {
+                normalized.add(folded);
+            }
+        }
+        return new ArrayList<>(normalized);
+    }
+
+    // +1 for every tag that was added, -1 for every tag that was removed
+    public static Map<String, Integer> diff(Collection<String> before, Collection<String> after) {
+        Set<String> previous = before != null ? new HashSet<>(before) : Set.of();
+        Set<String> current = after != null ? new HashSet<>(after) : Set.of();
+        Map<String, Integer> deltas = new HashMap<>();
+        for (String tag : current) {
+            if (!previous.contains(tag)) {
+                deltas.put(tag, 1);
+            }
+        }
+        for (String tag : previous) {
+            if (!current.contains(tag)) {
+                deltas.put(tag, -1);
+            }
+        }
+        return deltas;
+    }
+
+    public void recordTagChange(Long userId, Kind kind, Collection<String> before, Collection<String> after) {
+        adjust(userId, kind, diff(before, after));
+    }
+
+    // Applies count deltas per (already normalized) tag name in the caller's transaction
+    public void adjust(Long userId, Kind kind, Map<String, Integer> deltas) {
+        Map<String, Integer> changes = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> tagIds = resolveTagIds(changes.keySet());
+        ensureUserTags(userId, tagIds.values());
+        changes.forEach((name, delta) -> {
+            Long tagId = tagIds.get(name);
+            if (kind == Kind.BOOKMARK) {
+                userTagRepository.adjustBookmarkCount(userId, tagId, delta);
+            } else {
+                userTagRepository.adjustCodeBlockCount(userId, tagId, delta);
+            }
+        });
+        invalidateAfterCommit(userId);
+    }
+
+    // Recomputes all tag counts of a user from the bookmark and code block tags, for set-based writes and backfill.
+    // Only tags without a user_tags row (new names of a bulk tag operation, all of them on backfill) are created
+    // one by one, the counts are set by a single statement
+    public void recount(Long userId) {
+        List<String> untracked = userTagRepository.findUntrackedTags(userId);
+        if (!untracked.isEmpty()) {
+            ensureUserTags(userId, resolveTagIds(new HashSet<>(untracked)).values());
+        }
+        userTagRepository.recountByUserId(userId);
+        invalidateAfterCommit(userId);
+    }
+
+    public List<TagResponse> suggest(Long userId, String prefix, int limit) {
+        return index(userId).suggest(fold(prefix), limit)
+                .stream()
+                .map(entry -> new TagResponse(entry.name(), entry.bookmarkCount(), entry.codeBlockCount()))
+                .collect(Collectors.toList());
+    }
+
+    // Names of the user's tags containing the term, used to turn a tag filter into an indexed IN lookup
+    public Set<String> matchingTags(Long userId, String term) {
+        String folded = fold(term);
+        if (folded.isEmpty()) {
+            return Set.of();
+        }
+        return index(userId).matching(folded);
+    }
+
+    // Tags written before they were case-folded on save: fold them and build the dictionary once
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (tagRepository.count() > 0 || tagRepository.countTagRows() == 0) {
+            return;
+        }
+        log.info("Building tag dictionary from existing bookmark and code block tags");
+        transaction.executeWithoutResult(status -> {
+            tagRepository.foldBookmarkTags();
+            tagRepository.foldCodeBlockTags();
+        });
+        for (Long userId : userRepository.findAllIds()) {
+            transaction.executeWithoutResult(status -> recount(userId));
+        }
+    }
+
+    private TagPrefixIndex index(Long userId) {
+        return indexes.get(userId, id -> new TagPrefixIndex(userTagRepository.findCountsByUserId(id)
+                .stream()
+                .map(view -> new TagPrefixIndex.Entry(view.getName(), view.getBookmarkCount(), view.getCodeBlockCount()))
+                .collect(Collectors.toList())));
+    }
+
+    // Dictionary and user_tags rows are created in the caller's transaction, which may already hold the user's row
+    // (UserVersionService.bump) and so must not wait on a second connection for the user_tags foreign key check
+    private Map<String, Long> resolveTagIds(Set<String> names) {
+        Map<String, Long> ids = new HashMap<>();
+        for (List<String> chunk : chunks(names)) {
+            for (Tag tag : tagRepository.findByNameIn(chunk)) {
+                ids.put(tag.getName(), tag.getId());
+            }
+        }
+        // Sorted, so two transactions creating overlapping names take the range locks in the same order
+        List<String> missing = names.stream().filter(name -> !ids.containsKey(name)).sorted().toList();
+        if (missing.isEmpty()) {
+            return ids;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (String name : missing) {
+            tagRepository.insertIfMissing(name, now);
+        }
+        for (List<String> chunk : chunks(missing)) {
+            for (Tag tag : tagRepository.findByNameIn(chunk)) {
+                ids.put(tag.getName(), tag.getId());
+            }
+        }
+        return ids;
+    }
+
+    private void ensureUserTags(Long userId, Collection<Long> tagIds) {
+        Set<Long> missing = new HashSet<>(tagIds);
+        for (List<Long> chunk : chunks(tagIds)) {
+            missing.removeAll(userTagRepository.findTagIdsByUserId(userId, chunk));
+        }
+        for (List<Long> chunk : chunks(missing.stream().sorted().toList())) {
+            userTagRepository.insertMissing(userId, chunk);
+        }
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> values) {
+        List<T> list = new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += IN_CHUNK_SIZE) {
+            chunks.add(list.subList(i, Math.min(i + IN_CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
+
+    private void invalidateAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            indexes.invalidate(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                indexes.invalidate(userId);
+            }
+        });
+    }
+}
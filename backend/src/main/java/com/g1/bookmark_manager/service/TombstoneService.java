@@ -0,0 +1,81 @@
+package com.g1.bookmark_manager.service;
+
+import com.g1.bookmark_manager.entity.Tombstone;
+import com.g1.bookmark_manager.repository.TombstoneRepository;
+import com.g1.bookmark_manager.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Records hard deletes of bookmarks, code blocks and collections for /api/sync.
+ * Tombstones are written in the deleting transaction and purged once they are older than the retention period;
+ * clients whose sync token is older than that are told to resync from scratch.
+ */
+@Slf4j
+@Service
+public class TombstoneService {
+
+    private final TombstoneRepository tombstoneRepository;
+    private final UserRepository userRepository;
+    private final Duration retention;
+
+    public TombstoneService(TombstoneRepository tombstoneRepository,
+                            UserRepository userRepository,
+                            @Value("${app.sync.tombstone-retention:30d}") Duration retention) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.userRepository = userRepository;
+        this.retention = retention;
+    }
+
+    public void record(Long userId, Tombstone.EntityType entityType, Long entityId) {
+        Tombstone tombstone = new Tombstone();
+        tombstone.setUser(userRepository.getReferenceById(userId));
+        tombstone.setEntityType(entityType);
+        tombstone.setEntityId(entityId);
+        tombstone.setDeletedAt(LocalDateTime.now());
+        tombstoneRepository.save(tombstone);
+    }
+
+    // Bulk deletes, must run before the rows are deleted
+    public void recordBookmarks(Long userId, java.util.Collection<Long> ids) {
+        tombstoneRepository.insertForBookmarks(userId, ids, LocalDateTime.now());
+    }
+
+    public void recordCodeBlocks(Long userId, java.util.Collection<Long> ids) {
+        tombstoneRepository.insertForCodeBlocks(userId, ids, LocalDateTime.now());
+    }
+
+    // Bulk deletes by filter, returns the number of rows recorded. The rows are then deleted through their tombstones
+    public int recordBookmarks(Long userId, String collection, String tag, Boolean isFavorite, Boolean isPublic,
+                               LocalDateTime deletedAt) {
+        return tombstoneRepository.insertForBookmarksByFilter(userId, collection, tag, isFavorite, isPublic, deletedAt);
+    }
+
+    public int recordCodeBlocks(Long userId, String collection, String tag, Boolean isFavorite, Boolean isPublic,
+                                String language, LocalDateTime deletedAt) {
+        return tombstoneRepository.insertForCodeBlocksByFilter(userId, collection, tag, isFavorite, isPublic, language,
+                deletedAt);
+    }
+
+    public boolean wasDeleted(Long userId, Tombstone.EntityType entityType, Long entityId) {
+        return tombstoneRepository.existsForEntity(userId, entityType, entityId);
+    }
+
+    // Oldest point in time a sync token may refer to and still see every delete
+    public LocalDateTime horizon() {
+        return LocalDateTime.now().minus(retention);
+    }
+
+    @Scheduled(cron = "${app.sync.tombstone-purge-cron:0 30 3 * * *}")
+    public void purge() {
+        int purged = tombstoneRepository.deleteOlderThan(horizon());
+        if (purged > 0) {
+            log.info("Purged {} tombstones older than {}", purged, retention);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.g1.bookmark_manager.service;
 
 import com.g1.bookmark_manager.repository.UserRepository;
+import com.g1.bookmark_manager.security.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -13,9 +14,12 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return userPrincipalCache.get(username, name -> userRepository.findByUsername(name)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + name)));
     }
 }
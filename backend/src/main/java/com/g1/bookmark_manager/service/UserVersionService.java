@@ -0,0 +1,69 @@
+package com.g1.bookmark_manager.service;
+
+import com.g1.bookmark_manager.exception.ResourceNotFoundException;
+import com.g1.bookmark_manager.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Per-user version stamp of everything the user owns, used as the ETag of the list endpoints.
+ * The stamp lives in {@code users.data_version} and is incremented inside every write transaction, so it only
+ * grows and survives restarts. Reads are answered from a local cache that is advanced after a write commits,
+ * which lets an unchanged list be answered with 304 without a database round trip.
+ * Writes made on another instance only reach this cache when the cached stamp expires, so the expiry is kept to a
+ * few seconds: that is the longest a 304 from this instance can hide a committed write.
+ */
+@Service
+public class UserVersionService {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Long> versions;
+
+    public UserVersionService(UserRepository userRepository,
+                              @Value("${app.etag.max-users:10000}") long maxUsers,
+                              @Value("${app.etag.expire-after-write:5s}") Duration expireAfterWrite) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    public long current(Long userId) {
+        return versions.get(userId, id -> userRepository.findDataVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id)));
+    }
+
+    // Weak because the body may be compressed on the way out; the user id keeps entries of different users apart
+    public String etag(Long userId) {
+        return "W/\"" + userId + "-" + current(userId) + "\"";
+    }
+
+    // Another representation of the same data, e.g. a summary view, must not match the ETag of the full one
+    public String etag(Long userId, String variant) {
+        return "W/\"" + userId + "-" + current(userId) + "-" + variant + "\"";
+    }
+
+    // Must run inside the write transaction: the row lock orders concurrent writes of the same user
+    public void bump(Long userId) {
+        userRepository.incrementDataVersion(userId);
+        long version = userRepository.findDataVersionById(userId).orElse(0L);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versions.invalidate(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // Transactions may commit out of order, never move the cached stamp backwards
+                versions.asMap().merge(userId, version, Math::max);
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.g1.bookmark_manager.util;
+
+import com.g1.bookmark_manager.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque keyset cursors used by paginated list endpoints.
+ * A cursor points at the last row of the previous page as a (createdAt, id) pair,
+ * so the next page can be fetched with an indexed range predicate instead of an OFFSET.
+ * Filter results sorted by title continue after a (title, id) pair, see {@link #encodeTitle(String, Long)}.
+ * Ranked search results use an offset cursor instead, see {@link #encodeOffset(int)}, and /api/sync a time token.
+ */
+public final class CursorUtil {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorUtil() {
+    }
+
+    public static String encode(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            if (index <= 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new Cursor(LocalDateTime.parse(raw.substring(0, index)), Long.parseLong(raw.substring(index + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public static String encodeTitle(String title, Long id) {
+        String raw = "t" + title + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TitleCursor decodeTitle(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // The title may contain the separator, the id never does
+            int index = raw.lastIndexOf(SEPARATOR);
+            if (!raw.startsWith("t") || index <= 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new TitleCursor(raw.substring(1, index), Long.parseLong(raw.substring(index + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    // Ranked results (search) have no stable keyset, their cursor is the offset of the next hit
+    public static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("o" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int decodeOffset(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("o")) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            int offset = Integer.parseInt(raw.substring(1));
+            if (offset < 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return offset;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    // Sync tokens carry the time the previous /api/sync response was computed
+    public static String encodeSyncToken(LocalDateTime time) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("s" + time).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LocalDateTime decodeSyncToken(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!raw.startsWith("s")) {
+                throw new BadRequestException("Invalid sync token");
+            }
+            return LocalDateTime.parse(raw.substring(1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid sync token");
+        }
+    }
+
+    public record Cursor(LocalDateTime createdAt, Long id) {
+    }
+
+    public record TitleCursor(String title, Long id) {
+    }
+}
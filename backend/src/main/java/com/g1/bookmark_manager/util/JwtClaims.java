@@ -0,0 +1,19 @@
+package com.g1.bookmark_manager.util;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Immutable view of a verified token, produced by a single parse in {@link JwtUtil#parseToken(String)}.
+ * {@code roles} holds the authority names embedded by {@link JwtUtil#generateToken}, e.g. "ROLE_USER".
+ */
+public record JwtClaims(String username, List<String> roles, Date issuedAt, Date expiration) {
+
+    public JwtClaims {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+    }
+
+    public boolean hasRoles() {
+        return !roles.isEmpty();
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -17,21 +18,36 @@ import java.util.stream.Collectors;
 
 @Component
 public class JwtUtil {
-    
-    @Value("${jwt.secret:mySecretKey}")
-    private String secret;
-    
-    @Value("${jwt.expiration:86400000}")
-    private Long expiration;
-    
-    private SecretKey getSigningKey() {
 
-        Keys.hmacShaKeyFor(secret.getBytes());
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    private static final String ROLES_CLAIM = "roles";
+
+    private final Long expiration;
+
+    // Both are immutable and thread-safe, so the HMAC key and the parser are built once at startup
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+
+    public JwtUtil(@Value("${jwt.secret:mySecretKey}") String secret,
+                   @Value("${jwt.expiration:86400000}") Long expiration) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
-    
+
+    /**
+     * Verifies the signature and expiry of the token and returns its claims.
+     * This is the only place a token is parsed, callers should keep the result instead of parsing again.
+     *
+     * @throws JwtException if the token is malformed, tampered with or expired
+     */
+    public JwtClaims parseToken(String token) {
+        Claims claims = extractAllClaims(token);
+        return new JwtClaims(claims.getSubject(), extractRoles(claims), claims.getIssuedAt(), claims.getExpiration());
+    }
+
     public String extractUsername(String token) {
-        extractClaim(token, Claims::getSubject);
         return extractClaim(token, Claims::getSubject);
     }
     
@@ -45,42 +61,46 @@ public class JwtUtil {
     }
     
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
-    
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+
+    private List<String> extractRoles(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof List<?> list)) {
+            return List.of();
+        }
+        return list.stream()
+                .map(String::valueOf)
+                .collect(Collectors.toList());
     }
     
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
-        // Add role claims if needed
-        // For example, if you want to add roles:
-         List<String> roles = userDetails.getAuthorities().stream()
+        List<String> roles = userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList());
-         claims.put("roles", roles);
-        //claims.put("roles", userDetails.getAuthorities());
+        claims.put(ROLES_CLAIM, roles);
         return createToken(claims, userDetails.getUsername());
     }
     
     private String createToken(Map<String, Object> claims, String subject) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .claims(claims)
                 .subject(subject)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration))
+                .signWith(signingKey)
                 .compact();
     }
     
+    // The parser already rejects expired tokens, so a single parse is enough to validate
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        try {
+            return parseToken(token).username().equals(userDetails.getUsername());
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
     }
 
     public String getUsernameFromToken(String token) {
@@ -0,0 +1,193 @@
+-- Schema as Hibernate ddl-auto=update left it before migrations took over. Every statement is guarded, so the
+-- script creates a new database and brings a database created by an older build up to the same state.
+
+IF OBJECT_ID('users', 'U') IS NULL
+CREATE TABLE users (
+    id            BIGINT IDENTITY NOT NULL,
+    username      VARCHAR(50)  NOT NULL,
+    email         VARCHAR(100) NOT NULL,
+    password_hash VARCHAR(255) NOT NULL,
+    full_name     VARCHAR(100),
+    avatar_url    VARCHAR(255),
+    created_at    DATETIME2(6),
+    updated_at    DATETIME2(6),
+    is_active     BIT,
+    data_version  BIGINT,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+IF COL_LENGTH('users', 'data_version') IS NULL
+    ALTER TABLE users ADD data_version BIGINT;
+GO
+
+IF OBJECT_ID('Roles', 'U') IS NULL
+CREATE TABLE Roles (
+    id          BIGINT IDENTITY NOT NULL,
+    name        VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    CONSTRAINT pk_roles PRIMARY KEY (id),
+    CONSTRAINT uk_roles_name UNIQUE (name)
+);
+
+IF OBJECT_ID('user_roles', 'U') IS NULL
+CREATE TABLE user_roles (
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    CONSTRAINT fk_user_roles_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_user_roles_role FOREIGN KEY (role_id) REFERENCES Roles (id)
+);
+GO
+
+IF OBJECT_ID('collections', 'U') IS NULL
+CREATE TABLE collections (
+    id                BIGINT IDENTITY NOT NULL,
+    name              VARCHAR(100) NOT NULL,
+    icon              VARCHAR(50)  NOT NULL,
+    description       TEXT,
+    is_public         BIT,
+    is_default        BIT,
+    sort_order        INT,
+    bookmark_count    INT,
+    code_block_count  INT,
+    created_at        DATETIME2(6),
+    updated_at        DATETIME2(6),
+    deleted_at        DATETIME2(6),
+    purge_lease_until DATETIME2(6),
+    user_id           BIGINT NOT NULL,
+    CONSTRAINT pk_collections PRIMARY KEY (id),
+    CONSTRAINT fk_collections_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+IF COL_LENGTH('collections', 'bookmark_count') IS NULL
+    ALTER TABLE collections ADD bookmark_count INT;
+IF COL_LENGTH('collections', 'code_block_count') IS NULL
+    ALTER TABLE collections ADD code_block_count INT;
+IF COL_LENGTH('collections', 'deleted_at') IS NULL
+    ALTER TABLE collections ADD deleted_at DATETIME2(6);
+IF COL_LENGTH('collections', 'purge_lease_until') IS NULL
+    ALTER TABLE collections ADD purge_lease_until DATETIME2(6);
+GO
+
+-- Bookmark ids come from bookmarks_seq (pooled optimizer, see Bookmark.ID_ALLOCATION_SIZE). Older databases still
+-- have an IDENTITY column here, V2 converts it
+IF OBJECT_ID('bookmarks_seq', 'SO') IS NULL
+CREATE SEQUENCE bookmarks_seq START WITH 1 INCREMENT BY 50;
+
+IF OBJECT_ID('bookmarks', 'U') IS NULL
+CREATE TABLE bookmarks (
+    id            BIGINT NOT NULL,
+    title         VARCHAR(255) NOT NULL,
+    url           VARCHAR(255) NOT NULL,
+    description   TEXT,
+    collection    VARCHAR(255),
+    collection_id BIGINT,
+    is_public     BIT,
+    is_favorite   BIT,
+    favicon       VARCHAR(255),
+    created_at    DATETIME2(6),
+    updated_at    DATETIME2(6),
+    user_id       BIGINT NOT NULL,
+    CONSTRAINT pk_bookmarks PRIMARY KEY (id),
+    CONSTRAINT fk_bookmarks_collection FOREIGN KEY (collection_id) REFERENCES collections (id),
+    CONSTRAINT fk_bookmarks_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+IF OBJECT_ID('bookmark_tags', 'U') IS NULL
+CREATE TABLE bookmark_tags (
+    bookmark_id BIGINT NOT NULL,
+    tag         VARCHAR(255),
+    CONSTRAINT fk_bookmark_tags_bookmark FOREIGN KEY (bookmark_id) REFERENCES bookmarks (id)
+);
+GO
+
+IF OBJECT_ID('code_blocks', 'U') IS NULL
+CREATE TABLE code_blocks (
+    id            BIGINT IDENTITY NOT NULL,
+    title         VARCHAR(200) NOT NULL,
+    code          TEXT NOT NULL,
+    language      VARCHAR(50) NOT NULL,
+    description   TEXT,
+    collection    VARCHAR(255),
+    collection_id BIGINT,
+    is_public     BIT,
+    is_favorite   BIT,
+    created_at    DATETIME2(6),
+    updated_at    DATETIME2(6),
+    user_id       BIGINT NOT NULL,
+    CONSTRAINT pk_code_blocks PRIMARY KEY (id),
+    CONSTRAINT fk_code_blocks_collection FOREIGN KEY (collection_id) REFERENCES collections (id),
+    CONSTRAINT fk_code_blocks_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+IF OBJECT_ID('code_block_tags', 'U') IS NULL
+CREATE TABLE code_block_tags (
+    code_block_id BIGINT NOT NULL,
+    tag           VARCHAR(255),
+    CONSTRAINT fk_code_block_tags_code_block FOREIGN KEY (code_block_id) REFERENCES code_blocks (id)
+);
+GO
+
+IF OBJECT_ID('tags', 'U') IS NULL
+CREATE TABLE tags (
+    id         BIGINT IDENTITY NOT NULL,
+    name       VARCHAR(255) NOT NULL,
+    created_at DATETIME2(6),
+    CONSTRAINT pk_tags PRIMARY KEY (id),
+    CONSTRAINT uk_tags_name UNIQUE (name)
+);
+
+IF OBJECT_ID('user_tags', 'U') IS NULL
+CREATE TABLE user_tags (
+    id               BIGINT IDENTITY NOT NULL,
+    user_id          BIGINT NOT NULL,
+    tag_id           BIGINT NOT NULL,
+    bookmark_count   INT NOT NULL,
+    code_block_count INT NOT NULL,
+    CONSTRAINT pk_user_tags PRIMARY KEY (id),
+    CONSTRAINT uk_user_tags_user_tag UNIQUE (user_id, tag_id),
+    CONSTRAINT fk_user_tags_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_user_tags_tag FOREIGN KEY (tag_id) REFERENCES tags (id)
+);
+
+IF OBJECT_ID('tombstones', 'U') IS NULL
+CREATE TABLE tombstones (
+    id          BIGINT IDENTITY NOT NULL,
+    user_id     BIGINT NOT NULL,
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id   BIGINT NOT NULL,
+    deleted_at  DATETIME2(6) NOT NULL,
+    CONSTRAINT pk_tombstones PRIMARY KEY (id),
+    CONSTRAINT fk_tombstones_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+IF OBJECT_ID('mail_outbox', 'U') IS NULL
+CREATE TABLE mail_outbox (
+    id              BIGINT IDENTITY NOT NULL,
+    recipient       VARCHAR(255) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    template        VARCHAR(100) NOT NULL,
+    variables       TEXT,
+    status          VARCHAR(20) NOT NULL,
+    attempts        INT NOT NULL,
+    next_attempt_at DATETIME2(6) NOT NULL,
+    last_error      VARCHAR(1000),
+    created_at      DATETIME2(6),
+    sent_at         DATETIME2(6),
+    CONSTRAINT pk_mail_outbox PRIMARY KEY (id)
+);
+GO
+
+-- Indexes that were declared with @Index while Hibernate managed the schema
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmarks_user_updated' AND object_id = OBJECT_ID('bookmarks'))
+    CREATE INDEX idx_bookmarks_user_updated ON bookmarks (user_id, updated_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_blocks_user_updated' AND object_id = OBJECT_ID('code_blocks'))
+    CREATE INDEX idx_code_blocks_user_updated ON code_blocks (user_id, updated_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_collections_user_updated' AND object_id = OBJECT_ID('collections'))
+    CREATE INDEX idx_collections_user_updated ON collections (user_id, updated_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_mail_outbox_due' AND object_id = OBJECT_ID('mail_outbox'))
+    CREATE INDEX idx_mail_outbox_due ON mail_outbox (status, next_attempt_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_tombstones_user_deleted' AND object_id = OBJECT_ID('tombstones'))
+    CREATE INDEX idx_tombstones_user_deleted ON tombstones (user_id, deleted_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_tombstones_deleted' AND object_id = OBJECT_ID('tombstones'))
+    CREATE INDEX idx_tombstones_deleted ON tombstones (deleted_at);
+GO
@@ -0,0 +1,58 @@
+-- Databases created before bookmark ids moved to bookmarks_seq still have an IDENTITY id column, and Hibernate
+-- cannot insert the ids it takes from the sequence. SQL Server cannot drop the IDENTITY property, so the rows move
+-- to a new table without it. The body runs as dynamic SQL because the batch would otherwise be compiled against
+-- the old table.
+IF COLUMNPROPERTY(OBJECT_ID('bookmarks'), 'id', 'IsIdentity') = 1
+BEGIN
+    DECLARE @dropForeignKeys NVARCHAR(MAX) = N'';
+    SELECT @dropForeignKeys += N'ALTER TABLE ' + QUOTENAME(OBJECT_SCHEMA_NAME(parent_object_id)) + N'.'
+                             + QUOTENAME(OBJECT_NAME(parent_object_id)) + N' DROP CONSTRAINT ' + QUOTENAME(name) + N';'
+    FROM sys.foreign_keys
+    WHERE referenced_object_id = OBJECT_ID('bookmarks');
+    EXEC sp_executesql @dropForeignKeys;
+
+    EXEC sp_rename 'bookmarks', 'bookmarks_identity';
+
+    EXEC sp_executesql N'
+        CREATE TABLE bookmarks (
+            id            BIGINT NOT NULL,
+            title         VARCHAR(255) NOT NULL,
+            url           VARCHAR(255) NOT NULL,
+            description   TEXT,
+            collection    VARCHAR(255),
+            collection_id BIGINT,
+            is_public     BIT,
+            is_favorite   BIT,
+            favicon       VARCHAR(255),
+            created_at    DATETIME2(6),
+            updated_at    DATETIME2(6),
+            user_id       BIGINT NOT NULL,
+            CONSTRAINT pk_bookmarks PRIMARY KEY (id),
+            CONSTRAINT fk_bookmarks_collection FOREIGN KEY (collection_id) REFERENCES collections (id),
+            CONSTRAINT fk_bookmarks_user FOREIGN KEY (user_id) REFERENCES users (id)
+        );
+
+        INSERT INTO bookmarks (id, title, url, description, collection, collection_id, is_public, is_favorite,
+                               favicon, created_at, updated_at, user_id)
+        SELECT id, title, url, description, collection, collection_id, is_public, is_favorite,
+               favicon, created_at, updated_at, user_id
+        FROM bookmarks_identity;
+
+        DROP TABLE bookmarks_identity;
+
+        CREATE INDEX idx_bookmarks_user_updated ON bookmarks (user_id, updated_at);
+        ALTER TABLE bookmark_tags
+            ADD CONSTRAINT fk_bookmark_tags_bookmark FOREIGN KEY (bookmark_id) REFERENCES bookmarks (id);';
+END
+GO
+
+-- The pooled optimizer treats a sequence value v as the id block (v - 50, v], so the next value must be at least
+-- MAX(id) + 50 for neither JPA nor the bulk importer to reuse an id
+DECLARE @maxId BIGINT = (SELECT ISNULL(MAX(id), 0) FROM bookmarks);
+IF (SELECT CAST(current_value AS BIGINT) FROM sys.sequences WHERE name = 'bookmarks_seq') < @maxId + 50
+BEGIN
+    DECLARE @restart NVARCHAR(200) = N'ALTER SEQUENCE bookmarks_seq RESTART WITH '
+                                   + CAST(@maxId + 50 AS NVARCHAR(30));
+    EXEC sp_executesql @restart;
+END
+GO
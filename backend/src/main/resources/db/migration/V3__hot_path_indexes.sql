@@ -0,0 +1,73 @@
+-- One index per access path of the repositories. User scoped lists seek on user_id plus the filter column and read
+-- the rows already ordered by (created_at DESC, id DESC), so paged and keyset queries stop after one page. The id
+-- only queries (filters, ownership checks, bulk actions) are answered from the index alone: the clustered key id is
+-- part of every index and the filter columns are included. Full rows still need a key lookup per returned row,
+-- description and code are TEXT and cannot be included.
+
+-- bookmarks
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmarks_user_created' AND object_id = OBJECT_ID('bookmarks'))
+    CREATE INDEX idx_bookmarks_user_created ON bookmarks (user_id, created_at DESC, id DESC)
+        INCLUDE (collection, collection_id, is_favorite, is_public);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmarks_user_favorite_created' AND object_id = OBJECT_ID('bookmarks'))
+    CREATE INDEX idx_bookmarks_user_favorite_created ON bookmarks (user_id, is_favorite, created_at DESC, id DESC);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmarks_user_collection_created' AND object_id = OBJECT_ID('bookmarks'))
+    CREATE INDEX idx_bookmarks_user_collection_created ON bookmarks (user_id, collection, created_at DESC, id DESC);
+-- Filters sorted by title, read backwards for descending titles
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmarks_user_title' AND object_id = OBJECT_ID('bookmarks'))
+    CREATE INDEX idx_bookmarks_user_title ON bookmarks (user_id, title, id);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmarks_public_created' AND object_id = OBJECT_ID('bookmarks'))
+    CREATE INDEX idx_bookmarks_public_created ON bookmarks (is_public, created_at DESC, id DESC)
+        INCLUDE (user_id);
+-- Collection purge and the recount subqueries
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmarks_collection' AND object_id = OBJECT_ID('bookmarks'))
+    CREATE INDEX idx_bookmarks_collection ON bookmarks (collection_id);
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmark_tags_bookmark' AND object_id = OBJECT_ID('bookmark_tags'))
+    CREATE INDEX idx_bookmark_tags_bookmark ON bookmark_tags (bookmark_id, tag);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_bookmark_tags_tag' AND object_id = OBJECT_ID('bookmark_tags'))
+    CREATE INDEX idx_bookmark_tags_tag ON bookmark_tags (tag, bookmark_id);
+GO
+
+-- code_blocks
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_blocks_user_created' AND object_id = OBJECT_ID('code_blocks'))
+    CREATE INDEX idx_code_blocks_user_created ON code_blocks (user_id, created_at DESC, id DESC)
+        INCLUDE (collection, collection_id, is_favorite, is_public, language);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_blocks_user_favorite_created' AND object_id = OBJECT_ID('code_blocks'))
+    CREATE INDEX idx_code_blocks_user_favorite_created ON code_blocks (user_id, is_favorite, created_at DESC, id DESC);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_blocks_user_collection_created' AND object_id = OBJECT_ID('code_blocks'))
+    CREATE INDEX idx_code_blocks_user_collection_created ON code_blocks (user_id, collection, created_at DESC, id DESC);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_blocks_user_language_created' AND object_id = OBJECT_ID('code_blocks'))
+    CREATE INDEX idx_code_blocks_user_language_created ON code_blocks (user_id, language, created_at DESC, id DESC);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_blocks_user_title' AND object_id = OBJECT_ID('code_blocks'))
+    CREATE INDEX idx_code_blocks_user_title ON code_blocks (user_id, title, id);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_blocks_collection' AND object_id = OBJECT_ID('code_blocks'))
+    CREATE INDEX idx_code_blocks_collection ON code_blocks (collection_id);
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_block_tags_code_block' AND object_id = OBJECT_ID('code_block_tags'))
+    CREATE INDEX idx_code_block_tags_code_block ON code_block_tags (code_block_id, tag);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_code_block_tags_tag' AND object_id = OBJECT_ID('code_block_tags'))
+    CREATE INDEX idx_code_block_tags_tag ON code_block_tags (tag, code_block_id);
+GO
+
+-- collections
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_collections_user_sort' AND object_id = OBJECT_ID('collections'))
+    CREATE INDEX idx_collections_user_sort ON collections (user_id, sort_order)
+        INCLUDE (name, is_default, is_public, deleted_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_collections_user_name' AND object_id = OBJECT_ID('collections'))
+    CREATE INDEX idx_collections_user_name ON collections (user_id, name)
+        INCLUDE (deleted_at);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_collections_public_created' AND object_id = OBJECT_ID('collections'))
+    CREATE INDEX idx_collections_public_created ON collections (is_public, created_at DESC, id DESC)
+        INCLUDE (deleted_at);
+-- Only the few collections waiting for their purge, the literal predicate of findPurgeableIds matches the filter
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_collections_purge' AND object_id = OBJECT_ID('collections'))
+    CREATE INDEX idx_collections_purge ON collections (purge_lease_until)
+        WHERE deleted_at IS NOT NULL;
+GO
+
+-- tombstones, roles
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_tombstones_user_entity' AND object_id = OBJECT_ID('tombstones'))
+    CREATE INDEX idx_tombstones_user_entity ON tombstones (user_id, entity_type, entity_id);
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_user_roles_user' AND object_id = OBJECT_ID('user_roles'))
+    CREATE INDEX idx_user_roles_user ON user_roles (user_id, role_id);
+GO
@@ -0,0 +1,7 @@
+-- Registration needs the USER role from the first request on, DataInitializationService only adds the admin
+-- account after startup
+IF NOT EXISTS (SELECT 1 FROM Roles WHERE name = 'USER')
+    INSERT INTO Roles (name, description) VALUES ('USER', 'Default user role');
+IF NOT EXISTS (SELECT 1 FROM Roles WHERE name = 'ADMIN')
+    INSERT INTO Roles (name, description) VALUES ('ADMIN', 'Administrator role');
+GO
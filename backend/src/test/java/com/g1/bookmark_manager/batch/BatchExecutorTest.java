@@ -0,0 +1,148 @@
+package com.g1.bookmark_manager.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g1.bookmark_manager.service.DataInitializationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// /api/batch over HTTP, the sub-requests go through the application's DispatcherServlet
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:batch-executor;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "app.mail.outbox.enabled=false",
+        "app.seed.default-data=false",
+        "management.server.port=0"
+})
+class BatchExecutorTest {
+
+    private static final String USERNAME = "batchuser";
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataInitializationService dataInitializationService;
+
+    private String token;
+
+    @BeforeEach
+    void login() throws Exception {
+        dataInitializationService.initializeDefaultData();
+        Map<String, String> credentials = Map.of("username", USERNAME, "password", PASSWORD);
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/auth/login", credentials, String.class);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            response = restTemplate.postForEntity("/api/auth/register", Map.of("username", USERNAME,
+                    "email", USERNAME + "@example.com", "password", PASSWORD, "fullName", USERNAME), String.class);
+        }
+        token = objectMapper.readTree(response.getBody()).get("token").asText();
+    }
+
+    // The tag rows are written in the batch transaction, which already holds the user's row
+    @Test
+    void transactionalBatchCreatesBookmarkWithNewTags() throws Exception {
+        JsonNode result = batch(true, List.of(
+                create("first", "Batch tagged", List.of("Batch-New", "batch-other"))));
+
+        assertEquals(201, result.get(0).get("status").asInt());
+        assertEquals(List.of("batch-new", "batch-other"),
+                objectMapper.convertValue(result.get(0).get("body").get("tags"), List.class));
+        JsonNode tags = get("/api/tags?prefix=batch-");
+        assertEquals(2, tags.size());
+        assertEquals(1, tags.get(0).get("bookmarkCount").asInt());
+    }
+
+    @Test
+    void transactionalBatchCreatesTwoBookmarksWithNewTags() throws Exception {
+        JsonNode result = batch(true, List.of(
+                create("one", "Pair one", List.of("pair-shared", "pair-one")),
+                create("two", "Pair two", List.of("pair-shared", "pair-two"))));
+
+        assertEquals(201, result.get(0).get("status").asInt());
+        assertEquals(201, result.get(1).get("status").asInt());
+        Map<String, Integer> counts = bookmarkCounts("pair-");
+        assertEquals(Map.of("pair-shared", 2, "pair-one", 1, "pair-two", 1), counts);
+    }
+
+    @Test
+    void failingRequestRollsBackEarlierRequests() throws Exception {
+        Map<String, Object> invalid = Map.of("id", "invalid", "method", "POST", "path", "/api/bookmarks",
+                "body", Map.of("title", "", "url", "https://example.com/invalid"));
+        JsonNode result = batch(true, List.of(
+                create("kept", "Rolled back", List.of("rollback-tag")),
+                invalid,
+                create("skipped", "Never run", List.of("rollback-tag"))));
+
+        assertEquals(201, result.get(0).get("status").asInt());
+        assertEquals(400, result.get(1).get("status").asInt());
+        assertEquals(424, result.get(2).get("status").asInt());
+        // Neither the bookmark nor its tag count survived
+        assertTrue(bookmarkCounts("rollback-").isEmpty());
+        assertEquals(0, get("/api/bookmarks/filterResult?title=Rolled").size());
+
+        // Without a transaction the earlier request stays
+        result = batch(false, List.of(create("kept", "Not rolled back", List.of("rollback-tag")), invalid));
+        assertEquals(201, result.get(0).get("status").asInt());
+        assertEquals(400, result.get(1).get("status").asInt());
+        assertEquals(Map.of("rollback-tag", 1), bookmarkCounts("rollback-"));
+    }
+
+    private Map<String, Integer> bookmarkCounts(String prefix) throws Exception {
+        Map<String, Integer> counts = new HashMap<>();
+        for (JsonNode tag : get("/api/tags?prefix=" + prefix)) {
+            counts.put(tag.get("name").asText(), tag.get("bookmarkCount").asInt());
+        }
+        return counts;
+    }
+
+    private Map<String, Object> create(String id, String title, List<String> tags) {
+        return Map.of("id", id, "method", "POST", "path", "/api/bookmarks",
+                "body", Map.of("title", title, "url", "https://example.com/" + id, "tags", tags));
+    }
+
+    // The sub-results of a batch
+    private JsonNode batch(boolean transactional, List<Map<String, Object>> requests) throws Exception {
+        ResponseEntity<String> response = restTemplate.exchange("/api/batch", HttpMethod.POST,
+                new HttpEntity<>(Map.of("transactional", transactional, "requests", requests), headers()), String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return objectMapper.readTree(response.getBody()).get("responses");
+    }
+
+    private JsonNode get(String uri) throws Exception {
+        ResponseEntity<String> response = restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers()), String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return objectMapper.readTree(response.getBody());
+    }
+
+    private HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+}
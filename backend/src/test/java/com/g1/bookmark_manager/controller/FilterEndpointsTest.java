@@ -0,0 +1,224 @@
+package com.g1.bookmark_manager.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g1.bookmark_manager.entity.Bookmark;
+import com.g1.bookmark_manager.entity.CodeBlock;
+import com.g1.bookmark_manager.entity.Role;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.repository.BookmarkRepository;
+import com.g1.bookmark_manager.repository.CodeBlockRepository;
+import com.g1.bookmark_manager.repository.RoleRepository;
+import com.g1.bookmark_manager.repository.UserRepository;
+import com.g1.bookmark_manager.service.DataInitializationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The filter endpoints on H2: combined conditions, the sort whitelist, cursor paging and the capped first-page count
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:filter-endpoints;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "app.mail.outbox.enabled=false",
+        "app.seed.default-data=false",
+        "app.filter.count-limit=5"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = FilterEndpointsTest.USERNAME, roles = "USER")
+class FilterEndpointsTest {
+
+    static final String USERNAME = "filteruser";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private BookmarkRepository bookmarkRepository;
+
+    @Autowired
+    private CodeBlockRepository codeBlockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataInitializationService dataInitializationService;
+
+    // 12 bookmarks: even ones tagged java, every third one a favorite, the first six in Work.
+    // 6 code blocks: the first five in java, the last one in sql, all tagged snippet, the first three favorites
+    @BeforeEach
+    void createLibrary() {
+        if (userRepository.findByUsername(USERNAME).isPresent()) {
+            return;
+        }
+        dataInitializationService.initializeDefaultData();
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = new User();
+            user.setUsername(USERNAME);
+            user.setEmail(USERNAME + "@example.com");
+            user.setPassword("password");
+            user.setFullName(USERNAME);
+            user.setRoles(new ArrayList<>(List.of(roleRepository.findByName(Role.RoleName.USER).orElseThrow())));
+            userRepository.save(user);
+
+            for (int i = 0; i < 12; i++) {
+                Bookmark bookmark = new Bookmark();
+                bookmark.setTitle("Bookmark " + i);
+                bookmark.setUrl("https://example.com/" + i);
+                bookmark.setTags(new ArrayList<>(i % 2 == 0 ? List.of("java", "all") : List.of("all")));
+                bookmark.setIsFavorite(i % 3 == 0);
+                bookmark.setCollection(i < 6 ? "Work" : null);
+                bookmark.setUser(user);
+                bookmarkRepository.save(bookmark);
+            }
+            for (int i = 0; i < 6; i++) {
+                CodeBlock codeBlock = new CodeBlock();
+                codeBlock.setTitle("Snippet " + i);
+                codeBlock.setCode("x");
+                codeBlock.setLanguage(i < 5 ? "java" : "sql");
+                codeBlock.setTags(new ArrayList<>(List.of("snippet")));
+                codeBlock.setIsFavorite(i < 3);
+                codeBlock.setUser(user);
+                codeBlockRepository.save(codeBlock);
+            }
+        });
+    }
+
+    @Test
+    void combinedConditionsMustAllMatch() throws Exception {
+        // java tag (0, 2, 4, 6, 8, 10), favorite (0, 3, 6, 9) and in Work (0 to 5): only bookmark 0
+        JsonNode page = getJson("/api/bookmarks/filterResult?tags=java&isFavorite=true&collection=Work&size=10");
+        assertEquals(List.of("Bookmark 0"), titles(page));
+        assertEquals(1, page.get("total").asLong());
+        assertTrue(page.get("totalExact").asBoolean());
+
+        // java (0 to 4), favorite (0, 1, 2) and a title match: only snippet 2
+        page = getJson("/api/codeblocks/filter?language=java&isFavorite=true&title=2&tags=snippet");
+        assertEquals(List.of("Snippet 2"), titles(page));
+    }
+
+    @Test
+    void sortIsLimitedToIndexedProperties() throws Exception {
+        mockMvc.perform(get("/api/bookmarks/filterResult").param("sortBy", "url").param("size", "10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/bookmarks/filterResult").param("sortBy", "url"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/codeblocks/filter").param("sortBy", "createdAt,sideways"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/codeblocks/filter").param("sortBy", "updatedAt,asc"))
+                .andExpect(status().isOk());
+    }
+
+    // The title orders offered by the filter dialog, paged with a (title, id) cursor
+    @Test
+    void titleSortPagesInTitleOrder() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            expected.add("Bookmark " + i);
+        }
+        expected.sort(Comparator.reverseOrder());
+        List<String> paged = new ArrayList<>();
+        JsonNode page = getJson("/api/bookmarks/filterResult?tags=all&sortBy=title,desc&size=5");
+        paged.addAll(titles(page));
+        while (page.get("hasNext").asBoolean()) {
+            page = getJson("/api/bookmarks/filterResult?tags=all&sortBy=title,desc&size=5&cursor="
+                    + page.get("nextCursor").asText());
+            paged.addAll(titles(page));
+        }
+        assertEquals(expected, paged);
+
+        page = getJson("/api/codeblocks/filter?sortBy=title,asc&size=4");
+        assertEquals(List.of("Snippet 0", "Snippet 1", "Snippet 2", "Snippet 3"), titles(page));
+        page = getJson("/api/codeblocks/filter?sortBy=title,asc&size=4&cursor=" + page.get("nextCursor").asText());
+        assertEquals(List.of("Snippet 4", "Snippet 5"), titles(page));
+    }
+
+    @Test
+    void cursorPagesContinueWhereThePreviousPageEnded() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (JsonNode bookmark : getJson("/api/bookmarks/filterResult?tags=all&sortBy=createdAt,desc")) {
+            expected.add(bookmark.get("title").asText());
+        }
+        assertEquals(12, expected.size());
+
+        List<String> paged = new ArrayList<>();
+        JsonNode page = getJson("/api/bookmarks/filterResult?tags=all&sortBy=createdAt,desc&size=5");
+        paged.addAll(titles(page));
+        int pages = 1;
+        while (page.get("hasNext").asBoolean()) {
+            // Later pages are not counted
+            page = getJson("/api/bookmarks/filterResult?tags=all&sortBy=createdAt,desc&size=5&cursor="
+                    + page.get("nextCursor").asText());
+            assertTrue(page.get("total").isNull());
+            paged.addAll(titles(page));
+            pages++;
+        }
+        assertEquals(3, pages);
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void totalIsExactUpToTheCountLimit() throws Exception {
+        // Bookmarks 0 to 5 match the collection, one more than app.filter.count-limit
+        JsonNode page = getJson("/api/bookmarks/filterResult?collection=Work&size=2");
+        assertEquals(5, page.get("total").asLong());
+        assertFalse(page.get("totalExact").asBoolean());
+
+        // Favorites 0, 3, 6 and 9 stay below the limit
+        page = getJson("/api/bookmarks/filterResult?isFavorite=true&size=2");
+        assertEquals(4, page.get("total").asLong());
+        assertTrue(page.get("totalExact").asBoolean());
+
+        // Five java code blocks are exactly the limit and still exact, all six snippets are one more
+        page = getJson("/api/codeblocks/filter?language=java&size=2");
+        assertEquals(5, page.get("total").asLong());
+        assertTrue(page.get("totalExact").asBoolean());
+        page = getJson("/api/codeblocks/filter?tags=snippet&size=2");
+        assertEquals(5, page.get("total").asLong());
+        assertFalse(page.get("totalExact").asBoolean());
+    }
+
+    private JsonNode getJson(String uri) throws Exception {
+        String body = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private static List<String> titles(JsonNode page) {
+        List<String> titles = new ArrayList<>();
+        for (JsonNode item : page.get("items")) {
+            titles.add(item.get("title").asText());
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,79 @@
+package com.g1.bookmark_manager.metrics;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Slow statement lines show bind values only when enabled and never for the redacted tables
+class SqlTraceListenerTest {
+
+    private final Logger slowLogger = (Logger) LoggerFactory.getLogger("sql.slow");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void attach() {
+        appender.start();
+        slowLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detach() {
+        slowLogger.detachAppender(appender);
+    }
+
+    @Test
+    void parametersAreTypesAndLengthsByDefault() throws Exception {
+        new SqlTraceListener(0, false, List.of("users", "mail_outbox"))
+                .afterQuery(new ExecutionInfo(), List.of(query("SELECT * FROM bookmarks WHERE title = ?", "secret")));
+
+        String line = logged();
+        assertTrue(line.contains("1=String(6)"), line);
+        assertFalse(line.contains("secret"), line);
+    }
+
+    @Test
+    void valuesAreRedactedForSensitiveTables() throws Exception {
+        SqlTraceListener listener = new SqlTraceListener(0, true, List.of("users", "mail_outbox"));
+
+        listener.afterQuery(new ExecutionInfo(), List.of(query("SELECT * FROM bookmarks WHERE title = ?", "visible")));
+        assertTrue(logged().contains("1=visible"));
+
+        listener.afterQuery(new ExecutionInfo(), List.of(query("UPDATE users SET password = ? WHERE id = 1", "hash")));
+        listener.afterQuery(new ExecutionInfo(), List.of(query("INSERT INTO mail_outbox (recipient) VALUES (?)", "a@b.c")));
+        listener.afterQuery(new ExecutionInfo(), List.of(query("SELECT u1_0.id FROM USERS u1_0 WHERE u1_0.email = ?", "a@b.c")));
+        assertEquals(4, appender.list.size());
+        for (ILoggingEvent event : appender.list.subList(1, 4)) {
+            assertFalse(event.getFormattedMessage().contains("hash"), event.getFormattedMessage());
+            assertFalse(event.getFormattedMessage().contains("a@b.c"), event.getFormattedMessage());
+        }
+
+        // user_tags is not the users table
+        listener.afterQuery(new ExecutionInfo(), List.of(query("SELECT * FROM user_tags WHERE tag_id = ?", "visible")));
+        assertTrue(logged().contains("1=visible"));
+    }
+
+    private String logged() {
+        return appender.list.get(appender.list.size() - 1).getFormattedMessage();
+    }
+
+    private static QueryInfo query(String sql, String value) throws Exception {
+        QueryInfo query = new QueryInfo(sql);
+        query.getParametersList().add(List.of(new ParameterSetOperation(
+                PreparedStatement.class.getMethod("setString", int.class, String.class), new Object[]{1, value})));
+        return query;
+    }
+}
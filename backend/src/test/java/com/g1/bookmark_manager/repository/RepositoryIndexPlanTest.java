@@ -0,0 +1,463 @@
+package com.g1.bookmark_manager.repository;
+
+import com.g1.bookmark_manager.entity.Bookmark;
+import com.g1.bookmark_manager.entity.CodeBlock;
+import com.g1.bookmark_manager.entity.Collection;
+import com.g1.bookmark_manager.entity.MailOutbox;
+import com.g1.bookmark_manager.entity.Tombstone;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.filter.FilterCriteria;
+import com.g1.bookmark_manager.filter.FilterEngine;
+import com.g1.bookmark_manager.filter.FilterSort;
+import com.g1.bookmark_manager.util.CursorUtil;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every repository query and the FilterEngine statements against the migrated schema on SQL Server and reads
+ * their plans from the plan cache.
+ * The tables that grow with the users' data must be reached through an index seek, a scan means a query lost its
+ * index. {@code mvn -Pindex-plan test} runs it against a SQL Server container (needs Docker). Against an existing
+ * scratch database, set e.g.
+ * INDEX_PLAN_DB_URL=jdbc:sqlserver://localhost:1433;databaseName=BookmarkPlanTest;encrypt=true;trustServerCertificate=true
+ * and use a login allowed to clear the procedure cache of that database.
+ */
+@EnabledIfEnvironmentVariable(named = "INDEX_PLAN_DB_URL", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${INDEX_PLAN_DB_URL}",
+        "spring.datasource.driver-class-name=${INDEX_PLAN_DB_DRIVER:com.microsoft.sqlserver.jdbc.SQLServerDriver}",
+        "spring.datasource.username=${INDEX_PLAN_DB_USERNAME:sa}",
+        "spring.datasource.password=${INDEX_PLAN_DB_PASSWORD:}",
+        "spring.jpa.open-in-view=false",
+        "app.mail.outbox.enabled=false",
+        "app.sql-trace.enabled=false"
+})
+class RepositoryIndexPlanTest {
+
+    private static final String SHOWPLAN_NS = "http://schemas.microsoft.com/sqlserver/2004/07/showplan";
+    private static final Set<String> LARGE_TABLES = Set.of("bookmarks", "bookmark_tags", "code_blocks",
+            "code_block_tags", "collections", "tombstones", "user_tags", "mail_outbox");
+    private static final Set<String> SCANS = Set.of("Table Scan", "Clustered Index Scan", "Index Scan");
+    private static final Pageable PAGE = PageRequest.of(0, 50);
+
+    private static final String CACHED_PLANS = "SELECT CAST(p.query_plan AS NVARCHAR(MAX)) " +
+            "FROM sys.dm_exec_query_stats s " +
+            "CROSS APPLY sys.dm_exec_query_plan(s.plan_handle) p " +
+            "CROSS APPLY sys.dm_exec_sql_text(s.sql_handle) t " +
+            "WHERE p.dbid = DB_ID() AND p.query_plan IS NOT NULL AND t.text NOT LIKE '%dm_exec_query_stats%'";
+
+    private static final String NUMBERS = "(SELECT TOP (%d) CAST(ROW_NUMBER() OVER (ORDER BY (SELECT NULL)) AS INT) AS i " +
+            "FROM sys.all_objects a CROSS JOIN sys.all_objects b) n";
+
+    // 100 users with 200 bookmarks, 50 code blocks and 10 collections each, so one user's rows are 1% of a table
+    private static final List<String> SEED = List.of(
+            "INSERT INTO users (username, email, password_hash, created_at, updated_at, is_active, data_version) " +
+            "SELECT CONCAT('plan-user-', n.i), CONCAT('plan-user-', n.i, '@example.com'), 'x', " +
+            "SYSDATETIME(), SYSDATETIME(), 1, 0 FROM " + NUMBERS.formatted(100),
+
+            "INSERT INTO collections (name, icon, is_public, is_default, sort_order, bookmark_count, code_block_count, " +
+            "created_at, updated_at, user_id) " +
+            "SELECT CONCAT('collection-', n.i), 'folder', CASE WHEN n.i = 1 THEN 1 ELSE 0 END, " +
+            "CASE WHEN n.i = 1 THEN 1 ELSE 0 END, n.i, 0, 0, DATEADD(MINUTE, -n.i, SYSDATETIME()), SYSDATETIME(), u.id " +
+            "FROM users u CROSS JOIN " + NUMBERS.formatted(10) + " WHERE u.username LIKE 'plan-user-%'",
+
+            "INSERT INTO bookmarks (id, title, url, collection, collection_id, is_public, is_favorite, " +
+            "created_at, updated_at, user_id) " +
+            "SELECT u.id * 1000 + n.i, CONCAT('bookmark-', n.i), CONCAT('https://example.com/', n.i), c.name, c.id, " +
+            "CASE WHEN n.i % 10 = 0 THEN 1 ELSE 0 END, CASE WHEN n.i % 20 = 0 THEN 1 ELSE 0 END, " +
+            "DATEADD(MINUTE, -n.i, SYSDATETIME()), SYSDATETIME(), u.id " +
+            "FROM users u CROSS JOIN " + NUMBERS.formatted(200) + " " +
+            "JOIN collections c ON c.user_id = u.id AND c.sort_order = n.i % 10 + 1 WHERE u.username LIKE 'plan-user-%'",
+
+            "INSERT INTO bookmark_tags (bookmark_id, tag) " +
+            "SELECT id, CONCAT('tag-', id % 50) FROM bookmarks UNION ALL SELECT id, CONCAT('topic-', id % 7) FROM bookmarks",
+
+            "INSERT INTO code_blocks (title, code, language, collection, collection_id, is_public, is_favorite, " +
+            "created_at, updated_at, user_id) " +
+            "SELECT CONCAT('snippet-', n.i), 'x', CONCAT('lang-', n.i % 8), c.name, c.id, " +
+            "CASE WHEN n.i % 10 = 0 THEN 1 ELSE 0 END, CASE WHEN n.i % 20 = 0 THEN 1 ELSE 0 END, " +
+            "DATEADD(MINUTE, -n.i, SYSDATETIME()), SYSDATETIME(), u.id " +
+            "FROM users u CROSS JOIN " + NUMBERS.formatted(50) + " " +
+            "JOIN collections c ON c.user_id = u.id AND c.sort_order = n.i % 10 + 1 WHERE u.username LIKE 'plan-user-%'",
+
+            "INSERT INTO code_block_tags (code_block_id, tag) SELECT id, CONCAT('tag-', id % 50) FROM code_blocks",
+
+            "INSERT INTO tags (name, created_at) SELECT CONCAT('tag-', n.i - 1), SYSDATETIME() FROM " + NUMBERS.formatted(50),
+
+            "INSERT INTO user_tags (user_id, tag_id, bookmark_count, code_block_count) " +
+            "SELECT u.id, t.id, 4, 1 FROM users u CROSS JOIN tags t " +
+            "WHERE u.username LIKE 'plan-user-%' AND t.name LIKE 'tag-%'",
+
+            "INSERT INTO tombstones (user_id, entity_type, entity_id, deleted_at) " +
+            "SELECT u.id, 'BOOKMARK', 10000000 + n.i, DATEADD(MINUTE, -n.i, SYSDATETIME()) " +
+            "FROM users u CROSS JOIN " + NUMBERS.formatted(200) + " WHERE u.username LIKE 'plan-user-%'",
+
+            "INSERT INTO mail_outbox (recipient, subject, template, status, attempts, next_attempt_at, created_at, sent_at) " +
+            "SELECT 'plan@example.com', 'Welcome', 'welcome', CASE WHEN n.i % 1000 = 0 THEN 'PENDING' ELSE 'SENT' END, 1, " +
+            "DATEADD(MINUTE, -n.i, SYSDATETIME()), DATEADD(MINUTE, -n.i, SYSDATETIME()), SYSDATETIME() " +
+            "FROM " + NUMBERS.formatted(20000),
+
+            "EXEC sp_updatestats");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BookmarkRepository bookmarkRepository;
+
+    @Autowired
+    private CodeBlockRepository codeBlockRepository;
+
+    @Autowired
+    private CollectionRepository collectionRepository;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private UserTagRepository userTagRepository;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FilterEngine filterEngine;
+
+    @TestFactory
+    Stream<DynamicTest> repositoryQueriesSeekAnIndex() {
+        Fixture f = fixture();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minusMinutes(30);
+
+        // Whole-table reads are left out on purpose: findByIsPublicTrue, findAllPublicWithUser, findAllPublicCollections,
+        // the specification based findAll and the one-off tag folding in TagRepository
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("BookmarkRepository.findByUser", () -> bookmarkRepository.findByUser(f.user()));
+        queries.put("BookmarkRepository.findOwned", () -> bookmarkRepository.findOwned(f.bookmarkId(), f.userId()));
+        queries.put("BookmarkRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt",
+                () -> bookmarkRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt(f.user(), since));
+        queries.put("BookmarkRepository.findByUserAndIsFavoriteTrue", () -> bookmarkRepository.findByUserAndIsFavoriteTrue(f.user()));
+        queries.put("BookmarkRepository.findByUserAndCollection",
+                () -> bookmarkRepository.findByUserAndCollection(f.user(), f.collectionName()));
+        queries.put("BookmarkRepository.findByUserAndIsPublicTrue", () -> bookmarkRepository.findByUserAndIsPublicTrue(f.user()));
+        queries.put("BookmarkRepository.findPublicFeed", () -> bookmarkRepository.findPublicFeed(PAGE));
+        queries.put("BookmarkRepository.findPublicFeedAfterCursor",
+                () -> bookmarkRepository.findPublicFeedAfterCursor(f.cursor(), f.bookmarkId(), PAGE));
+        queries.put("BookmarkRepository.findByUserId", () -> bookmarkRepository.findByUserId(f.userId()));
+        queries.put("BookmarkRepository.findDistinctCollectionsByUser",
+                () -> bookmarkRepository.findDistinctCollectionsByUser(f.user()));
+        queries.put("BookmarkRepository.findByUserAndTagIn", () -> bookmarkRepository.findByUserAndTagIn(f.user(), f.tags()));
+        queries.put("BookmarkRepository.findTagsByBookmarkIds", () -> bookmarkRepository.findTagsByBookmarkIds(f.bookmarkIds()));
+        queries.put("BookmarkRepository.findByUserOrderByCreatedAtDescIdDesc",
+                () -> bookmarkRepository.findByUserOrderByCreatedAtDescIdDesc(f.user(), PAGE));
+        queries.put("BookmarkRepository.findByUserAfterCursor",
+                () -> bookmarkRepository.findByUserAfterCursor(f.user(), f.cursor(), f.bookmarkId(), PAGE));
+        queries.put("BookmarkRepository.findByUserAndIsFavoriteTrueOrderByCreatedAtDescIdDesc",
+                () -> bookmarkRepository.findByUserAndIsFavoriteTrueOrderByCreatedAtDescIdDesc(f.user(), PAGE));
+        queries.put("BookmarkRepository.findFavoritesAfterCursor",
+                () -> bookmarkRepository.findFavoritesAfterCursor(f.user(), f.cursor(), f.bookmarkId(), PAGE));
+        queries.put("BookmarkRepository.findByUserAndCollectionOrderByCreatedAtDescIdDesc",
+                () -> bookmarkRepository.findByUserAndCollectionOrderByCreatedAtDescIdDesc(f.user(), f.collectionName(), PAGE));
+        queries.put("BookmarkRepository.findByCollectionAfterCursor",
+                () -> bookmarkRepository.findByCollectionAfterCursor(f.user(), f.collectionName(), f.cursor(), f.bookmarkId(), PAGE));
+        queries.put("BookmarkRepository.findByTagFirstPage", () -> bookmarkRepository.findByTagFirstPage(f.user(), f.tags(), PAGE));
+        queries.put("BookmarkRepository.findByTagAfterCursor",
+                () -> bookmarkRepository.findByTagAfterCursor(f.user(), f.tags(), f.cursor(), f.bookmarkId(), PAGE));
+        queries.put("BookmarkRepository.findOwnedIds", () -> bookmarkRepository.findOwnedIds(f.userId(), f.bookmarkIds()));
+        queries.put("BookmarkRepository.findCollectionIds", () -> bookmarkRepository.findCollectionIds(f.userId(), f.bookmarkIds()));
+        queries.put("BookmarkRepository.moveAll",
+                () -> bookmarkRepository.moveAll(f.userId(), f.bookmarkIds(), f.collection(), f.collectionName(), now));
+        queries.put("BookmarkRepository.clearCollectionAll", () -> bookmarkRepository.clearCollectionAll(f.userId(), f.bookmarkIds(), now));
+        queries.put("BookmarkRepository.setFavoriteAll", () -> bookmarkRepository.setFavoriteAll(f.userId(), f.bookmarkIds(), true, now));
+        queries.put("BookmarkRepository.setPublicAll", () -> bookmarkRepository.setPublicAll(f.userId(), f.bookmarkIds(), true, now));
+        queries.put("BookmarkRepository.touchAll", () -> bookmarkRepository.touchAll(f.userId(), f.bookmarkIds(), now));
+        queries.put("BookmarkRepository.addTagToAll", () -> bookmarkRepository.addTagToAll(f.userId(), f.bookmarkIds(), "plan"));
+        queries.put("BookmarkRepository.removeTagsFromAll",
+                () -> bookmarkRepository.removeTagsFromAll(f.userId(), f.bookmarkIds(), f.tags()));
+        queries.put("BookmarkRepository.deleteOwned", () -> {
+            bookmarkRepository.deleteTagsOfAll(f.userId(), f.bookmarkIds());
+            bookmarkRepository.deleteOwned(f.userId(), f.bookmarkIds());
+        });
+        queries.put("BookmarkRepository.countByFilter",
+                () -> bookmarkRepository.countByFilter(f.userId(), f.collectionName(), f.tags().get(0), null, null));
+        queries.put("BookmarkRepository.findCollectionIdsByFilter",
+                () -> bookmarkRepository.findCollectionIdsByFilter(f.userId(), null, f.tags().get(0), null, null));
+        queries.put("BookmarkRepository.moveAllByFilter", () -> bookmarkRepository.moveAllByFilter(
+                f.userId(), f.collectionName(), null, null, null, f.collection(), f.collectionName(), now));
+        queries.put("BookmarkRepository.clearCollectionAllByFilter",
+                () -> bookmarkRepository.clearCollectionAllByFilter(f.userId(), f.collectionName(), null, null, null, now));
+        queries.put("BookmarkRepository.setFavoriteAllByFilter",
+                () -> bookmarkRepository.setFavoriteAllByFilter(f.userId(), null, f.tags().get(0), null, null, true, now));
+        queries.put("BookmarkRepository.setPublicAllByFilter",
+                () -> bookmarkRepository.setPublicAllByFilter(f.userId(), null, null, true, null, true, now));
+        queries.put("BookmarkRepository.touchAllByFilter",
+                () -> bookmarkRepository.touchAllByFilter(f.userId(), f.collectionName(), null, null, null, now));
+        queries.put("BookmarkRepository.addTagToAllByFilter",
+                () -> bookmarkRepository.addTagToAllByFilter(f.userId(), null, f.tags().get(0), null, null, "plan"));
+        queries.put("BookmarkRepository.removeTagsFromAllByFilter",
+                () -> bookmarkRepository.removeTagsFromAllByFilter(f.userId(), f.collectionName(), null, null, null, f.tags()));
+        queries.put("BookmarkRepository.deleteTombstoned", () -> {
+            tombstoneRepository.insertForBookmarksByFilter(f.userId(), null, f.tags().get(0), null, null, now);
+            bookmarkRepository.deleteTagsOfTombstoned(f.userId(), now);
+            bookmarkRepository.deleteTombstoned(f.userId(), now);
+        });
+        queries.put("BookmarkRepository.findIdsByCollectionId",
+                () -> bookmarkRepository.findIdsByCollectionId(f.collectionId(), PAGE));
+        queries.put("BookmarkRepository.countByCollectionEntityId",
+                () -> bookmarkRepository.countByCollectionEntityId(f.collectionId()));
+
+        queries.put("CodeBlockRepository.findByUserOrderByCreatedAtDesc",
+                () -> codeBlockRepository.findByUserOrderByCreatedAtDesc(f.user()));
+        queries.put("CodeBlockRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt",
+                () -> codeBlockRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt(f.user(), since));
+        queries.put("CodeBlockRepository.findByUserAndCollectionOrderByCreatedAtDesc",
+                () -> codeBlockRepository.findByUserAndCollectionOrderByCreatedAtDesc(f.user(), f.collectionName()));
+        queries.put("CodeBlockRepository.findByUserAndIsFavoriteOrderByCreatedAtDesc",
+                () -> codeBlockRepository.findByUserAndIsFavoriteOrderByCreatedAtDesc(f.user(), true));
+        queries.put("CodeBlockRepository.findOwned", () -> codeBlockRepository.findOwned(f.codeBlockId(), f.userId()));
+        queries.put("CodeBlockRepository.toggleFavoriteOwned",
+                () -> codeBlockRepository.toggleFavoriteOwned(f.codeBlockId(), f.userId(), now));
+        queries.put("CodeBlockRepository.findByUserId", () -> codeBlockRepository.findByUserId(f.userId()));
+        queries.put("CodeBlockRepository.countByUserAndCollection",
+                () -> codeBlockRepository.countByUserAndCollection(f.user(), f.collectionName()));
+        queries.put("CodeBlockRepository.findDistinctCollectionsByUser",
+                () -> codeBlockRepository.findDistinctCollectionsByUser(f.user()));
+        queries.put("CodeBlockRepository.findByUserAndLanguageOrderByCreatedAtDesc",
+                () -> codeBlockRepository.findByUserAndLanguageOrderByCreatedAtDesc(f.user(), "lang-1"));
+        queries.put("CodeBlockRepository.findSummariesByUserId", () -> codeBlockRepository.findSummariesByUserId(f.userId()));
+        queries.put("CodeBlockRepository.findSummariesByUserIdAndCollection",
+                () -> codeBlockRepository.findSummariesByUserIdAndCollection(f.userId(), f.collectionName()));
+        queries.put("CodeBlockRepository.findFavoriteSummariesByUserId",
+                () -> codeBlockRepository.findFavoriteSummariesByUserId(f.userId()));
+        queries.put("CodeBlockRepository.findSummariesByUserIdAndLanguage",
+                () -> codeBlockRepository.findSummariesByUserIdAndLanguage(f.userId(), "lang-1"));
+        queries.put("CodeBlockRepository.findSummariesByIds", () -> codeBlockRepository.findSummariesByIds(f.userId(), f.codeBlockIds()));
+        queries.put("CodeBlockRepository.findTagsByCodeBlockIds", () -> codeBlockRepository.findTagsByCodeBlockIds(f.codeBlockIds()));
+        queries.put("CodeBlockRepository.findOwnedIds", () -> codeBlockRepository.findOwnedIds(f.userId(), f.codeBlockIds()));
+        queries.put("CodeBlockRepository.findCollectionIds", () -> codeBlockRepository.findCollectionIds(f.userId(), f.codeBlockIds()));
+        queries.put("CodeBlockRepository.moveAll",
+                () -> codeBlockRepository.moveAll(f.userId(), f.codeBlockIds(), f.collection(), f.collectionName(), now));
+        queries.put("CodeBlockRepository.clearCollectionAll", () -> codeBlockRepository.clearCollectionAll(f.userId(), f.codeBlockIds(), now));
+        queries.put("CodeBlockRepository.setFavoriteAll", () -> codeBlockRepository.setFavoriteAll(f.userId(), f.codeBlockIds(), true, now));
+        queries.put("CodeBlockRepository.setPublicAll", () -> codeBlockRepository.setPublicAll(f.userId(), f.codeBlockIds(), true, now));
+        queries.put("CodeBlockRepository.touchAll", () -> codeBlockRepository.touchAll(f.userId(), f.codeBlockIds(), now));
+        queries.put("CodeBlockRepository.addTagToAll", () -> codeBlockRepository.addTagToAll(f.userId(), f.codeBlockIds(), "plan"));
+        queries.put("CodeBlockRepository.removeTagsFromAll",
+                () -> codeBlockRepository.removeTagsFromAll(f.userId(), f.codeBlockIds(), f.tags()));
+        queries.put("CodeBlockRepository.deleteOwned", () -> {
+            codeBlockRepository.deleteTagsOfAll(f.userId(), f.codeBlockIds());
+            codeBlockRepository.deleteOwned(f.userId(), f.codeBlockIds());
+        });
+        queries.put("CodeBlockRepository.countByFilter",
+                () -> codeBlockRepository.countByFilter(f.userId(), null, null, null, null, "lang-1"));
+        queries.put("CodeBlockRepository.findCollectionIdsByFilter",
+                () -> codeBlockRepository.findCollectionIdsByFilter(f.userId(), null, f.tags().get(0), null, null, null));
+        queries.put("CodeBlockRepository.moveAllByFilter", () -> codeBlockRepository.moveAllByFilter(
+                f.userId(), f.collectionName(), null, null, null, null, f.collection(), f.collectionName(), now));
+        queries.put("CodeBlockRepository.clearCollectionAllByFilter", () -> codeBlockRepository.clearCollectionAllByFilter(
+                f.userId(), f.collectionName(), null, null, null, null, now));
+        queries.put("CodeBlockRepository.setFavoriteAllByFilter", () -> codeBlockRepository.setFavoriteAllByFilter(
+                f.userId(), null, f.tags().get(0), null, null, null, true, now));
+        queries.put("CodeBlockRepository.setPublicAllByFilter", () -> codeBlockRepository.setPublicAllByFilter(
+                f.userId(), null, null, null, null, "lang-1", true, now));
+        queries.put("CodeBlockRepository.touchAllByFilter",
+                () -> codeBlockRepository.touchAllByFilter(f.userId(), f.collectionName(), null, null, null, null, now));
+        queries.put("CodeBlockRepository.addTagToAllByFilter", () -> codeBlockRepository.addTagToAllByFilter(
+                f.userId(), null, f.tags().get(0), null, null, null, "plan"));
+        queries.put("CodeBlockRepository.removeTagsFromAllByFilter", () -> codeBlockRepository.removeTagsFromAllByFilter(
+                f.userId(), null, null, null, null, "lang-1", f.tags()));
+        queries.put("CodeBlockRepository.deleteTombstoned", () -> {
+            tombstoneRepository.insertForCodeBlocksByFilter(f.userId(), null, null, null, null, "lang-1", now);
+            codeBlockRepository.deleteTagsOfTombstoned(f.userId(), now);
+            codeBlockRepository.deleteTombstoned(f.userId(), now);
+        });
+        queries.put("CodeBlockRepository.findIdsByCollectionId",
+                () -> codeBlockRepository.findIdsByCollectionId(f.collectionId(), PAGE));
+        queries.put("CodeBlockRepository.countByCollectionEntityId",
+                () -> codeBlockRepository.countByCollectionEntityId(f.collectionId()));
+
+        queries.put("CollectionRepository.findByUserOrderBySortOrder", () -> collectionRepository.findByUserOrderBySortOrder(f.user()));
+        queries.put("CollectionRepository.findOwned", () -> collectionRepository.findOwned(f.collectionId(), f.userId()));
+        queries.put("CollectionRepository.findOwnedByIds",
+                () -> collectionRepository.findOwned(f.userId(), List.of(f.collectionId())));
+        queries.put("CollectionRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt",
+                () -> collectionRepository.findByUserAndUpdatedAtAfterOrderByUpdatedAt(f.user(), since));
+        queries.put("CollectionRepository.findByNameAndUser", () -> collectionRepository.findByNameAndUser(f.collectionName(), f.user()));
+        queries.put("CollectionRepository.findByIsPublicTrueOrderByCreatedAtDescIdDesc",
+                () -> collectionRepository.findByIsPublicTrueOrderByCreatedAtDescIdDesc(PAGE));
+        queries.put("CollectionRepository.findPublicAfterCursor",
+                () -> collectionRepository.findPublicAfterCursor(now, f.collectionId(), PAGE));
+        queries.put("CollectionRepository.findByUserWithBookmarks", () -> collectionRepository.findByUserWithBookmarks(f.user()));
+        queries.put("CollectionRepository.existsByNameAndUser", () -> collectionRepository.existsByNameAndUser(f.collectionName(), f.user()));
+        queries.put("CollectionRepository.findByUserAndIsDefaultTrue", () -> collectionRepository.findByUserAndIsDefaultTrue(f.user()));
+        queries.put("CollectionRepository.getNextSortOrder", () -> collectionRepository.getNextSortOrder(f.user()));
+        queries.put("CollectionRepository.findByUserAndIsPublic", () -> collectionRepository.findByUserAndIsPublic(f.user(), true));
+        queries.put("CollectionRepository.countByUser", () -> collectionRepository.countByUser(f.user()));
+        queries.put("CollectionRepository.findCountsByUser", () -> collectionRepository.findCountsByUser(f.user()));
+        queries.put("CollectionRepository.adjustBookmarkCount", () -> collectionRepository.adjustBookmarkCount(f.collectionId(), 1, now));
+        queries.put("CollectionRepository.recountByUser", () -> collectionRepository.recountByUser(f.user()));
+        queries.put("CollectionRepository.recountByIds", () -> collectionRepository.recountByIds(List.of(f.collectionId()), now));
+        queries.put("CollectionRepository.findPurgeableIds", () -> collectionRepository.findPurgeableIds(now));
+        queries.put("CollectionRepository.findDeleted", () -> collectionRepository.findDeleted(f.collectionId()));
+        queries.put("CollectionRepository.claimPurge",
+                () -> collectionRepository.claimPurge(f.collectionId(), now, now.plusMinutes(5)));
+
+        queries.put("TombstoneRepository.findDeletedSince", () -> tombstoneRepository.findDeletedSince(f.userId(), since));
+        queries.put("TombstoneRepository.existsForEntity",
+                () -> tombstoneRepository.existsForEntity(f.userId(), Tombstone.EntityType.BOOKMARK, 10000001L));
+        queries.put("TombstoneRepository.insertForBookmarks",
+                () -> tombstoneRepository.insertForBookmarks(f.userId(), f.bookmarkIds(), now));
+        queries.put("TombstoneRepository.insertForCodeBlocks",
+                () -> tombstoneRepository.insertForCodeBlocks(f.userId(), f.codeBlockIds(), now));
+        queries.put("TombstoneRepository.deleteOlderThan", () -> tombstoneRepository.deleteOlderThan(now.minusDays(30)));
+
+        queries.put("UserTagRepository.findCountsByUserId", () -> userTagRepository.findCountsByUserId(f.userId()));
+        queries.put("UserTagRepository.findTagIdsByUserId",
+                () -> userTagRepository.findTagIdsByUserId(f.userId(), List.of(f.tagId())));
+        queries.put("UserTagRepository.adjustBookmarkCount", () -> userTagRepository.adjustBookmarkCount(f.userId(), f.tagId(), 1));
+        queries.put("UserTagRepository.findUntrackedTags", () -> userTagRepository.findUntrackedTags(f.userId()));
+        queries.put("UserTagRepository.recountByUserId", () -> userTagRepository.recountByUserId(f.userId()));
+
+        // Filter statements are built per shape: a page of 2 has a next page, so the capped count runs as well
+        FilterSort byUpdated = new FilterSort(FilterSort.Property.UPDATED_AT, false);
+        queries.put("FilterEngine.find bookmarks by tag", () -> filterEngine.find(Bookmark.class, f.userId(),
+                new FilterCriteria(null, null, null, f.tags(), null, null, null, null, null), FilterSort.DEFAULT, null, 2));
+        queries.put("FilterEngine.find bookmarks by collection", () -> filterEngine.find(Bookmark.class, f.userId(),
+                new FilterCriteria(null, null, null, null, f.collectionName(), null, null, null, null), byUpdated, null, 2));
+        queries.put("FilterEngine.find bookmarks after cursor", () -> filterEngine.find(Bookmark.class, f.userId(),
+                new FilterCriteria(null, null, null, null, null, null, null, since.minusDays(1), null), FilterSort.DEFAULT,
+                CursorUtil.encode(f.cursor(), f.bookmarkId()), 2));
+        FilterSort byTitle = new FilterSort(FilterSort.Property.TITLE, true);
+        queries.put("FilterEngine.find bookmarks by title after cursor", () -> filterEngine.find(Bookmark.class, f.userId(),
+                new FilterCriteria(null, null, null, null, null, null, null, null, null), byTitle,
+                CursorUtil.encodeTitle("z", f.bookmarkId()), 2));
+        queries.put("FilterEngine.find code blocks by title", () -> filterEngine.find(CodeBlock.class, f.userId(),
+                new FilterCriteria(null, null, null, null, null, null, null, null, null), byTitle, null, 2));
+        queries.put("FilterEngine.find code blocks by language", () -> filterEngine.find(CodeBlock.class, f.userId(),
+                new FilterCriteria(null, null, "lang-1", null, null, null, null, null, null), FilterSort.DEFAULT, null, 2));
+        queries.put("FilterEngine.findAll code blocks by tag and collection", () -> filterEngine.findAll(CodeBlock.class,
+                f.userId(), new FilterCriteria(null, null, null, f.tags(), f.collectionName(), null, null, null, null),
+                FilterSort.DEFAULT));
+
+        queries.put("MailOutboxRepository.findDueIds", () -> mailOutboxRepository.findDueIds(now, PAGE));
+        queries.put("MailOutboxRepository.countByStatus", () -> mailOutboxRepository.countByStatus(MailOutbox.Status.PENDING));
+
+        return queries.entrySet().stream()
+                .map(query -> DynamicTest.dynamicTest(query.getKey(), () -> assertSeeksOnly(query.getValue())));
+    }
+
+    private void assertSeeksOnly(Runnable query) {
+        jdbcTemplate.execute("ALTER DATABASE SCOPED CONFIGURATION CLEAR PROCEDURE_CACHE");
+        // Writes are rolled back so every query sees the same data
+        transactionTemplate.executeWithoutResult(status -> {
+            query.run();
+            status.setRollbackOnly();
+        });
+
+        List<String> plans = jdbcTemplate.queryForList(CACHED_PLANS, String.class);
+        assertFalse(plans.isEmpty(), "no cached plan found");
+        List<String> scans = plans.stream().flatMap(plan -> scansOfLargeTables(plan).stream()).toList();
+        assertTrue(scans.isEmpty(), () -> "expected index seeks, plan contains " + scans);
+    }
+
+    private static List<String> scansOfLargeTables(String planXml) {
+        List<String> scans = new ArrayList<>();
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            NodeList operators = factory.newDocumentBuilder()
+                    .parse(new InputSource(new StringReader(planXml)))
+                    .getElementsByTagNameNS(SHOWPLAN_NS, "RelOp");
+            for (int i = 0; i < operators.getLength(); i++) {
+                Element operator = (Element) operators.item(i);
+                String physicalOp = operator.getAttribute("PhysicalOp");
+                NodeList objects = operator.getElementsByTagNameNS(SHOWPLAN_NS, "Object");
+                if (!SCANS.contains(physicalOp) || objects.getLength() == 0) {
+                    continue;
+                }
+                // A scan operator is a leaf, its first Object is the table it reads
+                Element object = (Element) objects.item(0);
+                String table = object.getAttribute("Table").replace("[", "").replace("]", "");
+                if (LARGE_TABLES.contains(table)) {
+                    scans.add(physicalOp + " " + table + object.getAttribute("Index"));
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable plan", e);
+        }
+        return scans;
+    }
+
+    private Fixture fixture() {
+        if (userRepository.findByUsername("plan-user-1").isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> SEED.forEach(jdbcTemplate::execute));
+        }
+        User user = userRepository.findByUsername("plan-user-1").orElseThrow();
+        Collection collection = collectionRepository.findByNameAndUser("collection-2", user).orElseThrow();
+        List<Long> bookmarkIds = jdbcTemplate.queryForList(
+                "SELECT TOP 20 id FROM bookmarks WHERE user_id = ? ORDER BY created_at DESC, id DESC", Long.class, user.getId());
+        List<Long> codeBlockIds = jdbcTemplate.queryForList(
+                "SELECT TOP 20 id FROM code_blocks WHERE user_id = ? ORDER BY id", Long.class, user.getId());
+        LocalDateTime cursor = jdbcTemplate.queryForObject(
+                "SELECT created_at FROM bookmarks WHERE id = ?", LocalDateTime.class, bookmarkIds.get(10));
+        Long tagId = jdbcTemplate.queryForObject("SELECT id FROM tags WHERE name = 'tag-1'", Long.class);
+        return new Fixture(user, collection, bookmarkIds, codeBlockIds, cursor, tagId);
+    }
+
+    private record Fixture(User user, Collection collection, List<Long> bookmarkIds, List<Long> codeBlockIds,
+                           LocalDateTime cursor, Long tagId) {
+
+        Long userId() {
+            return user.getId();
+        }
+
+        Long collectionId() {
+            return collection.getId();
+        }
+
+        String collectionName() {
+            return collection.getName();
+        }
+
+        Long bookmarkId() {
+            return bookmarkIds.get(10);
+        }
+
+        Long codeBlockId() {
+            return codeBlockIds.get(0);
+        }
+
+        List<String> tags() {
+            return List.of("tag-1");
+        }
+    }
+}
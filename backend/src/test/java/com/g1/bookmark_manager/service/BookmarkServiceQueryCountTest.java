@@ -0,0 +1,106 @@
+package com.g1.bookmark_manager.service;
+
+import com.g1.bookmark_manager.entity.Bookmark;
+import com.g1.bookmark_manager.entity.Role;
+import com.g1.bookmark_manager.entity.User;
+import com.g1.bookmark_manager.repository.BookmarkRepository;
+import com.g1.bookmark_manager.repository.RoleRepository;
+import com.g1.bookmark_manager.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// List endpoints must not issue a query per bookmark: the statement count is the same for 10 and 100 bookmarks
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-count;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.open-in-view=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.mail.outbox.enabled=false",
+        "app.seed.default-data=false"
+})
+class BookmarkServiceQueryCountTest {
+
+    @Autowired
+    private BookmarkService bookmarkService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private BookmarkRepository bookmarkRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataInitializationService dataInitializationService;
+
+    @Test
+    void listQueryCountDoesNotGrowWithTheNumberOfBookmarks() {
+        dataInitializationService.initializeDefaultData();
+        createUserWithBookmarks("querycount10", 10);
+        createUserWithBookmarks("querycount100", 100);
+
+        long small = statementsForList("querycount10", 10);
+        long large = statementsForList("querycount100", 100);
+
+        assertEquals(small, large, "statements for 10 bookmarks vs 100 bookmarks");
+    }
+
+    private long statementsForList(String username, int expectedSize) {
+        // Resolve the user first so the principal cache is warm for both sizes
+        authService.findByUsername(username);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        int size = transactionTemplate.execute(status -> bookmarkService.getAllBookmarks(username).size());
+        assertEquals(expectedSize, size);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void createUserWithBookmarks(String username, int count) {
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = new User();
+            user.setUsername(username);
+            user.setEmail(username + "@example.com");
+            user.setPassword("password");
+            user.setFullName(username);
+            user.setRoles(new ArrayList<>(List.of(roleRepository.findByName(Role.RoleName.USER).orElseThrow())));
+            userRepository.save(user);
+
+            List<Bookmark> bookmarks = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Bookmark bookmark = new Bookmark();
+                bookmark.setTitle("Bookmark " + i);
+                bookmark.setUrl("https://example.com/" + i);
+                bookmark.setTags(new ArrayList<>(List.of("tag" + i, "shared")));
+                bookmark.setUser(user);
+                bookmarks.add(bookmark);
+            }
+            bookmarkRepository.saveAll(bookmarks);
+        });
+    }
+}
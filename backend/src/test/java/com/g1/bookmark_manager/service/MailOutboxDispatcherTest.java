@@ -0,0 +1,151 @@
+package com.g1.bookmark_manager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g1.bookmark_manager.entity.MailOutbox;
+import com.g1.bookmark_manager.repository.MailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MailOutboxDispatcherTest {
+
+    // Local SMTP server standing in for the real provider
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final MailOutboxRepository repository = mock(MailOutboxRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MailOutboxService outboxService;
+    private MailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        MailService mailService = new MailService(mailSender, templateEngine, meterRegistry);
+        ReflectionTestUtils.setField(mailService, "emailFrom", "noreply@localhost");
+        ReflectionTestUtils.setField(mailService, "loginUrl", "http://localhost/landing");
+
+        outboxService = new MailOutboxService(repository, new ObjectMapper());
+        dispatcher = new MailOutboxDispatcher(repository, outboxService, mailService, meterRegistry,
+                10, 2, 3, Duration.ofSeconds(30), Duration.ofMinutes(10), Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void deliversQueuedMailAndMarksItSent() throws Exception {
+        MailOutbox mail = queued(1L, "alice@example.com", 1);
+        when(repository.findDueIds(any(), any())).thenReturn(List.of(1L));
+        when(repository.claim(eq(1L), any(), any())).thenReturn(1);
+        when(repository.findById(1L)).thenReturn(Optional.of(mail));
+
+        dispatcher.dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(1, received.length);
+        assertEquals("Dev Resources Account", received[0].getSubject());
+        verify(repository).markSent(eq(1L), any());
+        assertEquals(1, meterRegistry.get("mail.send").tag("outcome", "sent").timer().count());
+        assertEquals(1, meterRegistry.get("mail.smtp.send").tag("outcome", "sent").timer().count());
+    }
+
+    @Test
+    void skipsRowsClaimedByAnotherDispatcher() {
+        when(repository.findDueIds(any(), any())).thenReturn(List.of(1L));
+        when(repository.claim(eq(1L), any(), any())).thenReturn(0);
+
+        dispatcher.dispatch();
+
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        verify(repository, never()).findById(1L);
+    }
+
+    @Test
+    void reschedulesWithBackoffWhenSmtpIsDown() {
+        greenMail.stop();
+        MailOutbox mail = queued(1L, "alice@example.com", 2);
+        when(repository.findDueIds(any(), any())).thenReturn(List.of(1L));
+        when(repository.claim(eq(1L), any(), any())).thenReturn(1);
+        when(repository.findById(1L)).thenReturn(Optional.of(mail));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        // Second attempt failed, the next one waits twice the initial backoff
+        verify(repository).markFailedAttempt(eq(1L), eq(MailOutbox.Status.PENDING),
+                argThat(next -> !next.isBefore(before.plusSeconds(60))), anyString());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        greenMail.stop();
+        MailOutbox mail = queued(1L, "alice@example.com", 3);
+        when(repository.findDueIds(any(), any())).thenReturn(List.of(1L));
+        when(repository.claim(eq(1L), any(), any())).thenReturn(1);
+        when(repository.findById(1L)).thenReturn(Optional.of(mail));
+
+        dispatcher.dispatch();
+
+        verify(repository).markFailedAttempt(eq(1L), eq(MailOutbox.Status.FAILED), any(), anyString());
+    }
+
+    @Test
+    void backoffIsCapped() {
+        assertEquals(Duration.ofSeconds(30), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(120), dispatcher.backoff(3));
+        assertTrue(dispatcher.backoff(30).compareTo(Duration.ofMinutes(10)) == 0);
+    }
+
+    // attempts is the value after the claim incremented it
+    private MailOutbox queued(Long id, String recipient, int attempts) {
+        MailOutbox mail = new MailOutbox();
+        mail.setId(id);
+        mail.setRecipient(recipient);
+        mail.setSubject("Dev Resources Account");
+        mail.setTemplate(MailService.ACCOUNT_TEMPLATE);
+        mail.setVariables("{\"username\":\"alice\",\"name\":\"Alice\"}");
+        mail.setStatus(MailOutbox.Status.SENDING);
+        mail.setAttempts(attempts);
+        return mail;
+    }
+}
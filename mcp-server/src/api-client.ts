@@ -9,12 +9,18 @@ import {
   CollectionRequest, 
   SearchFilter,
   CodeBlock,
-  CodeBlockRequest
+  CodeBlockRequest,
+  SyncResponse,
+  BatchOperation,
+  BatchResponse,
+  CollectionDeletion
 } from './types.js';
 
 export class BookmarkManagerApiClient {
   private api: AxiosInstance;
   private token: string | null = null;
+  // Last list response per URL, revalidated with If-None-Match so unchanged lists come back as an empty 304
+  private listCache = new Map<string, { etag: string; data: unknown }>();
 
   constructor(baseURL: string) {
     this.api = axios.create({
@@ -38,11 +44,29 @@ export class BookmarkManagerApiClient {
   async login(credentials: LoginRequest): Promise<AuthResponse> {
     const response = await this.api.post<AuthResponse>('/auth/login', credentials);
     this.token = response.data.token;
+    this.listCache.clear();
     return response.data;
   }
 
   async logout(): Promise<void> {
     this.token = null;
+    this.listCache.clear();
+  }
+
+  private async getList<T>(url: string): Promise<T> {
+    const cached = this.listCache.get(url);
+    const response = await this.api.get<T>(url, {
+      headers: cached ? { 'If-None-Match': cached.etag } : undefined,
+      validateStatus: (status) => (status >= 200 && status < 300) || status === 304,
+    });
+    if (response.status === 304 && cached) {
+      return cached.data as T;
+    }
+    const etag = response.headers['etag'];
+    if (etag) {
+      this.listCache.set(url, { etag, data: response.data });
+    }
+    return response.data;
   }
 
   // Bookmark methods
@@ -56,8 +80,7 @@ export class BookmarkManagerApiClient {
     if (filter?.limit) params.append('limit', filter.limit.toString());
     if (filter?.offset) params.append('offset', filter.offset.toString());
 
-    const response = await this.api.get<Bookmark[]>(`/bookmarks?${params}`);
-    return response.data;
+    return this.getList<Bookmark[]>(`/bookmarks?${params}`);
   }
 
   async getBookmark(id: number): Promise<Bookmark> {
@@ -65,6 +88,11 @@ export class BookmarkManagerApiClient {
     return response.data;
   }
 
+  async getBookmarksByIds(ids: number[]): Promise<Bookmark[]> {
+    const response = await this.api.get<Bookmark[]>(`/bookmarks/by-ids?ids=${ids.join(',')}`);
+    return response.data;
+  }
+
   async createBookmark(bookmark: BookmarkRequest): Promise<Bookmark> {
     const response = await this.api.post<Bookmark>('/bookmarks', bookmark);
     return response.data;
@@ -86,8 +114,7 @@ export class BookmarkManagerApiClient {
 
   // Collection methods
   async getCollections(): Promise<Collection[]> {
-    const response = await this.api.get<Collection[]>('/collections');
-    return response.data;
+    return this.getList<Collection[]>('/collections');
   }
 
   async getCollection(id: number): Promise<Collection> {
@@ -95,6 +122,11 @@ export class BookmarkManagerApiClient {
     return response.data;
   }
 
+  async getCollectionsByIds(ids: number[]): Promise<Collection[]> {
+    const response = await this.api.get<Collection[]>(`/collections/by-ids?ids=${ids.join(',')}`);
+    return response.data;
+  }
+
   async createCollection(collection: CollectionRequest): Promise<Collection> {
     const response = await this.api.post<Collection>('/collections', collection);
     return response.data;
@@ -105,14 +137,20 @@ export class BookmarkManagerApiClient {
     return response.data;
   }
 
-  async deleteCollection(id: number): Promise<void> {
-    await this.api.delete(`/collections/${id}`);
+  // The collection is gone right away, its bookmarks and code blocks are removed in the background
+  async deleteCollection(id: number): Promise<CollectionDeletion> {
+    const response = await this.api.delete<CollectionDeletion>(`/collections/${id}`);
+    return response.data;
+  }
+
+  async getCollectionDeletion(id: number): Promise<CollectionDeletion> {
+    const response = await this.api.get<CollectionDeletion>(`/collections/${id}/deletion`);
+    return response.data;
   }
 
   // CodeBlock methods
   async getCodeBlocks(): Promise<CodeBlock[]> {
-    const response = await this.api.get<CodeBlock[]>('/codeblocks');
-    return response.data;
+    return this.getList<CodeBlock[]>('/codeblocks');
   }
 
   async getCodeBlock(id: number): Promise<CodeBlock> {
@@ -174,6 +212,11 @@ export class BookmarkManagerApiClient {
     return response.data;
   }
 
+  async getCodeBlocksByIds(ids: number[]): Promise<CodeBlock[]> {
+    const response = await this.api.get<CodeBlock[]>(`/codeblocks/by-ids?ids=${ids.join(',')}`);
+    return response.data;
+  }
+
   // User methods (admin only)
   async getUsers(): Promise<User[]> {
     const response = await this.api.get<User[]>('/admin/users');
@@ -185,6 +228,19 @@ export class BookmarkManagerApiClient {
     return response.data;
   }
 
+  // Changes since the token of the previous sync, everything when no token is given
+  async sync(since?: string): Promise<SyncResponse> {
+    const params = since ? `?since=${encodeURIComponent(since)}` : '';
+    const response = await this.api.get<SyncResponse>(`/sync${params}`);
+    return response.data;
+  }
+
+  // Several API calls in one round trip; transactional batches stop at the first failure and roll back
+  async batch(requests: BatchOperation[], transactional = false): Promise<BatchResponse> {
+    const response = await this.api.post<BatchResponse>('/batch', { transactional, requests });
+    return response.data;
+  }
+
   // Health check
   async healthCheck(): Promise<boolean> {
     try {
@@ -94,3 +94,40 @@ export interface SearchFilter {
   limit?: number;
   offset?: number;
 }
+
+export interface CollectionDeletion {
+  collectionId: number;
+  status: 'PURGING' | 'DONE';
+  total: number;
+  remaining: number;
+}
+
+export interface BatchOperation {
+  id?: string;
+  method: 'GET' | 'POST' | 'PUT' | 'PATCH' | 'DELETE';
+  path: string;
+  headers?: Record<string, string>;
+  body?: unknown;
+}
+
+export interface BatchResult {
+  id?: string;
+  status: number;
+  headers: Record<string, string>;
+  body: unknown;
+}
+
+export interface BatchResponse {
+  responses: BatchResult[];
+}
+
+export interface SyncResponse {
+  token: string;
+  fullResync: boolean;
+  bookmarks: Bookmark[];
+  codeBlocks: CodeBlock[];
+  collections: Collection[];
+  deletedBookmarkIds: number[];
+  deletedCodeBlockIds: number[];
+  deletedCollectionIds: number[];
+}